@@ -0,0 +1,181 @@
+package benchmark;
+
+import config.ConfigParser;
+import message.Message;
+import message.MessageManager;
+import processing.FileMessageSource;
+import processing.MessageSource;
+import util.Settings;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Writes the synthetic input files and configs that the
+ * benchmarks run on. Everything comes from a seeded Random,
+ * so every run gets the same messages.
+ *
+ * Config is read once per JVM, so a benchmark can only
+ * create one Settings per fork and must not use @Fork(0).
+ *
+ * @author Luciano Kholos
+ */
+public class BenchmarkData {
+    public static final long SEED = 42;
+
+    public static final String START_KEYWORD = "startmarker"; // Longer than any word in the vocabulary
+
+    private static final int VOCABULARY_SIZE = 1024;
+    private static final int SECONDS_PER_DAY = 11 * 60 * 60; // Hours 01 to 11, so the timestamps are in order
+
+    private final Path directory;
+    private final int messageCount;
+    private final List<String> vocabulary = new ArrayList<>();
+
+    /**
+     * @param messageCount      messages in the input file
+     */
+    public BenchmarkData(int messageCount) throws IOException {
+        this.directory = Files.createTempDirectory("benchmark");
+        this.messageCount = messageCount;
+
+        Random random = new Random(SEED);
+
+        for(int x = 0; x < VOCABULARY_SIZE; x++) {
+            vocabulary.add(word(random));
+        }
+    }
+
+    /**
+     * Writes the input file. Every body is made of words from the vocabulary,
+     * and the message in the middle holds the START_KEYWORD.
+     * @param bodySize          characters in each body
+     * @return                  the input file
+     */
+    public Path writeInput(int bodySize) throws IOException {
+        Path input = directory.resolve("input.txt");
+        Random random = new Random(SEED + 1);
+
+        try(BufferedWriter writer = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            StringBuilder body = new StringBuilder();
+
+            for(int x = 0; x < messageCount; x++) {
+                body.setLength(0);
+
+                if(x == messageCount / 2) {
+                    body.append(START_KEYWORD).append(' ');
+                }
+
+                while(body.length() < bodySize) {
+                    body.append(vocabulary.get(random.nextInt(VOCABULARY_SIZE))).append(' ');
+                }
+                body.setLength(bodySize);
+
+                String properties = random.nextInt(4) == 0 ? "{\"someProperty\":\"hi\"}" : "{}";
+
+                writer.write("{\"timeStamp\":\"" + timestamp(x) + "\",\"delayMillis\":" + random.nextInt(20000)
+                        + ",\"properties\":" + properties + ",\"body\":\"" + body + "\"}");
+                writer.newLine();
+            }
+        }
+
+        return input;
+    }
+
+    /**
+     * Writes the config and points the ConfigParser at it
+     * @param lines     config lines
+     */
+    public void writeConfig(List<String> lines) throws IOException {
+        Path config = directory.resolve("config.txt");
+        Files.write(config, lines, StandardCharsets.UTF_8);
+
+        ConfigParser.filePath = config.toString();
+    }
+
+    /**
+     * @param count     how many keywords
+     * @return          different words from the vocabulary
+     */
+    public List<String> keywords(int count) {
+        Random random = new Random(SEED + 2);
+        List<String> keywords = new ArrayList<>();
+
+        while(keywords.size() < count) {
+            String word = vocabulary.get(random.nextInt(VOCABULARY_SIZE));
+
+            if(!keywords.contains(word)) {
+                keywords.add(word);
+            }
+        }
+
+        return keywords;
+    }
+
+    /**
+     * @param x     index of a message
+     * @return      timeStamp of that message, one second after the one before it
+     */
+    public String timestamp(int x) {
+        int day = x / SECONDS_PER_DAY;
+        int seconds = x % SECONDS_PER_DAY + 60 * 60;
+
+        return String.format("07-%02d-2020 %02d:%02d:%02d", day + 1, seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+
+    /**
+     * Loads the input file into a MessageManager the way the JsonProcessingTool does
+     * @param settings      settings that point at the input file
+     * @return              manager with every message loaded
+     */
+    public static MessageManager load(Settings settings) throws IOException {
+        MessageManager manager = new MessageManager(settings);
+        List<Message> batch = new ArrayList<>();
+
+        try(MessageSource source = FileMessageSource.open(settings, settings.getInputFilePath(), false)) {
+            while(source.nextBatch(batch, settings.getBatchSize())) {
+                for(Message message : batch) {
+                    manager.addMessage(message);
+                }
+                batch.clear();
+            }
+        }
+
+        return manager;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Deletes the input, output and config files
+     */
+    public void delete() throws IOException {
+        try(Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static String word(Random random) {
+        char[] letters = new char[3 + random.nextInt(7)];
+
+        for(int x = 0; x < letters.length; x++) {
+            letters[x] = (char) ('a' + random.nextInt(26));
+        }
+
+        return new String(letters);
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import message.Message;
+import message.MessageManager;
+import org.openjdk.jmh.annotations.*;
+import util.Settings;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the start/stop time and start keyword filters
+ * of the MessageManager on messages that are already loaded.
+ *
+ * @author Luciano Kholos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+    @Param({"10000", "100000"})
+    public int messageCount;
+
+    @Param({"16", "256"})
+    public int bodySize;
+
+    private BenchmarkData data;
+    private MessageManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = new BenchmarkData(messageCount);
+
+        String input = data.writeInput(bodySize).toString();
+
+        // The second quarter of the messages
+        data.writeConfig(Arrays.asList(
+                "start_time=" + data.timestamp(messageCount / 4),
+                "stop_time=" + data.timestamp(messageCount / 2)
+        ));
+
+        Settings settings = new Settings(input, data.getDirectory().resolve("output.txt").toString(), BenchmarkData.START_KEYWORD, false);
+        manager = BenchmarkData.load(settings);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        data.delete();
+    }
+
+    @Benchmark
+    public ArrayList<Message> getMessagesByDate() {
+        return manager.getMessagesByDate();
+    }
+
+    /**
+     * The start keyword is in the message in the middle
+     */
+    @Benchmark
+    public ArrayList<Message> getMessagesByStartKeyword() {
+        return manager.getMessagesByStartKeyword(BenchmarkData.START_KEYWORD);
+    }
+}
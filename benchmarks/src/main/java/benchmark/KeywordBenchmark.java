@@ -0,0 +1,80 @@
+package benchmark;
+
+import message.Message;
+import message.MessageManager;
+import org.openjdk.jmh.annotations.*;
+import util.Settings;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures MessageManager.getMessagesByKeyword with literal
+ * keywords, multi-word search strings and regexes.
+ *
+ * @author Luciano Kholos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordBenchmark {
+    @Param({"10000", "100000"})
+    public int messageCount;
+
+    @Param({"16", "256"})
+    public int bodySize;
+
+    @Param({"1", "8"})
+    public int keywordCount;
+
+    @Param({"literal", "multiWord", "regex"})
+    public String keywordType;
+
+    private BenchmarkData data;
+    private MessageManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = new BenchmarkData(messageCount);
+
+        String input = data.writeInput(bodySize).toString();
+
+        List<String> words = data.keywords(keywordCount * 2);
+        List<String> config = new ArrayList<>();
+
+        for(int x = 0; x < keywordCount; x++) {
+            String word = words.get(x);
+
+            switch(keywordType) {
+                case "multiWord": // Both words have to be in the message
+                    config.add("search_keyword=" + word + " " + words.get(keywordCount + x));
+                    break;
+                case "regex":
+                    config.add("search_keyword=regex(" + word + "[a-z]*)");
+                    break;
+                default:
+                    config.add("search_keyword=" + word);
+            }
+        }
+
+        data.writeConfig(config);
+
+        Settings settings = new Settings(input, data.getDirectory().resolve("output.txt").toString(), null, false);
+        manager = BenchmarkData.load(settings);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        data.delete();
+    }
+
+    @Benchmark
+    public ArrayList<Message> getMessagesByKeyword() {
+        return manager.getMessagesByKeyword();
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import processing.JsonProcessingTool;
+import util.Settings;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures JsonProcessingTool.loadJsonMessages, with Gson and
+ * with the lazy parser.
+ *
+ * @author Luciano Kholos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+    @Param({"10000", "100000"})
+    public int messageCount;
+
+    @Param({"16", "256"})
+    public int bodySize;
+
+    @Param({"false", "true"})
+    public boolean lazyParsing;
+
+    private BenchmarkData data;
+    private Settings settings;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = new BenchmarkData(messageCount);
+
+        String input = data.writeInput(bodySize).toString();
+        data.writeConfig(Arrays.asList("lazy_parsing=" + lazyParsing));
+
+        settings = new Settings(input, data.getDirectory().resolve("output.txt").toString(), null, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        data.delete();
+    }
+
+    @Benchmark
+    public JsonProcessingTool loadJsonMessages() {
+        JsonProcessingTool tool = new JsonProcessingTool(settings);
+        tool.loadJsonMessages();
+
+        return tool;
+    }
+}
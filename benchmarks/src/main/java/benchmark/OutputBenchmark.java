@@ -0,0 +1,59 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import processing.JsonProcessingTool;
+import util.Settings;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures JsonProcessingTool.process writing every loaded
+ * message to the output file, as single-line and as pretty
+ * multi-line JSON.
+ *
+ * @author Luciano Kholos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputBenchmark {
+    @Param({"10000", "100000"})
+    public int messageCount;
+
+    @Param({"16", "256"})
+    public int bodySize;
+
+    @Param({"false", "true"})
+    public boolean multiLine;
+
+    private BenchmarkData data;
+    private JsonProcessingTool tool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = new BenchmarkData(messageCount);
+
+        String input = data.writeInput(bodySize).toString();
+        data.writeConfig(Arrays.asList("multi_line_output=" + multiLine));
+
+        // No filters, so every message is written
+        tool = new JsonProcessingTool(new Settings(input, data.getDirectory().resolve("output.txt").toString(), null, multiLine));
+        tool.loadJsonMessages();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        tool.close();
+        data.delete();
+    }
+
+    @Benchmark
+    public void process() throws IOException {
+        tool.process();
+    }
+}
@@ -0,0 +1,73 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import util.TimestampParser;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old SimpleDateFormat timestamp parsing
+ * with the TimestampParser.
+ *
+ * @author Luciano Kholos
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampParserBenchmark {
+    private static final int SAMPLES = 1024; // Power of two so the next sample can be picked with a mask
+
+    private String[] timestamps;
+    private byte[][] timestampBytes;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+
+        timestamps = new String[SAMPLES];
+        timestampBytes = new byte[SAMPLES][];
+
+        for(int x = 0; x < SAMPLES; x++) {
+            // Seconds up to 69 so some of them roll over like the ones in input.txt
+            timestamps[x] = String.format("%02d-%02d-%04d %02d:%02d:%02d", random.nextInt(12) + 1, random.nextInt(28) + 1,
+                    2015 + random.nextInt(10), random.nextInt(12) + 1, random.nextInt(60), random.nextInt(70));
+            timestampBytes[x] = timestamps[x].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The old Settings.rawToDate()
+     */
+    @Benchmark
+    public Date simpleDateFormat() {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(TimestampParser.FORMAT);
+
+        try {
+            return simpleDateFormat.parse(timestamps[next++ & (SAMPLES - 1)]);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public long timestampParser() {
+        return TimestampParser.parse(timestamps[next++ & (SAMPLES - 1)]);
+    }
+
+    /**
+     * Used by the LazyMessageParser, which never creates a String for the timestamp
+     */
+    @Benchmark
+    public long timestampParserBytes() {
+        byte[] timestamp = timestampBytes[next++ & (SAMPLES - 1)];
+        return TimestampParser.parse(timestamp, 0, timestamp.length);
+    }
+}
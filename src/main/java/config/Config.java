@@ -6,7 +6,13 @@ package config;
  * @author Luciano Kholos
  */
 public class Config {
-    private static final ConfigParser config = ConfigParser.load();
+    private static ConfigParser config = ConfigParser.load();
 
-    public static < T > T get(String key, Class<T> type) { return config.get(key, type); }
+    public static synchronized < T > T get(String key, Class<T> type) { return config.get(key, type); }
+
+    /**
+     * Reads the config file again, so every key can be read again
+     * with the values that are in the file now
+     */
+    public static synchronized void reload() { config = ConfigParser.load(); }
 }
\ No newline at end of file
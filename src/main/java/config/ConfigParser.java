@@ -18,7 +18,7 @@ public class ConfigParser {
      */
     private static LinkedHashMap<String, Boolean> configContent = new LinkedHashMap<>();
 
-    public static String filePath = System.getProperty("user.dir") + "\\config.txt"; //TODO: command line argument
+    public static String filePath = new File(System.getProperty("user.dir"), "config.txt").getPath(); // Replaced by the first command line argument
 
     private static final Logger LOGGER = Logger.getLogger(ConfigParser.class.getName());
 
@@ -31,6 +31,7 @@ public class ConfigParser {
      */
     public static ConfigParser load() {
         File file = new File(filePath);
+        configContent = new LinkedHashMap<>(); // Every line can be read again
 
         // Caches each line from text file to array
         try (BufferedReader reader = new BufferedReader(new FileReader(file))){
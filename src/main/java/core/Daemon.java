@@ -0,0 +1,212 @@
+package core;
+
+import config.Config;
+import config.ConfigParser;
+import util.Settings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The Daemon program keeps the tool running between runs, so
+ * the classes stay loaded and the JIT stays warm. It watches the
+ * config file and the directories of the input, and once either
+ * changes it reads the config into new Settings and runs the
+ * tool again. The files the tool writes itself are left out,
+ * so a run does not start the next one.
+ *
+ * @author Luciano Kholos
+ */
+public class Daemon implements Closeable {
+    private static final long QUIET_MILLIS = 100; // Editors often save a file in more than one write
+
+    private final WatchService watcher;
+
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    private Settings settings;
+
+    private Path configFile;
+    private final Set<Path> inputDirectories = new HashSet<>();
+    private final Set<String> written = new HashSet<>(); // Files the tool writes, along with the temporary files next to them
+
+    private static final Logger LOGGER = Logger.getLogger(Daemon.class.getName());
+
+    /**
+     * @param settings          settings of the first run
+     * @throws IOException      if the file system cannot be watched
+     */
+    public Daemon(Settings settings) throws IOException {
+        this.settings = settings;
+        this.watcher = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Runs the tool, then again every time the config or the input
+     * changes, until the thread is interrupted or the daemon is closed
+     */
+    public void run() {
+        try {
+            boolean valid = true; // False while the config cannot be read, the last settings are still watched
+
+            while(true) {
+                if(valid) {
+                    Main.run(settings);
+                }
+
+                watch();
+                LOGGER.info("Waiting for " + configFile.getFileName() + " or the input to change");
+
+                awaitChange();
+
+                Config.reload();
+                try {
+                    settings = Main.readSettings();
+                    valid = true;
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Failed to get values from config: " + e.getMessage());
+                    valid = false;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.severe("Could not watch the config and input files: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed by another thread
+        }
+    }
+
+    /**
+     * Watches the directories of the config file and of the input
+     * of the current settings, and stops watching any others
+     * @throws IOException      if a directory cannot be watched
+     */
+    private void watch() throws IOException {
+        configFile = absolute(ConfigParser.filePath);
+
+        inputDirectories.clear();
+        if(settings.isFileInput() && settings.getInputFilePath() != null) {
+            inputDirectories.add(absolute(settings.getInputFilePath()).getParent()); // Where a pattern looks for files
+
+            for(String file : settings.getInputFiles()) {
+                inputDirectories.add(absolute(file).getParent());
+            }
+        } else if(settings.getInputSource().equals("directory")) {
+            inputDirectories.add(absolute(settings.getInputFilePath()));
+        } else if(settings.getInputSource().equals("stdin")) {
+            LOGGER.warning("Only the config is watched, stdin is not read again");
+        }
+
+        written.clear();
+        for(String file : new String[] { settings.getOutputFilePath(), settings.getCheckpointFilePath(),
+                settings.getQuarantineFilePath(), settings.getMetricsReportPath(), settings.getSidecarFilePath(),
+                settings.getCacheDirectory() }) {
+            if(file != null) {
+                written.add(absolute(file).toString());
+            }
+        }
+
+        Set<Path> wanted = new HashSet<>(inputDirectories);
+        wanted.add(configFile.getParent());
+
+        for(Iterator<Map.Entry<WatchKey, Path>> it = directories.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<WatchKey, Path> set = it.next();
+
+            if(!wanted.remove(set.getValue())) {
+                set.getKey().cancel();
+                it.remove();
+            }
+        }
+
+        for(Path directory : wanted) {
+            WatchKey key = directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            directories.put(key, directory);
+        }
+    }
+
+    /**
+     * Waits for the config or the input to change, and then for
+     * the changes to stop for a moment
+     * @throws InterruptedException if the thread was interrupted
+     */
+    private void awaitChange() throws InterruptedException {
+        boolean changed = false;
+
+        while(!changed) {
+            changed = handle(watcher.take());
+        }
+
+        WatchKey key;
+        while((key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+            handle(key);
+        }
+    }
+
+    /**
+     * @param key       key with events
+     * @return          true if one of the events is a change to the config or the input
+     */
+    private boolean handle(WatchKey key) {
+        Path directory = directories.get(key);
+        boolean changed = false;
+
+        for(WatchEvent<?> event : key.pollEvents()) {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW) { // Events were lost
+                changed = true;
+            } else if(directory != null) {
+                changed |= isWatched(directory.resolve((Path) event.context()));
+            }
+        }
+
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * @param file      file that changed
+     * @return          true if it is the config file or part of the input
+     */
+    private boolean isWatched(Path file) {
+        if(file.equals(configFile)) {
+            return true;
+        }
+
+        if(!inputDirectories.contains(file.getParent()) || file.getFileName().toString().startsWith(".")) {
+            return false;
+        }
+
+        for(String path : written) {
+            if(file.toString().startsWith(path)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static Path absolute(String file) {
+        return Paths.get(file).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+    }
+}
@@ -1,7 +1,9 @@
 package core;
 
 import config.Config;
+import config.ConfigParser;
 import processing.JsonProcessingTool;
+import util.Metrics;
 import util.Settings;
 
 import java.io.IOException;
@@ -18,25 +20,115 @@ import java.util.logging.Logger;
 public class Main {
     private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
 
+    /**
+     * @param args      optional path of the config file, config.txt in the working directory otherwise
+     */
     public static void main(String[] args) {
-        long start = System.currentTimeMillis();
+        if(args.length > 0) { // Has to be set before the config is loaded
+            ConfigParser.filePath = args[0];
+        }
+
+        Settings settings;
+        try {
+            settings = readSettings();
+        } catch (IllegalArgumentException e) { // Nothing is run with a filter that was left out
+            LOGGER.severe("Failed to get values from config: " + e.getMessage());
+            return;
+        }
+
+        if(settings.getServerPort() > 0) { // Loads the input once and answers queries until it is stopped
+            serve(settings);
+            return;
+        }
 
-        JsonProcessingTool tool = new JsonProcessingTool(new Settings(
+        if(settings.isDaemon()) { // Stays running and runs again whenever the config or the input changes
+            try(Daemon daemon = new Daemon(settings)) {
+                daemon.run();
+            } catch (IOException e) {
+                LOGGER.severe("Could not watch the config and input files: " + e.getMessage());
+            }
+            return;
+        }
+
+        run(settings);
+    }
+
+    /**
+     * Reads the settings from the config as it is now
+     * @return      settings
+     * @throws IllegalArgumentException     if a field filter in the config cannot be read
+     */
+    static Settings readSettings() {
+        return new Settings(
                 Config.get("input_file", String.class),
                 Config.get("output_file", String.class),
                 Config.get("start_keyword", String.class),
                 Config.get("multi_line_output", Boolean.class)
-        ));
+        );
+    }
+
+    /**
+     * Loads the input and answers queries over HTTP. The server
+     * threads keep the JVM running, so this returns once it has started.
+     * @param settings      settings
+     */
+    static void serve(Settings settings) {
+        if(settings.getInputFiles().size() > 1) {
+            LOGGER.severe("server_port only works with a single input file");
+            return;
+        }
+
+        if(settings.isCollectMetrics()) {
+            Metrics.enable();
+        }
+
+        JsonProcessingTool tool = new JsonProcessingTool(settings);
+        tool.loadJsonMessages();
+
+        try {
+            new QueryServer(settings, tool.getManager(), settings.getServerPort()).start();
+        } catch (IOException e) {
+            LOGGER.severe("Could not listen on port " + settings.getServerPort() + ": " + e.getMessage());
+            tool.close();
+        }
+    }
+
+    /**
+     * Runs the tool once
+     * @param settings      settings
+     */
+    static void run(Settings settings) {
+        long start = System.currentTimeMillis();
+
+        if(settings.isCollectMetrics()) { // Before the filters are set up, so they get counted
+            Metrics.enable();
+        }
+
+        JsonProcessingTool tool = new JsonProcessingTool(settings);
 
         try {
-            tool.loadJsonMessages();
-            tool.process();
+            if(settings.getInputFiles().size() > 1) { // Filters every input file at the same time
+                tool.processFiles();
+            } else if(settings.isFollowInput()) { // Only reads what was added since the last run
+                tool.followJsonMessages();
+            } else if(settings.isStreaming()) { // Filters each message as it is read
+                tool.streamJsonMessages();
+            } else {
+                tool.loadJsonMessages();
+                tool.process();
+            }
         } catch (IOException e) {
             LOGGER.severe("Invalid File Path");
+        } finally {
+            tool.close();
+
+            if(settings.isCollectMetrics()) {
+                Metrics.writeReport(settings.getMetricsReportPath());
+            }
         }
 
         long stop = System.currentTimeMillis() - start;
 
         System.out.println("\n" + "Execution Time: " + stop / 1000.0 + " seconds");
     }
-}
\ No newline at end of file
+}
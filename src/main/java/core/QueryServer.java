@@ -0,0 +1,250 @@
+package core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import message.Message;
+import message.MessageManager;
+import processing.FilterPlan;
+import util.Settings;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The QueryServer program answers queries over HTTP from messages
+ * that were loaded once, so asking for another start/stop time or
+ * keyword does not read the input file again. A query takes the
+ * same filters as the config:
+ *
+ *   GET /query?start_time=07-01-2020 02:00:00&amp;search_keyword=hi&amp;limit=10
+ *
+ * start_time, stop_time, search_keyword and field_filter can be
+ * given more than once, and the start/stop times are paired up in
+ * the order they are given. The matches are sent as they are found,
+ * one JSON message per line. GET /status tells how many messages
+ * are loaded.
+ *
+ * The loaded messages and their indexes are only read, so queries
+ * run at the same time on the worker threads without any locks.
+ *
+ * @author Luciano Kholos
+ */
+public class QueryServer implements Closeable {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final Settings settings;
+    private final MessageManager manager;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private static final Logger LOGGER = Logger.getLogger(QueryServer.class.getName());
+
+    /**
+     * @param settings          settings the filters of each query are added to
+     * @param manager           loaded messages, nothing can be added to it after this
+     * @param port              port to listen on, 0 for any free one
+     * @throws IOException      if the port cannot be used
+     */
+    public QueryServer(Settings settings, MessageManager manager, int port) throws IOException {
+        this.settings = settings;
+        this.manager = manager.withSettings(settings); // Builds the indexes before they are shared
+
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newFixedThreadPool(settings.getWorkerThreads());
+
+        server.createContext("/query", this::query);
+        server.createContext("/status", this::status);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("Answering queries on port " + getPort() + " over " + manager.getMessages().size() + " message(s)");
+    }
+
+    /**
+     * @return      port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void query(HttpExchange exchange) throws IOException {
+        try {
+            if(!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+
+            Map<String, List<String>> parameters;
+            Settings query;
+            int limit;
+
+            try {
+                parameters = parameters(exchange.getRequestURI().getRawQuery());
+                query = settings.withFilters(
+                        get(parameters, "start_time"),
+                        get(parameters, "stop_time"),
+                        get(parameters, "search_keyword"),
+                        first(parameters, "start_keyword"),
+                        get(parameters, "field_filter"));
+                limit = limit(first(parameters, "limit"));
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+
+            // Only the filtered messages and compiled keywords belong to the query
+            MessageManager view = manager.withSettings(query);
+            FilterPlan.Run run = FilterPlan.compile(query, view, true).sample(view.getMessages()).newRun();
+
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0); // Sent as it is found
+
+            int found = 0;
+            try(Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE)) {
+                for(Message message : view.getMessages()) {
+                    if(found == limit) {
+                        break;
+                    }
+
+                    if(run.test(message)) {
+                        writer.write(message.getContent());
+                        writer.write('\n');
+                        found++;
+                    }
+                }
+            }
+        } catch (IOException e) { // The client went away
+            LOGGER.fine("Query was not sent: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void status(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = ("{\"messages\":" + manager.getMessages().size() + "}\n").getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+
+            try(OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String error) throws IOException {
+        byte[] body = (error + "\n").getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+
+        try(OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    /**
+     * Splits the query string of a request into its values
+     * @param rawQuery      query string, still encoded
+     * @return              every value of each name
+     */
+    private static Map<String, List<String>> parameters(String rawQuery) {
+        Map<String, List<String>> parameters = new HashMap<>();
+
+        if(rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+
+        for(String pair : rawQuery.split("&")) {
+            if(pair.isEmpty()) {
+                continue;
+            }
+
+            int split = pair.indexOf('=');
+            String name = decode(split < 0 ? pair : pair.substring(0, split));
+            String value = split < 0 ? "" : decode(pair.substring(split + 1));
+
+            parameters.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+
+        return parameters;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) { // Every JVM has UTF-8
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> get(Map<String, List<String>> parameters, String name) {
+        List<String> values = parameters.get(name);
+        return values == null ? Collections.<String>emptyList() : values;
+    }
+
+    private static String first(Map<String, List<String>> parameters, String name) {
+        List<String> values = parameters.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    /**
+     * @param value     raw limit, null for none
+     * @return          most matches to send, -1 for every one
+     */
+    private static int limit(String value) {
+        if(value == null || value.isEmpty()) {
+            return -1;
+        }
+
+        try {
+            int limit = Integer.parseInt(value.trim());
+
+            if(limit < 0) {
+                throw new NumberFormatException();
+            }
+
+            return limit;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid limit [" + value + "], it has to be 0 or more");
+        }
+    }
+
+    /**
+     * Stops answering queries, letting the ones that are running finish
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
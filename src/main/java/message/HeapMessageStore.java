@@ -0,0 +1,37 @@
+package message;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps the messages on the heap as they are.
+ *
+ * @author Luciano Kholos
+ */
+public class HeapMessageStore implements MessageStore {
+    private final ArrayList<Message> messages = new ArrayList<>();
+
+    @Override
+    public void add(Message message) {
+        messages.add(message);
+    }
+
+    @Override
+    public Message get(int id) {
+        return messages.get(id);
+    }
+
+    @Override
+    public long getTimestamp(int id) {
+        return messages.get(id).getTimestamp();
+    }
+
+    @Override
+    public int size() {
+        return messages.size();
+    }
+
+    @Override
+    public void close() {
+        messages.clear();
+    }
+}
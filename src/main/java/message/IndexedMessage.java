@@ -0,0 +1,31 @@
+package message;
+
+import util.JsonText;
+
+/**
+ * A message that is only known by where it is in the input file,
+ * from a SidecarIndex or a cached result. Its bytes are read from
+ * the input file when its content is asked for. It has no tokens,
+ * the filters have already been answered without them.
+ *
+ * @author Luciano Kholos
+ */
+class IndexedMessage extends Message {
+    private final MessageFile file;
+
+    IndexedMessage(MessageFile file, int id, long timestamp) {
+        super(timestamp);
+        this.file = file;
+        setId(id);
+    }
+
+    @Override
+    public String getContent() {
+        return JsonText.compact(getRaw());
+    }
+
+    @Override
+    byte[] getRaw() {
+        return file.read(getOffset(), getLength());
+    }
+}
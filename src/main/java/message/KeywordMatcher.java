@@ -0,0 +1,330 @@
+package message;
+
+import util.IntList;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The KeywordMatcher program checks a message against every
+ * search keyword at once. The words of the keywords and search
+ * strings are compiled into a single Aho-Corasick automaton, so
+ * the regex content is read once no matter how many keywords
+ * there are. The regexes are joined into a single alternation.
+ * A matcher keeps scratch state between calls, so each thread
+ * needs its own.
+ *
+ * @author Luciano Kholos
+ */
+public class KeywordMatcher {
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\(?:[1-9]|k<)");
+
+    // Automaton, one row of transitions per state
+    private final int[] transitions;
+    private final int classes; // Size of a row, class 0 is every character that is not in a word
+    private final int[] asciiClasses = new int[128];
+    private final char[] otherChars; // Sorted non-ASCII characters of the words
+    private final int[] otherClasses;
+    private final int[][] outputs; // Ids of the words that end at each state
+
+    private final int[] wordLengths;
+    private final boolean[] singleWords; // True if a word is a whole keyword by itself
+    private final int[][] searchStrings; // Word ids of every keyword with more than one word
+    private final int[] seen; // Scan that each word was last found in
+    private int scan = 0;
+
+    private final List<Matcher> regexes = new ArrayList<>(); // A single alternation unless it could not be compiled
+
+    /**
+     * @param keywords      keywords and search strings
+     * @param regexes       regexes without the regex( )
+     * @throws PatternSyntaxException   if one of the regexes is not valid
+     */
+    public KeywordMatcher(Collection<String> keywords, Collection<String> regexes) {
+        HashMap<String, Integer> words = new HashMap<>();
+        List<Boolean> single = new ArrayList<>();
+        List<int[]> strings = new ArrayList<>();
+
+        for(String keyword : keywords) {
+            if(!keyword.contains(" ")) {
+                int id = wordId(keyword, words, single);
+                single.set(id, true);
+                continue;
+            }
+
+            String[] args = keyword.split(" ");
+            int[] ids = new int[args.length];
+            boolean possible = true;
+
+            for(int x = 0; x < args.length; x++) {
+                if(args[x].isEmpty()) { // Messages never have empty tokens
+                    possible = false;
+                    break;
+                }
+
+                ids[x] = wordId(args[x], words, single);
+            }
+
+            if(possible) {
+                strings.add(ids);
+            }
+        }
+
+        String[] wordList = new String[words.size()];
+        for(Map.Entry<String, Integer> set : words.entrySet()) {
+            wordList[set.getValue()] = set.getKey();
+        }
+
+        this.wordLengths = new int[wordList.length];
+        this.singleWords = new boolean[wordList.length];
+        for(int x = 0; x < wordList.length; x++) {
+            wordLengths[x] = wordList[x].length();
+            singleWords[x] = single.get(x);
+        }
+
+        this.searchStrings = strings.toArray(new int[0][]);
+        this.seen = new int[wordList.length];
+
+        // Every character that shows up in a word gets its own class
+        TreeSet<Character> other = new TreeSet<>();
+        int next = 1;
+        for(String word : wordList) {
+            for(int x = 0; x < word.length(); x++) {
+                char c = word.charAt(x);
+
+                if(c < 128) {
+                    if(asciiClasses[c] == 0) {
+                        asciiClasses[c] = next++;
+                    }
+                } else {
+                    other.add(c);
+                }
+            }
+        }
+
+        this.otherChars = new char[other.size()];
+        this.otherClasses = new int[other.size()];
+        int index = 0;
+        for(char c : other) {
+            otherChars[index] = c;
+            otherClasses[index++] = next++;
+        }
+
+        this.classes = next;
+
+        // Trie of the words
+        List<int[]> rows = new ArrayList<>();
+        List<IntList> ends = new ArrayList<>();
+        rows.add(newRow());
+        ends.add(new IntList(1));
+
+        for(int x = 0; x < wordList.length; x++) {
+            int state = 0;
+
+            for(int y = 0; y < wordList[x].length(); y++) {
+                int c = classOf(wordList[x].charAt(y));
+
+                if(rows.get(state)[c] < 0) {
+                    rows.get(state)[c] = rows.size();
+                    rows.add(newRow());
+                    ends.add(new IntList(1));
+                }
+
+                state = rows.get(state)[c];
+            }
+
+            ends.get(state).add(x);
+        }
+
+        // Turns the trie into an automaton by following the failure links breadth first
+        int states = rows.size();
+        int[] fail = new int[states];
+        this.transitions = new int[states * classes];
+        this.outputs = new int[states][];
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+
+        while(!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] row = rows.get(state);
+
+            IntList found = ends.get(state);
+            if(state != 0 && outputs[fail[state]] != null) {
+                for(int id : outputs[fail[state]]) {
+                    found.add(id);
+                }
+            }
+            outputs[state] = found.isEmpty() ? null : found.toArray();
+
+            for(int c = 0; c < classes; c++) {
+                int target = row[c];
+
+                if(target > 0 && c > 0) {
+                    fail[target] = state == 0 ? 0 : transitions[fail[state] * classes + c];
+                    transitions[state * classes + c] = target;
+                    queue.add(target);
+                } else {
+                    transitions[state * classes + c] = state == 0 || c == 0 ? 0 : transitions[fail[state] * classes + c];
+                }
+            }
+        }
+
+        compileRegexes(regexes);
+    }
+
+    /**
+     * @return      true if there are any regexes to match
+     */
+    public boolean hasRegexes() {
+        return !regexes.isEmpty();
+    }
+
+    /**
+     * Determines whether or not a message contains any of the
+     * keywords or matches any of the regexes
+     * @param message       message to check
+     * @return              true if anything matched
+     */
+    public boolean matches(Message message) {
+        return matchesKeywords(message.getRegexContent()) || matchesRegexes(message.getRegexContent());
+    }
+
+    /**
+     * Scans the regex content once for every keyword and search string.
+     * A word only counts if it is a whole token.
+     * @param content       regex content of a message
+     * @return              true if a keyword or every word of a search string was found
+     */
+    public boolean matchesKeywords(String content) {
+        if(wordLengths.length == 0) {
+            return false;
+        }
+
+        if(++scan == 0) { // Wrapped around, so old scans could look like this one
+            Arrays.fill(seen, -1);
+            scan = 1;
+        }
+
+        int state = 0;
+        int length = content.length();
+
+        for(int x = 0; x < length; x++) {
+            state = transitions[state * classes + classOf(content.charAt(x))];
+
+            int[] ids = outputs[state];
+            if(ids == null || (x + 1 < length && content.charAt(x + 1) != ' ')) {
+                continue;
+            }
+
+            for(int id : ids) {
+                int start = x + 1 - wordLengths[id];
+
+                if(start == 0 || content.charAt(start - 1) == ' ') {
+                    if(singleWords[id]) {
+                        return true;
+                    }
+
+                    seen[id] = scan;
+                }
+            }
+        }
+
+        for(int[] ids : searchStrings) {
+            boolean valid = true;
+
+            for(int id : ids) {
+                if(seen[id] != scan) {
+                    valid = false;
+                    break;
+                }
+            }
+
+            if(valid) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param content       regex content of a message
+     * @return              true if any of the regexes was found
+     */
+    public boolean matchesRegexes(String content) {
+        for(Matcher matcher : regexes) {
+            if(matcher.reset(content).find()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Joins the regexes into a single alternation. Back references
+     * and named groups would change meaning once the groups of several
+     * regexes are put together, so those are kept separate.
+     */
+    private void compileRegexes(Collection<String> values) {
+        List<Pattern> patterns = new ArrayList<>();
+        StringBuilder alternation = new StringBuilder();
+        boolean separate = false;
+
+        for(String value : values) {
+            patterns.add(Pattern.compile(value));
+
+            if(BACK_REFERENCE.matcher(value).find()) {
+                separate = true;
+            }
+
+            if(alternation.length() > 0) {
+                alternation.append('|');
+            }
+            alternation.append("(?:").append(value).append(')');
+        }
+
+        if(patterns.size() > 1 && !separate) {
+            try {
+                regexes.add(Pattern.compile(alternation.toString()).matcher(""));
+                return;
+            } catch (PatternSyntaxException e) {
+                // Falls through to one matcher per regex
+            }
+        }
+
+        for(Pattern pattern : patterns) {
+            regexes.add(pattern.matcher(""));
+        }
+    }
+
+    private int[] newRow() {
+        int[] row = new int[classes];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private int classOf(char c) {
+        if(c < 128) {
+            return asciiClasses[c];
+        }
+
+        int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? 0 : otherClasses[index];
+    }
+
+    private static int wordId(String word, HashMap<String, Integer> words, List<Boolean> single) {
+        Integer id = words.get(word);
+
+        if(id == null) {
+            id = words.size();
+            words.put(word, id);
+            single.add(false);
+        }
+
+        return id;
+    }
+}
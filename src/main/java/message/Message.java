@@ -1,5 +1,8 @@
 package message;
 
+import util.JsonText;
+import util.TimestampParser;
+
 import java.util.Date;
 import java.util.List;
 
@@ -9,22 +12,70 @@ import java.util.List;
  * @author Luciano Kholos
  */
 public class Message {
+    public static final long NO_TIMESTAMP = TimestampParser.INVALID; // Used when the timestamp could not be parsed
+
     private String content; // Contains the raw message
+    private byte[] raw; // UTF-8 bytes of the message, only used when content has not been created yet
     private String regexContent; // Content used when dealing with regex (basically the same as args but in the form of a single string)
     private List<String> args; // List containing a splitted version of the raw message
-    private Date date;  // Contains the timestamp
+    private final long timestamp; // Timestamp in epoch milliseconds, the Date is only created when it is asked for
+    private int id = -1; // Position of the message in the input file, set by the MessageManager
+
+    // Bytes of the message in the input file
+    private long offset = -1;
+    private int length;
+    private boolean newline; // True if the message is followed by a newline in the input file
+    private boolean singleLine; // Only a message on a single line can be copied to the output as it is
+
+    /**
+     * Used by messages that create their content when it is asked for
+     * @param timestamp         timestamp in epoch milliseconds
+     */
+    Message(long timestamp) {
+        this.timestamp = timestamp;
+    }
 
     public Message(String content, String regexContent, List<String> args, Date date) {
+        this(content, regexContent, args, date == null ? NO_TIMESTAMP : date.getTime());
+    }
+
+    public Message(String content, String regexContent, List<String> args, long timestamp) {
         this.content = content;
         this.regexContent = regexContent;
         this.args = args;
-        this.date = date;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * The content is created from the raw bytes each
+     * time it is needed, so it is not kept in memory.
+     * @param raw               UTF-8 bytes of the raw message
+     * @param regexContent      content used when dealing with regex
+     * @param args              splitted version of the raw message
+     * @param timestamp         timestamp in epoch milliseconds
+     */
+    public Message(byte[] raw, String regexContent, List<String> args, long timestamp) {
+        this.raw = raw;
+        this.regexContent = regexContent;
+        this.args = args;
+        this.timestamp = timestamp;
     }
 
     public String getContent() {
+        if(content == null) {
+            return JsonText.compact(raw);
+        }
+
         return content;
     }
 
+    /**
+     * @return      UTF-8 bytes of the raw message or null if the content was kept instead
+     */
+    byte[] getRaw() {
+        return raw;
+    }
+
     public String getRegexContent() {
         return regexContent;
     }
@@ -34,6 +85,71 @@ public class Message {
     }
 
     public Date getDate() {
-        return date;
+        return timestamp == NO_TIMESTAMP ? null : new Date(timestamp);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Remembers where the message is in the input file,
+     * so its original bytes can be copied to the output
+     * @param offset        position of the first byte of the message
+     * @param length        bytes in the message
+     * @param newline       true if the message is followed by a newline
+     */
+    public void setSpan(long offset, int length, boolean newline) {
+        this.offset = offset;
+        this.length = length;
+        this.newline = newline;
+        this.singleLine = true;
+    }
+
+    /**
+     * Remembers where a message that is spread over several
+     * lines is in the input file, so it can be found again
+     * @param offset        position of the first byte of the message
+     * @param length        bytes in the message
+     */
+    public void setLocation(long offset, int length) {
+        this.offset = offset;
+        this.length = length;
+        this.newline = false;
+        this.singleLine = false;
+    }
+
+    /**
+     * @return      true if the bytes of the message in the input file are known and on a single line
+     */
+    public boolean hasSpan() {
+        return offset >= 0 && singleLine;
+    }
+
+    /**
+     * @return      true if the bytes of the message in the input file are known
+     */
+    public boolean hasLocation() {
+        return offset >= 0;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public boolean isFollowedByNewline() {
+        return newline;
     }
 }
\ No newline at end of file
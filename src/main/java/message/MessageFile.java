@@ -0,0 +1,88 @@
+package message;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The MessageFile program gets messages straight out of the input
+ * file by where they are in it, without reading anything else. The
+ * bytes of a message are only read once its content is asked for,
+ * so copying it with the zero-copy output never reads them at all.
+ * Where a message is can be kept as an offset, a length and flags.
+ *
+ * @author Luciano Kholos
+ */
+public class MessageFile implements Closeable {
+    public static final byte FOLLOWED_BY_NEWLINE = 1;
+    public static final byte SINGLE_LINE = 2;
+
+    private final FileChannel channel;
+
+    /**
+     * @param inputFilePath     input file
+     * @throws IOException      if the input file cannot be opened
+     */
+    public MessageFile(String inputFilePath) throws IOException {
+        this.channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ);
+    }
+
+    /**
+     * @param message       message with a location
+     * @return              flags that getMessage needs to set the location back
+     */
+    public static byte flags(Message message) {
+        return (byte) ((message.isFollowedByNewline() ? FOLLOWED_BY_NEWLINE : 0) | (message.hasSpan() ? SINGLE_LINE : 0));
+    }
+
+    /**
+     * @param id            message id
+     * @param timestamp     timestamp of the message
+     * @param offset        position of the message in the input file
+     * @param length        bytes in the message
+     * @param flags         what flags returned for the message
+     * @return              message that reads its bytes when its content is needed
+     */
+    public Message getMessage(int id, long timestamp, long offset, int length, byte flags) {
+        IndexedMessage message = new IndexedMessage(this, id, timestamp);
+
+        if((flags & SINGLE_LINE) != 0) {
+            message.setSpan(offset, length, (flags & FOLLOWED_BY_NEWLINE) != 0);
+        } else {
+            message.setLocation(offset, length);
+        }
+
+        return message;
+    }
+
+    /**
+     * @param offset        position in the input file
+     * @param length        bytes to read
+     * @return              bytes of the input file
+     */
+    byte[] read(long offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer target = ByteBuffer.wrap(bytes);
+
+        try {
+            while(target.hasRemaining()) {
+                if(channel.read(target, offset + target.position()) < 0) {
+                    throw new IOException("Input file is shorter than the messages that were found in it");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
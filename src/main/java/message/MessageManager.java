@@ -1,7 +1,11 @@
 package message;
 
+import util.FieldFilter;
+import util.IntList;
 import util.Settings;
+import util.TimeRange;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -15,63 +19,133 @@ import java.util.regex.Pattern;
 public class MessageManager {
     private final Settings settings;
 
-    private ArrayList<Message> messages = new ArrayList<>();
+    private final MessageStore store; // Every message by id, not changed by the filters
+
+    private final List<Message> loadedMessages; // The store as a list
+
+    private List<Message> messages; // Messages that are left after the filters
+
+    private final TokenIndex index;
+
+    private TimestampIndex timestampIndex; // Built the first time it is needed
+
+    private boolean filtered = false; // True once the messages have been replaced by a filter
+
+    private final HashMap<String, Pattern> patterns = new HashMap<>(); // Compiled regex keywords
+
+    private KeywordMatcher keywordMatcher; // Every search keyword compiled together, built the first time it is needed
 
     public MessageManager(Settings settings) {
+        this(settings, new HeapMessageStore());
+    }
+
+    public MessageManager(Settings settings, MessageStore store) {
+        this(settings, store, new TokenIndex(), null);
+    }
+
+    private MessageManager(Settings settings, MessageStore store, TokenIndex index, TimestampIndex timestampIndex) {
         this.settings = settings;
+        this.store = store;
+        this.index = index;
+        this.timestampIndex = timestampIndex;
+
+        this.loadedMessages = new AbstractList<Message>() {
+            @Override
+            public Message get(int id) {
+                return store.get(id);
+            }
+
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
+        this.messages = loadedMessages;
+    }
+
+    /**
+     * Makes a manager for other filters over the same loaded
+     * messages. The messages and indexes are shared, not copied,
+     * so nothing can be added to either manager after this.
+     * Each manager keeps its own filtered messages and compiled
+     * keywords, so any number of them can filter at the same time.
+     * @param settings      settings with the other filters
+     * @return              manager over the same messages
+     */
+    public MessageManager withSettings(Settings settings) {
+        return new MessageManager(settings, store, index, getTimestampIndex());
     }
 
     public void addMessage(Message message) {
-        this.messages.add(message);
+        message.setId(store.size());
+        index.add(message.getId(), message.getArgs());
+        timestampIndex = null;
+
+        store.add(message);
     }
 
     /**
      * This method will get all the messages after the start
-     * Date and before the end Date.
+     * Date and before the end Date. Overlapping start/stop
+     * times are merged, and each one is answered by two
+     * binary searches over the sorted timestamps.
      * @return              all messages between start and end Dates
      */
     public ArrayList<Message> getMessagesByDate() {
-        ArrayList<Message> startStopMessages = new ArrayList<>();
-
-        for(Map.Entry<Date, Date> set : settings.getTimestampsMap().entrySet()) {
-            Date start = set.getKey();
-            Date end = set.getValue();
+        return toMessages(getTimestampIndex().lookup(settings.getTimeRanges()));
+    }
 
-            if(settings.getTimestampsMap().size() == 1) {
-                if(start == null && end == null) {
-                    return null;
-                }
+    /**
+     * Gets the ids of every loaded message that is
+     * between any of the start and end Dates.
+     * @return      message ids
+     */
+    public BitSet getIdsByDate() {
+        return toBits(getTimestampIndex().lookup(settings.getTimeRanges()));
+    }
 
-                if(start == null) {
-                    for(Message message : messages) {
-                        if(message.getDate().before(end) || message.getDate().equals(end)) {
-                            startStopMessages.add(message);
-                        }
-                    }
+    /**
+     * Gets the ids of every loaded message that contains any of the
+     * search keywords. Regexes are not included, they are checked
+     * one message at a time by matchesRegexKeyword.
+     * @return      message ids
+     */
+    public BitSet getIdsByKeyword() {
+        BitSet ids = new BitSet(loadedMessages.size());
 
-                    return startStopMessages;
+        for(Map.Entry<String, Boolean> set : settings.getSearchKeywordMap().entrySet()) {
+            if(set.getValue() == false) {
+                for(int id : index.lookup(set.getKey())) {
+                    ids.set(id);
                 }
+            }
+        }
 
-                if(end == null) {
-                    for(Message message : messages) {
-                        if(message.getDate().after(start) || message.getDate().equals(start)) {
-                            startStopMessages.add(message);
-                        }
-                    }
+        return ids;
+    }
 
-                    return startStopMessages;
-                }
-            }
+    private TimestampIndex getTimestampIndex() {
+        if(timestampIndex == null) {
+            long[] timestamps = new long[store.size()];
 
-            for(Message message : messages) {
-                if((message.getDate().after(start) && message.getDate().before(end)) || (message.getDate().toString().equals(start.toString()) || message.getDate().toString().equals(end.toString()))) {
-                    startStopMessages.add(message);
-                }
+            for(int id = 0; id < timestamps.length; id++) {
+                timestamps[id] = store.getTimestamp(id);
             }
+
+            timestampIndex = new TimestampIndex(timestamps);
         }
 
+        return timestampIndex;
+    }
+
+    private BitSet toBits(int[] ids) {
+        BitSet bits = new BitSet(loadedMessages.size());
 
-        return startStopMessages;
+        for(int id : ids) {
+            bits.set(id);
+        }
+
+        return bits;
     }
 
     /**
@@ -150,63 +224,217 @@ public class MessageManager {
     /**
      * This method will filter out an array
      * of messages based on the specified keyword.
+     * Keywords and search strings are looked up in
+     * the token index. All the regexes are matched
+     * together in a single pass over the messages.
      * @return              ArrayList of filtered messages
      */
     public ArrayList<Message> getMessagesByKeyword() {
-        ArrayList<Message> keywordMessages = new ArrayList<>();
+        List<int[]> matches = new ArrayList<>();
 
         for(Map.Entry<String, Boolean> set : settings.getSearchKeywordMap().entrySet()) {
-            String keyword = set.getKey();
-
-            if(set.getValue() == true) { // its a regex -> handle it
-                // Handle regex (if present)
-                if(settings.isSearchRegexActive()) {
-                    String regex = extractRegex(keyword);
-                    Pattern p = Pattern.compile(regex);
-                    Matcher m = p.matcher("");
-
-                    for(Message message : messages) {
-                        if(m.reset(message.getRegexContent()).find()) {
-                            keywordMessages.add(message);
-                        }
-                    }
+            if(set.getValue() == false) { // its not a regex (it could be a single string or search string) -> look it up
+                matches.add(index.lookup(set.getKey()));
+            }
+        }
+
+        // Handle regex (if present)
+        KeywordMatcher matcher = getKeywordMatcher();
+        if(matcher.hasRegexes()) {
+            IntList ids = new IntList();
+
+            for(Message message : messages) {
+                if(matcher.matchesRegexes(message.getRegexContent())) {
+                    ids.add(message.getId());
                 }
-            } else { // its not a regex (it could be a single string or search string) -> handle it
-                if(keyword.contains(" ")) { // Handle search strings
-                    String[] args = keyword.split(" ");
-
-                    boolean valid = false;
-                    for(Message message : messages) {
-                        for(String arg : args) {
-                            if(message.getArgs().contains(arg)) {
-                                valid = true;
-                            } else {
-                                valid = false;
-                                break;
-                            }
-                        }
-
-                        if(valid) {
-                            keywordMessages.add(message);
-                            valid = false;
-                        }
-                    }
-                } else { // Handle keywords without whitespace
-                    for(Message message : messages) {
-                        if(message.getArgs().contains(keyword)) {
-                            keywordMessages.add(message);
-                        }
-                    }
+            }
+
+            int[] sorted = ids.toArray();
+            Arrays.sort(sorted);
+            matches.add(sorted);
+        }
+
+        // The union is sorted and has no duplicates
+        return toMessages(TokenIndex.union(matches));
+    }
+
+    /**
+     * Converts sorted message ids into messages. Once the messages
+     * have been filtered, only the ones that are still left are kept.
+     * @param ids       sorted message ids
+     * @return          the messages in their current order
+     */
+    private ArrayList<Message> toMessages(int[] ids) {
+        ArrayList<Message> result = new ArrayList<>(ids.length);
+
+        if(!filtered) {
+            for(int id : ids) {
+                result.add(loadedMessages.get(id));
+            }
+
+            return result;
+        }
+
+        BitSet bits = toBits(ids);
+
+        for(Message message : messages) {
+            if(bits.get(message.getId())) {
+                result.add(message);
+                bits.clear(message.getId());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Determines whether or not a single message is
+     * between any of the start and end Dates.
+     * @param message       message to check
+     * @return              true if the message is within a start/stop time
+     */
+    public boolean isWithinDates(Message message) {
+        long timestamp = message.getTimestamp();
+
+        if(timestamp == Message.NO_TIMESTAMP) {
+            return false;
+        }
+
+        // Finds the last range that starts at or before the timestamp
+        List<TimeRange> ranges = settings.getTimeRanges();
+        int low = 0;
+        int high = ranges.size() - 1;
+
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+
+            if(ranges.get(middle).getStart() <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return high >= 0 && ranges.get(high).contains(timestamp);
+    }
+
+    /**
+     * Determines whether or not a single message
+     * contains the startKeyword.
+     * @param startKeyword      keyword used to filter messages
+     * @param message           message to check
+     * @return                  true if the message contains the startKeyword
+     */
+    public boolean matchesStartKeyword(String startKeyword, Message message) {
+        if(settings.isStartRegexActive()) {
+            return getPattern(startKeyword).matcher(message.getRegexContent()).find();
+        }
+
+        return containsKeyword(startKeyword, message);
+    }
+
+    /**
+     * Determines whether or not a single message
+     * contains any of the search keywords.
+     * @param message       message to check
+     * @return              true if the message contains a search keyword
+     */
+    public boolean matchesKeyword(Message message) {
+        return getKeywordMatcher().matches(message);
+    }
+
+    /**
+     * Determines whether or not a single message
+     * matches any of the search keyword regexes.
+     * @param message       message to check
+     * @return              true if the message matches a regex
+     */
+    public boolean matchesRegexKeyword(Message message) {
+        return getKeywordMatcher().matchesRegexes(message.getRegexContent());
+    }
+
+    /**
+     * Determines whether or not a single message passes
+     * every field filter. The fields are read straight from
+     * the raw JSON, without the tokens of the message.
+     * @param message       message to check
+     * @return              true if the message passes every field filter
+     */
+    public boolean matchesFields(Message message) {
+        byte[] json = message.getRaw();
+
+        if(json == null) { // Only the content was kept
+            json = message.getContent().getBytes(StandardCharsets.UTF_8);
+        }
+
+        for(FieldFilter filter : settings.getFieldFilters()) {
+            if(!filter.matches(json)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Compiles every search keyword into a single matcher
+     * @return      matcher for all the search keywords
+     */
+    private KeywordMatcher getKeywordMatcher() {
+        if(keywordMatcher == null) {
+            List<String> keywords = new ArrayList<>();
+            List<String> regexes = new ArrayList<>();
+
+            for(Map.Entry<String, Boolean> set : settings.getSearchKeywordMap().entrySet()) {
+                if(set.getValue() == true) { // its a regex
+                    regexes.add(extractRegex(set.getKey()));
+                } else {
+                    keywords.add(set.getKey());
                 }
             }
+
+            keywordMatcher = new KeywordMatcher(keywords, regexes);
         }
 
-        // Removes duplicates
-        Set<Message> set = new LinkedHashSet<>(keywordMessages);
-        keywordMessages.clear();
-        keywordMessages.addAll(set);
+        return keywordMatcher;
+    }
 
-        return keywordMessages;
+    /**
+     * Determines whether or not a message contains a keyword
+     * or every word of a search string.
+     * @param keyword       keyword or search string
+     * @param message       message to check
+     * @return              true if the message contains the keyword
+     */
+    private boolean containsKeyword(String keyword, Message message) {
+        if(!keyword.contains(" ")) {
+            return message.getArgs().contains(keyword);
+        }
+
+        for(String arg : keyword.split(" ")) {
+            if(!message.getArgs().contains(arg)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the compiled regex of a raw value. Each
+     * regex is only compiled once.
+     * @param value        raw regex
+     * @return             compiled regex
+     */
+    private Pattern getPattern(String value) {
+        Pattern pattern = patterns.get(value);
+
+        if(pattern == null) {
+            pattern = Pattern.compile(extractRegex(value));
+            patterns.put(value, pattern);
+        }
+
+        return pattern;
     }
 
     /**
@@ -221,12 +449,26 @@ public class MessageManager {
         return value.substring(0, value.length() - 1);
     }
 
-    public ArrayList<Message> getMessages() {
+    /**
+     * @return      tokens of every loaded message
+     */
+    TokenIndex getTokenIndex() {
+        return index;
+    }
+
+    public List<Message> getMessages() {
         return this.messages;
     }
 
     public void updateMessages(ArrayList<Message> messages) {
-        this.messages.clear();
-        this.messages.addAll(messages);
+        this.filtered = true;
+        this.messages = new ArrayList<>(messages);
+    }
+
+    /**
+     * Frees the messages held by the store
+     */
+    public void close() {
+        store.close();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package message;
+
+import java.io.Closeable;
+
+/**
+ * Keeps every loaded message by id. Ids are handed
+ * out in the order the messages are added.
+ *
+ * @author Luciano Kholos
+ */
+public interface MessageStore extends Closeable {
+    /**
+     * Adds a message. Its id has to be the current size.
+     * @param message       message to add
+     */
+    void add(Message message);
+
+    /**
+     * @param id        message id
+     * @return          the message with the id
+     */
+    Message get(int id);
+
+    /**
+     * @param id        message id
+     * @return          timestamp of the message, without having to get the message
+     */
+    long getTimestamp(int id);
+
+    int size();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,180 @@
+package message;
+
+import util.IntList;
+import util.LongList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The OffHeapMessageStore program keeps the bytes of every message
+ * outside of the heap, either in direct buffers or in a memory-mapped
+ * temporary file. On the heap each message is only a few primitives:
+ * where its bytes are, its timestamp and its span in the input file.
+ * Getting a message returns a small view that creates the content,
+ * regex content and tokens only when they are asked for.
+ *
+ * @author Luciano Kholos
+ */
+public class OffHeapMessageStore implements MessageStore {
+    private static final int BLOCK_SIZE = 64 * 1024 * 1024;
+
+    private final boolean mapped;
+
+    private final Function<byte[], Message> decoder; // Turns stored bytes back into a Message with tokens
+
+    private final List<ByteBuffer> blocks = new ArrayList<>();
+    private ByteBuffer current; // Block that is being filled
+
+    // Only used when the blocks are mapped
+    private Path path;
+    private FileChannel file;
+    private long fileSize = 0;
+
+    // Per message
+    private final LongList addresses = new LongList(); // Block in the high 32 bits, position in the low 32 bits
+    private final IntList lengths = new IntList();
+    private final BitSet raw = new BitSet(); // Set if the bytes are the raw input, otherwise they are the content
+    private final LongList timestamps = new LongList();
+    private final LongList spanOffsets = new LongList();
+    private final IntList spanLengths = new IntList();
+    private final BitSet newlines = new BitSet();
+    private final BitSet multiLines = new BitSet(); // Set if the span is a location spread over several lines
+
+    /**
+     * @param mapped        true to keep the bytes in a memory-mapped temporary file instead of direct buffers
+     * @param decoder       parses stored bytes into a Message with tokens
+     */
+    public OffHeapMessageStore(boolean mapped, Function<byte[], Message> decoder) {
+        this.mapped = mapped;
+        this.decoder = decoder;
+    }
+
+    @Override
+    public void add(Message message) {
+        int id = size();
+        byte[] bytes = message.getRaw();
+
+        if(bytes == null) {
+            bytes = message.getContent().getBytes(StandardCharsets.UTF_8);
+        } else {
+            raw.set(id);
+        }
+
+        if(current == null || current.remaining() < bytes.length) {
+            current = allocate(Math.max(BLOCK_SIZE, bytes.length));
+            blocks.add(current);
+        }
+
+        addresses.add(((long) (blocks.size() - 1) << 32) | current.position());
+        lengths.add(bytes.length);
+        current.put(bytes);
+
+        timestamps.add(message.getTimestamp());
+        spanOffsets.add(message.hasLocation() ? message.getOffset() : -1);
+        spanLengths.add(message.getLength());
+        newlines.set(id, message.isFollowedByNewline());
+        multiLines.set(id, message.hasLocation() && !message.hasSpan());
+    }
+
+    @Override
+    public Message get(int id) {
+        StoredMessage message = new StoredMessage(this, id, timestamps.get(id));
+
+        if(multiLines.get(id)) {
+            message.setLocation(spanOffsets.get(id), spanLengths.get(id));
+        } else if(spanOffsets.get(id) >= 0) {
+            message.setSpan(spanOffsets.get(id), spanLengths.get(id), newlines.get(id));
+        }
+
+        return message;
+    }
+
+    @Override
+    public long getTimestamp(int id) {
+        return timestamps.get(id);
+    }
+
+    @Override
+    public int size() {
+        return lengths.size();
+    }
+
+    /**
+     * Copies the stored bytes of a message back onto the heap
+     * @param id        message id
+     * @return          bytes of the message
+     */
+    byte[] getBytes(int id) {
+        long address = addresses.get(id);
+        byte[] bytes = new byte[lengths.get(id)];
+
+        ByteBuffer block = blocks.get((int) (address >>> 32)).duplicate();
+        block.position((int) address);
+        block.get(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * @param id        message id
+     * @return          true if the stored bytes are the raw input instead of the content
+     */
+    boolean isRaw(int id) {
+        return raw.get(id);
+    }
+
+    /**
+     * @param id        message id
+     * @return          the message parsed again from its stored bytes
+     */
+    Message decode(int id) {
+        return decoder.apply(getBytes(id));
+    }
+
+    private ByteBuffer allocate(int size) {
+        if(!mapped) {
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        try {
+            if(file == null) {
+                path = Files.createTempFile("messages", ".store");
+                path.toFile().deleteOnExit();
+                file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+
+            ByteBuffer block = file.map(FileChannel.MapMode.READ_WRITE, fileSize, size);
+            fileSize += size;
+
+            return block;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        blocks.clear();
+        current = null;
+
+        if(file != null) {
+            try {
+                file.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // Deleted on exit instead
+            }
+        }
+    }
+}
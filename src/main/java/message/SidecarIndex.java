@@ -0,0 +1,586 @@
+package message;
+
+import util.InputFingerprint;
+import util.IntList;
+import util.Settings;
+import util.TimeRange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * The SidecarIndex program keeps what the filters need to know about
+ * every message of an input file in a binary file next to it, so later
+ * runs can answer the filters without reading any of the JSON. It holds
+ * where each message is in the input file, its timestamp, the
+ * timestamps in order and every token along with the ids of the
+ * messages that contain it. The sidecar is memory-mapped, and only
+ * used while the size, last modified time and checksum of the input
+ * file are still the ones it was made from, and by runs that treat
+ * malformed input the same way the run that made it did.
+ *
+ * Layout (big-endian, sections follow each other):
+ *  header      magic, version, input size, input modified time, input checksum,
+ *              messages, timestamps, tokens, posting ids, token bytes,
+ *              malformed input (STOP or QUARANTINE)
+ *  offsets     long per message, position in the input file
+ *  lengths     int per message
+ *  flags       byte per message, MessageFile.flags
+ *  stamps      long per message, NO_TIMESTAMP if it has none
+ *  times       long per timestamp, sorted
+ *  time ids    int per timestamp, the message each time belongs to
+ *  tokens      per token in order: int text position, int text length, int first posting, int postings
+ *  postings    int per posting id
+ *  text        UTF-8 bytes of the tokens
+ *
+ * @author Luciano Kholos
+ */
+public class SidecarIndex implements Closeable {
+    private static final int MAGIC = 0x4A505458; // JPTX
+    public static final int VERSION = 2; // Sidecars of any other version are made again
+
+    // How malformed input was treated when the sidecar was made
+    private static final int STOP = 0;
+    private static final int QUARANTINE = 1;
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4 * 6;
+    private static final int TOKEN_SIZE = 16;
+
+    private static final int[] EMPTY = new int[0];
+
+    private static final Logger LOGGER = Logger.getLogger(SidecarIndex.class.getName());
+
+    private final ByteBuffer buffer; // The mapped sidecar, only read with absolute positions
+    private final Layout layout;
+
+    private final MessageFile input; // Only read for the messages that are written
+
+    private SidecarIndex(ByteBuffer buffer, Layout layout, MessageFile input) {
+        this.buffer = buffer;
+        this.layout = layout;
+        this.input = input;
+    }
+
+    /**
+     * Maps the sidecar of an input file
+     * @param sidecarFilePath       sidecar file
+     * @param inputFilePath         input file
+     * @param fingerprint           input file as it is now, which the sidecar has to have been made from
+     * @param quarantineMalformed   true if malformed input is quarantined, which the sidecar has to have been made with
+     * @return                      the sidecar or null if there is none, or the input file or the malformed input mode has changed since it was made
+     * @throws IOException          if either file cannot be read
+     */
+    public static SidecarIndex open(String sidecarFilePath, String inputFilePath, InputFingerprint fingerprint, boolean quarantineMalformed) throws IOException {
+        Path path = Paths.get(sidecarFilePath);
+
+        if(!Files.exists(path)) {
+            return null;
+        }
+
+        ByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if(channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                LOGGER.info("Sidecar index " + sidecarFilePath + " is not complete, it will be made again");
+                return null;
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Stays mapped once the channel is closed
+        }
+
+        if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            LOGGER.info("Sidecar index " + sidecarFilePath + " was made by another version, it will be made again");
+            return null;
+        }
+
+        if(!fingerprint.equals(new InputFingerprint(buffer.getLong(8), buffer.getLong(16), buffer.getLong(24)))) {
+            LOGGER.info("Input file has changed since sidecar index " + sidecarFilePath + " was made, it will be made again");
+            return null;
+        }
+
+        if(buffer.getInt(52) != mode(quarantineMalformed)) { // Made without the messages the other mode would leave out or stop at
+            LOGGER.info("Sidecar index " + sidecarFilePath + " was made with another malformed_input, it will be made again");
+            return null;
+        }
+
+        Layout layout = new Layout(buffer.getInt(32), buffer.getInt(36), buffer.getInt(40), buffer.getInt(44), buffer.getInt(48));
+        if(layout.size != buffer.capacity()) {
+            LOGGER.info("Sidecar index " + sidecarFilePath + " is not complete, it will be made again");
+            return null;
+        }
+
+        return new SidecarIndex(buffer, layout, new MessageFile(inputFilePath));
+    }
+
+    /**
+     * Writes the sidecar of the loaded messages. Nothing is written if
+     * the location of a message is not known, or if the input file has
+     * changed since the fingerprint was taken.
+     * @param sidecarFilePath       sidecar file
+     * @param inputFilePath         input file the messages were loaded from
+     * @param fingerprint           input file before it was loaded
+     * @param manager               messages, before they are filtered
+     * @param quarantineMalformed   true if malformed input was quarantined while they were loaded
+     * @return                      true if the sidecar was written
+     * @throws IOException          if the sidecar cannot be written
+     */
+    public static boolean write(String sidecarFilePath, String inputFilePath, InputFingerprint fingerprint, MessageManager manager, boolean quarantineMalformed) throws IOException {
+        List<Message> messages = manager.getMessages();
+        long[] timestamps = new long[messages.size()];
+
+        for(int id = 0; id < timestamps.length; id++) {
+            Message message = messages.get(id);
+
+            if(!message.hasLocation()) {
+                LOGGER.info("Sidecar index not written, the location of every message in the input file is not known");
+                return false;
+            }
+
+            timestamps[id] = message.getTimestamp();
+        }
+
+        if(!fingerprint.isCurrent(inputFilePath)) {
+            LOGGER.info("Sidecar index not written, the input file changed while it was loaded");
+            return false;
+        }
+
+        TimestampIndex timestampIndex = new TimestampIndex(timestamps);
+        TokenIndex tokenIndex = manager.getTokenIndex();
+
+        String[] tokens = tokenIndex.getTokens().toArray(new String[0]);
+        Arrays.sort(tokens); // Looked up with a binary search
+
+        byte[][] text = new byte[tokens.length][];
+        long postingIds = 0;
+        long textBytes = 0;
+
+        for(int x = 0; x < tokens.length; x++) {
+            text[x] = tokens[x].getBytes(StandardCharsets.UTF_8);
+            postingIds += tokenIndex.getPostings(tokens[x]).size();
+            textBytes += text[x].length;
+        }
+
+        if(postingIds > Integer.MAX_VALUE || textBytes > Integer.MAX_VALUE
+                || new Layout(timestamps.length, timestampIndex.getIds().length, tokens.length, (int) postingIds, (int) textBytes).size > Integer.MAX_VALUE) {
+            LOGGER.warning("Sidecar index not written, it would be larger than 2 GB");
+            return false;
+        }
+
+        Path path = Paths.get(sidecarFilePath).toAbsolutePath();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try(Output out = new Output(temp)) {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(fingerprint.getSize());
+            out.putLong(fingerprint.getModified());
+            out.putLong(fingerprint.getChecksum());
+            out.putInt(timestamps.length);
+            out.putInt(timestampIndex.getIds().length);
+            out.putInt(tokens.length);
+            out.putInt((int) postingIds);
+            out.putInt((int) textBytes);
+            out.putInt(mode(quarantineMalformed));
+
+            for(Message message : messages) {
+                out.putLong(message.getOffset());
+            }
+            for(Message message : messages) {
+                out.putInt(message.getLength());
+            }
+            for(Message message : messages) {
+                out.put(MessageFile.flags(message));
+            }
+            for(long timestamp : timestamps) {
+                out.putLong(timestamp);
+            }
+            for(long time : timestampIndex.getTimes()) {
+                out.putLong(time);
+            }
+            for(int id : timestampIndex.getIds()) {
+                out.putInt(id);
+            }
+
+            int textPosition = 0;
+            int firstPosting = 0;
+            for(int x = 0; x < tokens.length; x++) {
+                int postings = tokenIndex.getPostings(tokens[x]).size();
+
+                out.putInt(textPosition);
+                out.putInt(text[x].length);
+                out.putInt(firstPosting);
+                out.putInt(postings);
+
+                textPosition += text[x].length;
+                firstPosting += postings;
+            }
+
+            for(String token : tokens) {
+                IntList postings = tokenIndex.getPostings(token);
+
+                for(int x = 0; x < postings.size(); x++) {
+                    out.putInt(postings.get(x));
+                }
+            }
+
+            for(byte[] bytes : text) {
+                out.put(bytes);
+            }
+        }
+
+        // Replaced in one step, so a run that is stopped part way never leaves half of a sidecar
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return true;
+    }
+
+    private static int mode(boolean quarantineMalformed) {
+        return quarantineMalformed ? QUARANTINE : STOP;
+    }
+
+    /**
+     * @param settings      settings
+     * @return              true if the sidecar can answer every filter, which it cannot for regexes and field filters
+     */
+    public static boolean canAnswer(Settings settings) {
+        return !(settings.isSearchKeywordActive() && settings.isSearchRegexActive())
+                && !(settings.isStartKeywordActive() && settings.isStartRegexActive())
+                && !settings.isFieldFilterActive();
+    }
+
+    /**
+     * Gets the ids of the messages that pass every filter. The start
+     * keyword keeps its meaning: only messages within the start/stop
+     * times are checked for it, and every message from the first one
+     * that has it on is checked by the other filters.
+     * @param settings      settings, which canAnswer
+     * @return              sorted message ids
+     */
+    public int[] lookup(Settings settings) {
+        int[] ids = null; // Every message while there are no filters
+
+        if(settings.isTimeSearchActive()) {
+            ids = lookupTimes(settings.getTimeRanges());
+        }
+
+        if(settings.isSearchKeywordActive()) {
+            List<int[]> matches = new ArrayList<>();
+
+            for(String keyword : settings.getSearchKeywordMap().keySet()) {
+                matches.add(lookup(keyword));
+            }
+
+            int[] keywordIds = TokenIndex.union(matches);
+            ids = ids == null ? keywordIds : TokenIndex.intersect(ids, keywordIds);
+        }
+
+        if(ids == null) {
+            ids = new int[size()];
+
+            for(int id = 0; id < ids.length; id++) {
+                ids[id] = id;
+            }
+        }
+
+        if(settings.isStartKeywordActive()) {
+            int[] started = lookup(settings.getStartKeyword());
+
+            if(settings.isTimeSearchActive()) {
+                started = TokenIndex.intersect(started, lookupTimes(settings.getTimeRanges()));
+            }
+
+            if(started.length == 0) {
+                return EMPTY;
+            }
+
+            int from = Arrays.binarySearch(ids, started[0]);
+            ids = Arrays.copyOfRange(ids, from < 0 ? -from - 1 : from, ids.length);
+        }
+
+        return ids;
+    }
+
+    /**
+     * Gets the ids of the messages within any of the ranges
+     * @param ranges        disjoint start/stop times
+     * @return              sorted message ids
+     */
+    public int[] lookupTimes(List<TimeRange> ranges) {
+        IntList matches = new IntList();
+
+        for(TimeRange range : ranges) {
+            int from = bound(range.getStart(), false);
+            int to = bound(range.getEnd(), true);
+
+            for(int x = from; x < to; x++) {
+                matches.add(buffer.getInt(layout.timeIds + x * 4));
+            }
+        }
+
+        int[] result = matches.toArray();
+        Arrays.sort(result);
+
+        return result;
+    }
+
+    /**
+     * @param time          time to look for
+     * @param after         true for the first position with a time > time, otherwise the first with a time >= time
+     * @return              position in the sorted times
+     */
+    private int bound(long time, boolean after) {
+        int low = 0;
+        int high = layout.timed;
+
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            long value = buffer.getLong(layout.times + middle * 8);
+
+            if(value < time || (after && value == time)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Gets the ids of the messages that contain a keyword, the same way
+     * the TokenIndex does. A search string is answered by intersecting
+     * the posting lists of its words.
+     * @param keyword       keyword or search string
+     * @return              sorted message ids
+     */
+    public int[] lookup(String keyword) {
+        if(!keyword.contains(" ")) {
+            return postings(find(keyword));
+        }
+
+        String[] args = keyword.split(" ");
+        int[] tokens = new int[args.length];
+
+        // Starts with the shortest posting list so the intersection shrinks as fast as possible
+        int shortest = -1;
+        for(int x = 0; x < args.length; x++) {
+            tokens[x] = find(args[x]);
+
+            if(tokens[x] < 0) {
+                return EMPTY;
+            }
+
+            if(shortest < 0 || postingCount(tokens[x]) < postingCount(shortest)) {
+                shortest = tokens[x];
+            }
+        }
+
+        int[] ids = postings(shortest);
+        for(int token : tokens) {
+            if(token != shortest) {
+                ids = TokenIndex.intersect(ids, postings(token));
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * @param token     token to look for
+     * @return          position of the token in the dictionary, or -1 if no message has it
+     */
+    private int find(String token) {
+        int low = 0;
+        int high = layout.tokens - 1;
+
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = tokenAt(middle).compareTo(token);
+
+            if(compare < 0) {
+                low = middle + 1;
+            } else if(compare > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    private String tokenAt(int token) {
+        int entry = layout.tokenTable + token * TOKEN_SIZE;
+        byte[] bytes = new byte[buffer.getInt(entry + 4)];
+
+        ByteBuffer text = buffer.duplicate();
+        text.position(layout.text + buffer.getInt(entry));
+        text.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int postingCount(int token) {
+        return buffer.getInt(layout.tokenTable + token * TOKEN_SIZE + 12);
+    }
+
+    private int[] postings(int token) {
+        if(token < 0) {
+            return EMPTY;
+        }
+
+        int entry = layout.tokenTable + token * TOKEN_SIZE;
+        int[] ids = new int[buffer.getInt(entry + 12)];
+
+        ByteBuffer postings = buffer.duplicate();
+        postings.position(layout.postings + buffer.getInt(entry + 8) * 4);
+        postings.asIntBuffer().get(ids);
+
+        return ids;
+    }
+
+    /**
+     * @param id        message id
+     * @return          the message, which reads its bytes from the input file when its content is needed
+     */
+    public Message get(int id) {
+        return input.getMessage(id, buffer.getLong(layout.stamps + id * 8), buffer.getLong(layout.offsets + id * 8),
+                buffer.getInt(layout.lengths + id * 4), buffer.get(layout.flags + id));
+    }
+
+    /**
+     * @return      how many messages the input file has
+     */
+    public int size() {
+        return layout.count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Where each section of a sidecar starts
+     */
+    private static class Layout {
+        private final int count;
+        private final int timed;
+        private final int tokens;
+
+        private final int offsets;
+        private final int lengths;
+        private final int flags;
+        private final int stamps;
+        private final int times;
+        private final int timeIds;
+        private final int tokenTable;
+        private final int postings;
+        private final int text;
+        private final long size; // Bytes in the whole sidecar, more than Integer.MAX_VALUE cannot be mapped
+
+        private Layout(int count, int timed, int tokens, int postingIds, int textBytes) {
+            this.count = count;
+            this.timed = timed;
+            this.tokens = tokens;
+
+            long position = HEADER_SIZE;
+            long[] starts = new long[9];
+            long[] sizes = { 8L * count, 4L * count, count, 8L * count, 8L * timed, 4L * timed, (long) TOKEN_SIZE * tokens, 4L * postingIds, textBytes };
+
+            for(int x = 0; x < sizes.length; x++) {
+                starts[x] = position;
+                position += sizes[x];
+            }
+
+            // Only used once the size is known to fit in an int
+            this.offsets = (int) starts[0];
+            this.lengths = (int) starts[1];
+            this.flags = (int) starts[2];
+            this.stamps = (int) starts[3];
+            this.times = (int) starts[4];
+            this.timeIds = (int) starts[5];
+            this.tokenTable = (int) starts[6];
+            this.postings = (int) starts[7];
+            this.text = (int) starts[8];
+            this.size = position;
+        }
+    }
+
+    /**
+     * Writes the sidecar a buffer at a time
+     */
+    private static class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+
+        private Output(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        private void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        private void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        private void put(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        private void put(byte[] bytes) throws IOException {
+            if(bytes.length > buffer.capacity()) {
+                drain();
+                channel.write(ByteBuffer.wrap(bytes));
+                return;
+            }
+
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if(buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
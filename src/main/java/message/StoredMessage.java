@@ -0,0 +1,54 @@
+package message;
+
+import util.JsonText;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A message that lives in an OffHeapMessageStore. Only the id
+ * and timestamp are kept, everything else is created from the
+ * stored bytes when it is asked for.
+ *
+ * @author Luciano Kholos
+ */
+class StoredMessage extends Message {
+    private final OffHeapMessageStore store;
+
+    private Message decoded; // Holds the tokens once they have been needed
+
+    StoredMessage(OffHeapMessageStore store, int id, long timestamp) {
+        super(timestamp);
+        this.store = store;
+        setId(id);
+    }
+
+    @Override
+    public String getContent() {
+        byte[] bytes = store.getBytes(getId());
+        return store.isRaw(getId()) ? JsonText.compact(bytes) : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String getRegexContent() {
+        return decoded().getRegexContent();
+    }
+
+    @Override
+    public List<String> getArgs() {
+        return decoded().getArgs();
+    }
+
+    @Override
+    byte[] getRaw() {
+        return store.isRaw(getId()) ? store.getBytes(getId()) : null;
+    }
+
+    private Message decoded() {
+        if(decoded == null) {
+            decoded = store.decode(getId());
+        }
+
+        return decoded;
+    }
+}
@@ -0,0 +1,156 @@
+package message;
+
+import util.IntList;
+import util.TimeRange;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The TimestampIndex program keeps the timestamps of the messages
+ * as a sorted long[] of epoch milliseconds, together with the id of
+ * the message each timestamp belongs to. A start/stop time is
+ * answered by two binary searches.
+ *
+ * @author Luciano Kholos
+ */
+public class TimestampIndex {
+    private final long[] times; // Sorted timestamps
+    private final int[] ids; // ids[x] is the message with timestamp times[x]
+
+    /**
+     * @param timestamps    timestamp of each message by id
+     */
+    public TimestampIndex(long[] timestamps) {
+        IntList valid = new IntList(timestamps.length);
+        boolean sorted = true;
+
+        for(int id = 0; id < timestamps.length; id++) {
+            if(timestamps[id] == Message.NO_TIMESTAMP) { // Messages without a valid timestamp are never in a range
+                continue;
+            }
+
+            if(!valid.isEmpty() && timestamps[id] < timestamps[valid.get(valid.size() - 1)]) {
+                sorted = false;
+            }
+
+            valid.add(id);
+        }
+
+        ids = valid.toArray();
+
+        if(!sorted) { // Captures are usually in time order already
+            sortByTime(ids, timestamps);
+        }
+
+        times = new long[ids.length];
+        for(int x = 0; x < ids.length; x++) {
+            times[x] = timestamps[ids[x]];
+        }
+    }
+
+    /**
+     * Gets the ids of the messages within any of the ranges
+     * @param ranges        disjoint start/stop times
+     * @return              sorted message ids
+     */
+    public int[] lookup(List<TimeRange> ranges) {
+        IntList matches = new IntList();
+
+        for(TimeRange range : ranges) {
+            int from = lowerBound(range.getStart());
+            int to = upperBound(range.getEnd());
+
+            for(int x = from; x < to; x++) {
+                matches.add(ids[x]);
+            }
+        }
+
+        int[] result = matches.toArray();
+        Arrays.sort(result);
+
+        return result;
+    }
+
+    /**
+     * @return      every timestamp in order
+     */
+    long[] getTimes() {
+        return times;
+    }
+
+    /**
+     * @return      the message of each timestamp returned by getTimes
+     */
+    int[] getIds() {
+        return ids;
+    }
+
+    /**
+     * @return      first position with a time >= time
+     */
+    private int lowerBound(long time) {
+        int low = 0;
+        int high = times.length;
+
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+
+            if(times[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return      first position with a time > time
+     */
+    private int upperBound(long time) {
+        int low = 0;
+        int high = times.length;
+
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+
+            if(times[middle] <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Stable merge sort of ids by their timestamp, so messages
+     * with the same timestamp stay in id order.
+     */
+    private static void sortByTime(int[] ids, long[] timestamps) {
+        int[] buffer = new int[ids.length];
+
+        for(int width = 1; width < ids.length; width *= 2) {
+            for(int left = 0; left < ids.length - width; left += width * 2) {
+                int middle = left + width;
+                int right = Math.min(left + width * 2, ids.length);
+
+                int x = left, y = middle, z = left;
+                while(x < middle && y < right) {
+                    buffer[z++] = timestamps[ids[y]] < timestamps[ids[x]] ? ids[y++] : ids[x++];
+                }
+                while(x < middle) {
+                    buffer[z++] = ids[x++];
+                }
+                while(y < right) {
+                    buffer[z++] = ids[y++];
+                }
+
+                System.arraycopy(buffer, left, ids, left, right - left);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package message;
+
+import util.IntList;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The TokenIndex program maps each token to a sorted list of
+ * the ids of the messages that contain it (a posting list).
+ * Keywords are answered by looking up their posting lists
+ * instead of checking every message.
+ *
+ * @author Luciano Kholos
+ */
+public class TokenIndex {
+    private static final int[] EMPTY = new int[0];
+
+    private final HashMap<String, IntList> postings = new HashMap<>();
+
+    /**
+     * Adds the tokens of a message to the index. Messages
+     * have to be added in id order.
+     * @param id            message id
+     * @param tokens        tokens of the message
+     */
+    public void add(int id, List<String> tokens) {
+        for(String token : tokens) {
+            IntList list = postings.get(token);
+
+            if(list == null) {
+                list = new IntList(4);
+                postings.put(token, list);
+            }
+
+            if(list.isEmpty() || list.get(list.size() - 1) != id) { // A token can show up more than once in a message
+                list.add(id);
+            }
+        }
+    }
+
+    /**
+     * Gets the ids of the messages that contain a keyword. A search
+     * string is answered by intersecting the posting lists of its words.
+     * @param keyword       keyword or search string
+     * @return              sorted message ids
+     */
+    public int[] lookup(String keyword) {
+        if(!keyword.contains(" ")) {
+            IntList list = postings.get(keyword);
+            return list == null ? EMPTY : list.toArray();
+        }
+
+        String[] args = keyword.split(" ");
+
+        // Starts with the shortest posting list so the intersection shrinks as fast as possible
+        IntList shortest = null;
+        for(String arg : args) {
+            IntList list = postings.get(arg);
+
+            if(list == null) {
+                return EMPTY;
+            }
+
+            if(shortest == null || list.size() < shortest.size()) {
+                shortest = list;
+            }
+        }
+
+        int[] ids = shortest.toArray();
+        for(String arg : args) {
+            ids = intersect(ids, postings.get(arg));
+        }
+
+        return ids;
+    }
+
+    /**
+     * @return      every token that is in at least one message
+     */
+    Set<String> getTokens() {
+        return postings.keySet();
+    }
+
+    /**
+     * @param token     token that is in the index
+     * @return          sorted ids of the messages that contain it, not a copy
+     */
+    IntList getPostings(String token) {
+        return postings.get(token);
+    }
+
+    /**
+     * Merges sorted id lists into one sorted list without duplicates
+     * @param lists         sorted message ids
+     * @return              sorted message ids that are in any of the lists
+     */
+    public static int[] union(List<int[]> lists) {
+        if(lists.isEmpty()) {
+            return EMPTY;
+        }
+
+        return union(lists, 0, lists.size());
+    }
+
+    private static int[] union(List<int[]> lists, int from, int to) {
+        if(to - from == 1) {
+            return lists.get(from);
+        }
+
+        int middle = (from + to) >>> 1;
+        return merge(union(lists, from, middle), union(lists, middle, to));
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int x = 0, y = 0, size = 0;
+
+        while(x < a.length && y < b.length) {
+            if(a[x] < b[y]) {
+                result[size++] = a[x++];
+            } else if(a[x] > b[y]) {
+                result[size++] = b[y++];
+            } else {
+                result[size++] = a[x++];
+                y++;
+            }
+        }
+
+        while(x < a.length) {
+            result[size++] = a[x++];
+        }
+
+        while(y < b.length) {
+            result[size++] = b[y++];
+        }
+
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * @param a         sorted message ids
+     * @param b         sorted message ids
+     * @return          sorted message ids that are in both lists
+     */
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int x = 0, y = 0, size = 0;
+
+        while(x < a.length && y < b.length) {
+            if(a[x] < b[y]) {
+                x++;
+            } else if(a[x] > b[y]) {
+                y++;
+            } else {
+                result[size++] = a[x++];
+                y++;
+            }
+        }
+
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static int[] intersect(int[] ids, IntList list) {
+        int[] result = new int[ids.length];
+        int x = 0, y = 0, size = 0;
+
+        while(x < ids.length && y < list.size()) {
+            int id = list.get(y);
+
+            if(ids[x] < id) {
+                x++;
+            } else if(ids[x] > id) {
+                y++;
+            } else {
+                result[size++] = ids[x++];
+                y++;
+            }
+        }
+
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,141 @@
+package processing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * The Checkpoint program remembers how far into the input file
+ * the follow mode has gotten, so the next run only reads what
+ * was added to it since. Along with the offset it keeps whether
+ * the start keyword has matched and a checksum of the start of
+ * the input file, which tells when the file has been replaced.
+ *
+ * @author Luciano Kholos
+ */
+public class Checkpoint {
+    private static final int HEAD_SIZE = 4096; // Bytes of the input file that the checksum covers
+
+    private final long offset; // Position right after the last message that was processed
+    private final boolean started;
+    private final long head; // Checksum of the input file up to the offset or HEAD_SIZE
+
+    public Checkpoint(long offset, boolean started, long head) {
+        this.offset = offset;
+        this.started = started;
+        this.head = head;
+    }
+
+    /**
+     * @return      checkpoint for an input file that has not been read yet
+     */
+    public static Checkpoint empty() {
+        return new Checkpoint(0, false, 0);
+    }
+
+    /**
+     * Reads the checkpoint file
+     * @param checkpointFilePath        checkpoint file
+     * @return                          the checkpoint or null if there is none
+     * @throws IOException              if the checkpoint file cannot be read
+     */
+    public static Checkpoint load(String checkpointFilePath) throws IOException {
+        Path path = Paths.get(checkpointFilePath);
+
+        if(!Files.exists(path)) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try(InputStream is = Files.newInputStream(path)) {
+            properties.load(is);
+        }
+
+        try {
+            return new Checkpoint(
+                    Long.parseLong(properties.getProperty("offset")),
+                    Boolean.parseBoolean(properties.getProperty("started")),
+                    Long.parseLong(properties.getProperty("head"))
+            );
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed checkpoint file " + checkpointFilePath);
+        }
+    }
+
+    /**
+     * Writes the checkpoint file. The file is replaced in one step,
+     * so a run that is stopped part way never leaves half of one.
+     * @param checkpointFilePath        checkpoint file
+     * @throws IOException              if the checkpoint file cannot be written
+     */
+    public void save(String checkpointFilePath) throws IOException {
+        Path path = Paths.get(checkpointFilePath).toAbsolutePath();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        Properties properties = new Properties();
+        properties.setProperty("offset", Long.toString(offset));
+        properties.setProperty("started", Boolean.toString(started));
+        properties.setProperty("head", Long.toString(head));
+
+        try(OutputStream os = Files.newOutputStream(temp)) {
+            properties.store(os, "JSONProcessingTool follow checkpoint");
+        }
+
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Checks that the input file is still the one the checkpoint was made for
+     * @param inputFilePath     input file
+     * @return                  false if the input file is shorter than the offset or starts differently
+     * @throws IOException      if the input file cannot be read
+     */
+    public boolean matches(String inputFilePath) throws IOException {
+        return Files.size(Paths.get(inputFilePath)) >= offset && head == checksum(inputFilePath, offset);
+    }
+
+    /**
+     * @param inputFilePath     input file
+     * @param offset            how far into the input file has been read
+     * @return                  checksum of the input file up to the offset or HEAD_SIZE, whichever is smaller
+     * @throws IOException      if the input file cannot be read
+     */
+    public static long checksum(String inputFilePath, long offset) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(offset, HEAD_SIZE));
+
+        try(FileChannel channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+            while(bytes.hasRemaining()) {
+                if(channel.read(bytes) < 0) { // Shorter than the offset
+                    break;
+                }
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array(), 0, bytes.position());
+
+        return crc.getValue();
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+}
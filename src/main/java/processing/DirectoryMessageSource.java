@@ -0,0 +1,96 @@
+package processing;
+
+import message.Message;
+import util.Settings;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * The DirectoryMessageSource program reads every file in a
+ * directory, one after another in the order of their names.
+ * Hidden files and sub-directories are left out.
+ *
+ * @author Luciano Kholos
+ */
+public class DirectoryMessageSource implements MessageSource {
+    private final Settings settings;
+
+    private final List<File> files = new ArrayList<>();
+    private int next = 0; // Index of the next file to open
+
+    private MessageSource current; // Source for the file that is being read
+
+    private final Quarantine quarantine;
+
+    private static final Logger LOGGER = Logger.getLogger(DirectoryMessageSource.class.getName());
+
+    public DirectoryMessageSource(Settings settings, String directoryPath) throws IOException {
+        this(settings, directoryPath, null);
+    }
+
+    /**
+     * @param settings          settings
+     * @param directoryPath     directory of input files
+     * @param quarantine        receives malformed data, null to stop at it
+     * @throws IOException      if the directory cannot be listed
+     */
+    public DirectoryMessageSource(Settings settings, String directoryPath, Quarantine quarantine) throws IOException {
+        this.settings = settings;
+        this.quarantine = quarantine;
+
+        File[] list = new File(directoryPath).listFiles(file -> file.isFile() && !file.isHidden());
+        if(list == null) {
+            throw new IOException(directoryPath + " is not a directory");
+        }
+
+        Arrays.sort(list);
+        files.addAll(Arrays.asList(list));
+    }
+
+    @Override
+    public boolean nextBatch(List<Message> batch, int max) throws IOException {
+        while(batch.size() < max) {
+            if(current == null) {
+                if(next == files.size()) {
+                    break;
+                }
+
+                File file = files.get(next++);
+                LOGGER.info("Reading " + file.getName());
+
+                // A span would point into a file that is not the input file
+                current = FileMessageSource.open(settings, file.getPath(), false, quarantine);
+            }
+
+            int size = batch.size();
+            current.nextBatch(batch, max);
+
+            if(batch.size() == size) { // Nothing left in the file
+                current.close();
+                current = null;
+            }
+        }
+
+        return !batch.isEmpty();
+    }
+
+    @Override
+    public void acknowledge() throws IOException {
+        if(current != null) {
+            current.acknowledge();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(current != null) {
+            current.close();
+            current = null;
+        }
+    }
+}
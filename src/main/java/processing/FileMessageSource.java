@@ -0,0 +1,177 @@
+package processing;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import message.Message;
+import util.Compression;
+import util.Metrics;
+import util.Settings;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The FileMessageSource program reads the JSON objects of
+ * an input file through a MappedJsonReader. Each object is
+ * parsed with the LazyMessageParser when lazy parsing is on,
+ * otherwise it is decoded on its own and parsed with Gson.
+ * Malformed data is skipped into the quarantine when there is
+ * one, otherwise it stops the reading.
+ *
+ * @author Luciano Kholos
+ */
+public class FileMessageSource implements MessageSource {
+    private final Settings settings;
+
+    private final String inputFilePath;
+
+    private final MappedJsonReader reader;
+
+    private final boolean spans; // Remembers where the messages are in the file
+
+    private final MessageParser parser;
+
+    private final LazyMessageParser lazyParser;
+
+    private final Quarantine quarantine;
+
+    private long position; // Right after the last value that was handed out or skipped
+
+    /**
+     * @param settings          settings
+     * @param inputFilePath     input file
+     * @param offset            position in the input file to start reading at
+     * @param growing           true if the input file is still being written to
+     * @param spans             true to set where each message is, for the zero-copy output and the sidecar index
+     * @param quarantine        receives malformed data, null to stop at it
+     * @throws IOException      if the input file cannot be opened
+     */
+    public FileMessageSource(Settings settings, String inputFilePath, long offset, boolean growing, boolean spans, Quarantine quarantine) throws IOException {
+        this.settings = settings;
+        this.inputFilePath = inputFilePath;
+        this.reader = new MappedJsonReader(inputFilePath, offset, growing);
+        this.spans = spans;
+        this.parser = new MessageParser(settings);
+        this.lazyParser = new LazyMessageParser(settings);
+        this.quarantine = quarantine;
+        this.position = offset;
+    }
+
+    /**
+     * Opens an input file the way the Settings ask for. A compressed
+     * input file is decompressed as it is read, on the worker threads
+     * when it is made of independent blocks.
+     * @param settings          settings
+     * @param inputFilePath     input file
+     * @param spans             true to set where each message is, for the zero-copy output and the sidecar index
+     * @param quarantine        receives malformed data, null to stop at it
+     * @return                  source for the input file
+     * @throws IOException      if the input file cannot be opened
+     */
+    public static MessageSource open(Settings settings, String inputFilePath, boolean spans, Quarantine quarantine) throws IOException {
+        Compression compression = Compression.detect(inputFilePath);
+
+        if(compression != Compression.NONE) { // The compressed bytes cannot be mapped or copied from
+            return new StreamMessageSource(settings, compression.open(inputFilePath, settings.getWorkerThreads()), inputFilePath, quarantine);
+        }
+
+        // The lazy parser, the zero-copy output, the sidecar index and the result cache need the mapped bytes
+        if(settings.isMemoryMappedInput() || settings.isLazyParsing() || settings.isZeroCopyOutput() || settings.isSidecarIndex()
+                || settings.isCacheResults()) {
+            return new FileMessageSource(settings, inputFilePath, 0, false, spans, quarantine);
+        }
+
+        return new StreamMessageSource(settings, new FileInputStream(inputFilePath), inputFilePath, quarantine);
+    }
+
+    public static MessageSource open(Settings settings, String inputFilePath, boolean spans) throws IOException {
+        return open(settings, inputFilePath, spans, null);
+    }
+
+    @Override
+    public boolean nextBatch(List<Message> batch, int max) throws IOException {
+        long read = reader.position();
+
+        try {
+            return readBatch(batch, max);
+        } finally {
+            Metrics.bytesRead(reader.position() - read);
+        }
+    }
+
+    private boolean readBatch(List<Message> batch, int max) throws IOException {
+        while(batch.size() < max && reader.next()) {
+            if(reader.isMalformed()) {
+                skip(new JsonParseException(reader.error() + " at byte " + reader.offset()));
+                continue;
+            }
+
+            if(!reader.isObject()) {
+                position = reader.position();
+                continue;
+            }
+
+            long start = Metrics.start();
+            Message message;
+            try {
+                if(settings.isLazyParsing()) {
+                    message = lazyParser.toMessage(reader.buffer(), reader.start(), reader.end());
+                } else { // Only decodes one JSON object at a time
+                    message = parser.toMessage(JsonParser.parseString(reader.decode()));
+                }
+            } catch (RuntimeException e) {
+                skip(e);
+                continue;
+            }
+
+            Metrics.stop(Metrics.Stage.PARSE, start);
+            Metrics.objectParsed();
+
+            if(spans && reader.isSingleLine()) {
+                message.setSpan(reader.offset(), reader.end() - reader.start(), reader.isFollowedByNewline());
+            } else if(spans) {
+                message.setLocation(reader.offset(), reader.end() - reader.start());
+            }
+
+            batch.add(message);
+            position = reader.position();
+        }
+
+        return !batch.isEmpty();
+    }
+
+    /**
+     * Moves past the current value and quarantines it, or
+     * stops the reading when there is no quarantine
+     * @param e                 what was wrong with it
+     * @throws IOException      if the quarantine file cannot be written
+     */
+    private void skip(RuntimeException e) throws IOException {
+        if(quarantine == null) {
+            throw e;
+        }
+
+        reader.skip();
+        quarantine.add(inputFilePath, reader.offset(), reader.buffer(), reader.start(), reader.end(), String.valueOf(e.getMessage()));
+        position = reader.position();
+    }
+
+    /**
+     * @return      position in the input file right after the last message that was handed out,
+     *              which is in front of the malformed data the reading stopped at
+     */
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void acknowledge() {
+        // The file is left as it is
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
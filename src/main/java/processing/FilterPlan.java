@@ -0,0 +1,458 @@
+package processing;
+
+import message.Message;
+import message.MessageManager;
+import util.Metrics;
+import util.Settings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The FilterPlan program turns the Settings into the list of
+ * filters that every message has to pass. A message stops being
+ * checked at the first filter it fails, so the filters that are
+ * cheap and let few messages through run first. How cheap and
+ * how selective each filter is comes from a sample of the
+ * messages. A plan never changes once it is built; sampling
+ * creates a new plan.
+ *
+ * The start keyword keeps its meaning: until it has matched, only
+ * messages within the start/stop times are checked for it, and
+ * after that it lets every message through.
+ *
+ * @author Luciano Kholos
+ */
+public class FilterPlan {
+    public static final int SAMPLE_SIZE = 1024;
+    private static final long RESAMPLE_INTERVAL = 1 << 16; // Streaming samples this many messages apart
+
+    private final Step start; // null if there is no start keyword
+    private final Step[] steps; // In the order they run
+    private final int sampled; // How many messages the statistics come from, 0 if they are estimates
+
+    private FilterPlan(Step start, Step[] steps, int sampled) {
+        this.start = start;
+        this.steps = steps;
+        this.sampled = sampled;
+    }
+
+    /**
+     * Builds the plan for the Settings
+     * @param settings      settings
+     * @param manager       messages
+     * @param indexed       true if the messages are loaded, so the indexes can answer the filters up front
+     * @return              plan with estimated statistics
+     */
+    public static FilterPlan compile(Settings settings, MessageManager manager, boolean indexed) {
+        List<Step> steps = new ArrayList<>();
+
+        if(settings.isTimeSearchActive()) {
+            String name = "time (" + settings.getTimeRanges().size() + " range(s))";
+
+            if(indexed) {
+                BitSet ids = manager.getIdsByDate();
+                steps.add(new Step(steps.size(), name + " [index]", message -> ids.get(message.getId()), true, 5));
+            } else {
+                steps.add(new Step(steps.size(), name, manager::isWithinDates, true, 10));
+            }
+        }
+
+        if(settings.isSearchKeywordActive()) {
+            int regexes = 0;
+            for(boolean regex : settings.getSearchKeywordMap().values()) {
+                regexes += regex ? 1 : 0;
+            }
+
+            String name = "search keyword (" + (settings.getSearchKeywordMap().size() - regexes) + " keyword(s), " + regexes + " regex(es))";
+
+            if(indexed) {
+                BitSet ids = manager.getIdsByKeyword();
+
+                if(regexes > 0) {
+                    steps.add(new Step(steps.size(), name + " [index]", message -> ids.get(message.getId()) || manager.matchesRegexKeyword(message), false, 200));
+                } else {
+                    steps.add(new Step(steps.size(), name + " [index]", message -> ids.get(message.getId()), false, 5));
+                }
+            } else {
+                steps.add(new Step(steps.size(), name, manager::matchesKeyword, false, regexes > 0 ? 200 : 50));
+            }
+        }
+
+        if(settings.isFieldFilterActive()) {
+            String name = "field filter (" + settings.getFieldFilters().size() + " field(s))";
+            steps.add(new Step(steps.size(), name, manager::matchesFields, false, 100));
+        }
+
+        Step start = null;
+        if(settings.isStartKeywordActive()) {
+            String startKeyword = settings.getStartKeyword();
+            start = new Step(-1, "start keyword \"" + startKeyword + "\"", message -> manager.matchesStartKeyword(startKeyword, message), false, 0);
+        }
+
+        return new FilterPlan(start, order(steps.toArray(new Step[0])), 0);
+    }
+
+    /**
+     * Measures every filter on messages spread evenly across a list
+     * @param messages      messages to sample from
+     * @return              plan ordered by the measured statistics
+     */
+    public FilterPlan sample(List<Message> messages) {
+        if(messages.isEmpty() || steps.length < 2) {
+            return this;
+        }
+
+        int count = Math.min(SAMPLE_SIZE, messages.size());
+        Statistics statistics = new Statistics(steps.length);
+
+        for(int x = 0; x < count; x++) {
+            Message message = messages.get((int) ((long) x * messages.size() / count));
+
+            for(Step step : steps) {
+                statistics.measure(step, message);
+            }
+        }
+
+        statistics.count = count;
+        return withStatistics(statistics);
+    }
+
+    /**
+     * @return      a plan with the same filters ordered by the statistics
+     */
+    private FilterPlan withStatistics(Statistics statistics) {
+        Step[] measured = new Step[steps.length];
+
+        for(int x = 0; x < steps.length; x++) {
+            Step step = steps[x];
+            double cost = Math.max(0, (double) statistics.nanos[step.id] / statistics.count - Statistics.TIMER_COST);
+            double passRate = (double) statistics.passed[step.id] / statistics.count;
+
+            measured[x] = new Step(step, cost, passRate);
+        }
+
+        return new FilterPlan(start, order(measured), statistics.count);
+    }
+
+    /**
+     * Sorts the filters by the expected cost of throwing out a
+     * message, so cheap filters that fail often go first
+     */
+    private static Step[] order(Step[] steps) {
+        Step[] ordered = steps.clone();
+        Arrays.sort(ordered, Comparator.comparingDouble(Step::rank)); // Stable, so ties keep the config order
+        return ordered;
+    }
+
+    /**
+     * @return      true if every message passes
+     */
+    public boolean isEmpty() {
+        return start == null && steps.length == 0;
+    }
+
+    /**
+     * @return      a new run of the plan, which remembers whether the start keyword has matched
+     */
+    public Run newRun() {
+        return new Run(this, false, false);
+    }
+
+    /**
+     * @return      a new run that keeps measuring the filters and reorders them as it goes
+     */
+    public Run newAdaptiveRun() {
+        return newAdaptiveRun(false);
+    }
+
+    /**
+     * @param started       true if the start keyword already matched in an earlier run
+     * @return              a new run that keeps measuring the filters and reorders them as it goes
+     */
+    public Run newAdaptiveRun(boolean started) {
+        return new Run(this, true, started);
+    }
+
+    private boolean test(Message message, Run run) {
+        if(!run.started) {
+            for(Step step : steps) {
+                if(step.beforeStart && !step.test(message)) {
+                    return false;
+                }
+            }
+
+            if(!start.test(message)) {
+                return false;
+            }
+
+            run.started = true;
+
+            for(Step step : steps) {
+                if(!step.beforeStart && !step.test(message)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        for(Step step : steps) {
+            if(!step.test(message)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Same as test, but every filter is run and measured
+     */
+    private boolean testMeasured(Message message, Run run) {
+        boolean passed = true;
+        boolean beforeStart = true;
+
+        for(Step step : steps) {
+            boolean result = run.statistics.measure(step, message);
+            step.count(result); // Measured on the message the run is checking, so it counts as checked
+
+            if(step.beforeStart) {
+                beforeStart &= result;
+            }
+            passed &= result;
+        }
+
+        if(!run.started) {
+            if(!beforeStart || !start.test(message)) {
+                return false;
+            }
+
+            run.started = true;
+        }
+
+        return passed;
+    }
+
+    /**
+     * Describes the plan for the explain option
+     * @return      one line per filter in the order they run
+     */
+    public String explain() {
+        StringBuilder builder = new StringBuilder("Filter plan");
+        builder.append(sampled == 0 ? " (estimated)" : " (sampled " + sampled + " messages)");
+
+        if(isEmpty()) {
+            return builder.append("\n  every message passes").toString();
+        }
+
+        if(start != null) {
+            builder.append("\n  until the start keyword matches: ");
+
+            for(Step step : steps) {
+                if(step.beforeStart) {
+                    builder.append(step.name).append(" -> ");
+                }
+            }
+
+            builder.append(start.name);
+
+            for(Step step : steps) {
+                if(!step.beforeStart) {
+                    builder.append(" -> ").append(step.name);
+                }
+            }
+
+            builder.append("\n  then:");
+        }
+
+        for(int x = 0; x < steps.length; x++) {
+            Step step = steps[x];
+
+            builder.append(String.format(Locale.ROOT, "%n  %d. %s, %.0f ns per message, passes %.1f%%",
+                    x + 1, step.name, step.cost, step.passRate * 100));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Runs a plan over messages one at a time
+     */
+    public static class Run {
+        private FilterPlan plan;
+        private boolean started;
+
+        private final boolean adaptive;
+        private Statistics statistics;
+        private long count = 0;
+
+        private Run(FilterPlan plan, boolean adaptive, boolean started) {
+            this.plan = plan;
+            this.started = started || plan.start == null;
+            this.adaptive = adaptive && plan.steps.length > 1; // A single filter has nothing to reorder
+        }
+
+        /**
+         * @param message       message to check
+         * @return              true if the message passes every filter
+         */
+        public boolean test(Message message) {
+            if(!adaptive || count++ % RESAMPLE_INTERVAL >= SAMPLE_SIZE) {
+                return plan.test(message, this);
+            }
+
+            if(statistics == null) {
+                statistics = new Statistics(plan.steps.length);
+            }
+
+            boolean passed = plan.testMeasured(message, this);
+            statistics.count++;
+
+            if(count % RESAMPLE_INTERVAL == SAMPLE_SIZE) { // Done sampling for now
+                plan = plan.withStatistics(statistics);
+            }
+
+            return passed;
+        }
+
+        /**
+         * @return      true once the start keyword has matched, or if there is none
+         */
+        public boolean isStarted() {
+            return started;
+        }
+
+        /**
+         * @return      the plan that is currently running
+         */
+        public FilterPlan getPlan() {
+            return plan;
+        }
+    }
+
+    /**
+     * A single filter and what is known about it. Only the messages
+     * a run checks are counted in the metrics, sampling is not.
+     */
+    private static class Step {
+        private final int id; // Position in the config order, used to look up statistics
+        private final String name;
+        private final MessagePredicate predicate;
+        private final boolean beforeStart; // Has to pass before the start keyword is checked
+        private final double cost; // Nanoseconds per message
+        private final double passRate;
+
+        // Messages the filter checked and passed, null when metrics are not collected
+        private final LongAdder checked;
+        private final LongAdder matches;
+
+        private Step(int id, String name, MessagePredicate predicate, boolean beforeStart, double cost) {
+            this.id = id;
+            this.name = name;
+            this.predicate = predicate;
+            this.beforeStart = beforeStart;
+            this.cost = cost;
+            this.passRate = 0.5;
+
+            this.checked = Metrics.isEnabled() ? Metrics.filterChecked(name) : null;
+            this.matches = Metrics.isEnabled() ? Metrics.filterMatches(name) : null;
+        }
+
+        /**
+         * The same filter with measured statistics
+         */
+        private Step(Step step, double cost, double passRate) {
+            this.id = step.id;
+            this.name = step.name;
+            this.predicate = step.predicate;
+            this.beforeStart = step.beforeStart;
+            this.cost = cost;
+            this.passRate = passRate;
+
+            this.checked = step.checked;
+            this.matches = step.matches;
+        }
+
+        /**
+         * Checks a message for a run
+         * @param message       message to check
+         * @return              true if the message passes
+         */
+        private boolean test(Message message) {
+            boolean result = predicate.test(message);
+            count(result);
+            return result;
+        }
+
+        /**
+         * Counts a message the filter checked when metrics are collected
+         * @param result        true if the message passed
+         */
+        private void count(boolean result) {
+            if(checked == null) {
+                return;
+            }
+
+            checked.increment();
+
+            if(result) {
+                matches.increment();
+            }
+        }
+
+        /**
+         * @return      expected cost of each message this filter throws out
+         */
+        private double rank() {
+            return cost / Math.max(1 - passRate, 0.001);
+        }
+    }
+
+    /**
+     * Time spent in and messages passed by each filter
+     */
+    private static class Statistics {
+        private static final double TIMER_COST = timerCost(); // Taken off of every measurement
+
+        private final long[] nanos;
+        private final int[] passed;
+        private int count = 0;
+
+        private Statistics(int steps) {
+            this.nanos = new long[steps];
+            this.passed = new int[steps];
+        }
+
+        private boolean measure(Step step, Message message) {
+            long start = System.nanoTime();
+            boolean result = step.predicate.test(message);
+            nanos[step.id] += System.nanoTime() - start;
+
+            if(result) {
+                passed[step.id]++;
+            }
+
+            return result;
+        }
+
+        /**
+         * @return      nanoseconds spent reading the clock twice
+         */
+        private static double timerCost() {
+            long best = Long.MAX_VALUE;
+
+            for(int x = 0; x < 1000; x++) {
+                long start = System.nanoTime();
+                best = Math.min(best, System.nanoTime() - start);
+            }
+
+            return best;
+        }
+    }
+}
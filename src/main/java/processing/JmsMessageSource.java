@@ -0,0 +1,185 @@
+package processing;
+
+import message.Message;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import util.Metrics;
+import util.Settings;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * The JmsMessageSource program consumes the messages of a JMS
+ * queue. Messages are acknowledged a batch at a time once they
+ * have been handled, so anything that was not handled is sent
+ * again by the broker. Only streaming reads it, where a batch
+ * is handled once its matches have been written to the output
+ * file. The broker is never more than a batch ahead of the tool.
+ * The queue counts as drained once nothing has arrived for the
+ * idle timeout.
+ *
+ * @author Luciano Kholos
+ */
+public class JmsMessageSource implements MessageSource {
+    private final Connection connection;
+
+    private final MessageConsumer consumer;
+
+    private final long idleTimeout; // Milliseconds, 0 waits forever
+
+    private final Settings settings;
+
+    private final Quarantine quarantine;
+
+    private javax.jms.Message last; // Acknowledging it acknowledges everything before it
+
+    private static final Logger LOGGER = Logger.getLogger(JmsMessageSource.class.getName());
+
+    public JmsMessageSource(Settings settings) throws IOException {
+        this(settings, (Quarantine) null);
+    }
+
+    /**
+     * @param settings          settings
+     * @param quarantine        receives malformed data, null to skip the whole JMS message it is in
+     * @throws IOException      if the queue cannot be consumed from
+     */
+    public JmsMessageSource(Settings settings, Quarantine quarantine) throws IOException {
+        this(settings, createFactory(settings.getJmsBrokerUrl(), settings.getBatchSize()), quarantine);
+    }
+
+    public JmsMessageSource(Settings settings, ConnectionFactory factory) throws IOException {
+        this(settings, factory, null);
+    }
+
+    public JmsMessageSource(Settings settings, ConnectionFactory factory, Quarantine quarantine) throws IOException {
+        this.idleTimeout = settings.getJmsIdleTimeout() * 1000L;
+        this.settings = settings;
+        this.quarantine = quarantine;
+
+        if(settings.getJmsQueue() == null) {
+            throw new IOException("jms_queue has to be set to read from JMS");
+        }
+
+        try {
+            this.connection = factory.createConnection();
+        } catch (JMSException e) {
+            throw new IOException("Could not connect to the JMS broker", e);
+        }
+
+        try {
+            Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+            this.consumer = session.createConsumer(session.createQueue(settings.getJmsQueue()));
+            connection.start();
+        } catch (JMSException e) {
+            close();
+            throw new IOException("Could not consume from JMS queue " + settings.getJmsQueue(), e);
+        }
+    }
+
+    /**
+     * @param brokerUrl         ActiveMQ broker URL
+     * @param batchSize         most messages the broker sends ahead
+     * @return                  connection factory for the broker
+     */
+    private static ConnectionFactory createFactory(String brokerUrl, int batchSize) {
+        ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory(brokerUrl);
+        factory.getPrefetchPolicy().setQueuePrefetch(batchSize);
+
+        return factory;
+    }
+
+    @Override
+    public boolean nextBatch(List<Message> batch, int max) throws IOException {
+        try {
+            while(batch.size() < max) {
+                // Only waits for the first message, the rest of the batch is whatever has already arrived
+                javax.jms.Message message = !batch.isEmpty() ? consumer.receiveNoWait()
+                        : idleTimeout == 0 ? consumer.receive() : consumer.receive(idleTimeout);
+
+                if(message == null) {
+                    break;
+                }
+
+                last = message;
+                add(batch, message);
+            }
+        } catch (JMSException e) {
+            throw new IOException("Could not receive from the JMS queue", e);
+        }
+
+        return !batch.isEmpty();
+    }
+
+    /**
+     * Adds every JSON object in the body of a JMS message to the batch.
+     * Offsets in the quarantine are inside of the body. Without a
+     * quarantine, none of them are added if any of the body is malformed.
+     */
+    private void add(List<Message> batch, javax.jms.Message message) throws JMSException, IOException {
+        byte[] body;
+
+        if(message instanceof TextMessage) {
+            String text = ((TextMessage) message).getText();
+            body = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+        } else if(message instanceof BytesMessage) {
+            body = new byte[(int) ((BytesMessage) message).getBodyLength()];
+            ((BytesMessage) message).readBytes(body);
+        } else {
+            LOGGER.warning("Skipping JMS message " + message.getJMSMessageID() + " that has no text");
+            return;
+        }
+
+        if(body == null) {
+            return;
+        }
+
+        List<Message> messages = new ArrayList<>();
+
+        try(MessageSource source = new StreamMessageSource(settings, new ByteArrayInputStream(body), "JMS message " + message.getJMSMessageID(), quarantine)) {
+            source.nextBatch(messages, Integer.MAX_VALUE);
+            batch.addAll(messages); // Only once the whole body has been read
+        } catch (RuntimeException e) { // One bad message should not stop the queue
+            Metrics.malformedRecord();
+            LOGGER.warning("Malformed data in JMS message " + message.getJMSMessageID());
+        }
+    }
+
+    @Override
+    public void acknowledge() throws IOException {
+        if(last == null) {
+            return;
+        }
+
+        try {
+            last.acknowledge();
+            last = null;
+        } catch (JMSException e) {
+            throw new IOException("Could not acknowledge the JMS messages", e);
+        }
+    }
+
+    /**
+     * Closes the connection. Messages that were not
+     * acknowledged go back to the queue.
+     */
+    @Override
+    public void close() {
+        try {
+            connection.close();
+        } catch (JMSException e) {
+            LOGGER.warning("Could not close the JMS connection");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package processing;
+
+import com.google.gson.JsonParseException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The JsonObjectScanner program finds where top-level
+ * JSON values start and end by looking at the raw UTF-8
+ * bytes. It only keeps track of the nesting depth and
+ * whether it is inside of a string, so nothing is decoded.
+ *
+ * @author Luciano Kholos
+ */
+public class JsonObjectScanner {
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escaped = false;
+    private boolean lineBreak = false; // True if the value is spread over more than one line
+
+    /**
+     * Finds the start of the next top-level object or array.
+     * Whitespace in front of it is skipped.
+     * @param buffer        UTF-8 bytes
+     * @param position      position to start searching from
+     * @param limit         position to stop searching at
+     * @return              position of the '{' or '[' or -1 if there is only whitespace
+     */
+    public int findStart(ByteBuffer buffer, int position, int limit) {
+        int x = skipWhitespace(buffer, position, limit);
+
+        if(x < 0) {
+            return -1;
+        }
+
+        byte b = buffer.get(x);
+
+        if(b != '{' && b != '[') {
+            throw new JsonParseException("Expected a JSON object but found '" + (char) b + "'");
+        }
+
+        reset();
+        depth = 1;
+        return x;
+    }
+
+    /**
+     * @param buffer        UTF-8 bytes
+     * @param position      position to start searching from
+     * @param limit         position to stop searching at
+     * @return              position of the first byte that is not whitespace or -1 if there is none
+     */
+    public static int skipWhitespace(ByteBuffer buffer, int position, int limit) {
+        for(int x = position; x < limit; x++) {
+            if(!isWhitespace(buffer.get(x))) {
+                return x;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds where the next top-level object starts after malformed
+     * data, which is the next line that starts with '{'. It is the
+     * same boundary the ParallelJsonLoader splits the input file on.
+     * @param buffer        UTF-8 bytes
+     * @param position      position to start searching from
+     * @param limit         position to stop searching at
+     * @return              position of the '{' or -1 if there is none
+     */
+    public static int findBoundary(ByteBuffer buffer, int position, int limit) {
+        for(int x = Math.max(position, 1); x < limit; x++) {
+            if(buffer.get(x) == '{' && buffer.get(x - 1) == '\n') {
+                return x;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the end of the value that was found by findStart. The
+     * scanner remembers where it left off, so a value can be
+     * scanned over several calls.
+     * @param buffer        UTF-8 bytes
+     * @param position      position to continue scanning from
+     * @param limit         position to stop scanning at
+     * @return              position after the closing '}' or ']' or -1 if more bytes are needed
+     */
+    public int findEnd(ByteBuffer buffer, int position, int limit) {
+        for(int x = position; x < limit; x++) {
+            byte b = buffer.get(x);
+
+            if(inString) {
+                if(escaped) {
+                    escaped = false;
+                } else if(b == '\\') {
+                    escaped = true;
+                } else if(b == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+
+            if(b == '"') {
+                inString = true;
+            } else if(b == '\n' || b == '\r') {
+                lineBreak = true;
+            } else if(b == '{' || b == '[') {
+                depth++;
+            } else if(b == '}' || b == ']') {
+                depth--;
+
+                if(depth == 0) {
+                    return x + 1;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return      true if the value that was scanned has a line break in it
+     */
+    public boolean hasLineBreak() {
+        return lineBreak;
+    }
+
+    /**
+     * Forgets the value that is currently being scanned
+     */
+    public void reset() {
+        depth = 0;
+        inString = false;
+        escaped = false;
+        lineBreak = false;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
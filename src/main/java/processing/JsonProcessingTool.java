@@ -1,16 +1,21 @@
 package processing;
 
-import com.google.gson.*;
 import message.Message;
+import message.HeapMessageStore;
+import message.MessageFile;
 import message.MessageManager;
+import message.MessageStore;
+import message.OffHeapMessageStore;
+import message.SidecarIndex;
+import util.Compression;
+import util.InputFingerprint;
+import util.Metrics;
 import util.Settings;
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
 /**
  * The JsonProcessingTool program will load the
@@ -24,162 +29,632 @@ public class JsonProcessingTool {
 
     private final MessageManager manager;
 
+    private final LazyMessageParser lazyParser;
+
+    private SidecarIndex sidecar; // Set when the sidecar index answers the filters instead of the loaded messages
+
+    private ResultCache resultCache; // Only used with cache_results
+    private String query; // The filters and input file as the result cache knows them
+    private MessageFile inputFile; // Reads the cached matches
+    private List<Message> cached; // Set when the matches of the query were cached
+
+    private boolean complete = false; // True once every message has been loaded or the sidecar index answers the filters
+
+    private static final int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+
     private static final Logger LOGGER = Logger.getLogger(JsonProcessingTool.class.getName());
 
     public JsonProcessingTool(Settings settings) {
         this.settings = settings;
 
-        manager = new MessageManager(settings);
+        lazyParser = new LazyMessageParser(settings);
+        manager = new MessageManager(settings, createStore());
+    }
+
+    /**
+     * Creates the store that the loaded messages are kept in
+     * @return      store picked by the message_store setting
+     */
+    private MessageStore createStore() {
+        switch(settings.getMessageStore()) {
+            case "direct":
+                return new OffHeapMessageStore(false, lazyParser::toMessage);
+            case "mapped":
+                return new OffHeapMessageStore(true, lazyParser::toMessage);
+            default:
+                return new HeapMessageStore();
+        }
     }
 
     /**
      * This method will iterate through the input file
      * and load the messages into the MessageManagers
-     * container.
+     * container. Nothing is loaded when the matches of the
+     * query were cached, or when the input file has a
+     * sidecar index that can answer the filters. A JMS queue
+     * is only read by streamJsonMessages.
      */
     public void loadJsonMessages() {
-        Pattern pattern = Pattern.compile("[{}\",:]");
-
         if(!settings.doesInputExist()) {
             LOGGER.severe("Could not find [input.txt] make sure it is in the directory of the .jar file!");
             return;
         }
 
-        try (InputStream is = new FileInputStream(settings.getInputFilePath());
-             Reader r = new InputStreamReader(is, "UTF-8");) {
+        if(settings.getInputSource().equals("jms")) { // A batch would be acknowledged before its matches were written
+            LOGGER.severe("input_source=jms needs streaming=true, so nothing is acknowledged before it has been written");
+            return;
+        }
 
-            JsonStreamParser p = new JsonStreamParser(r);
+        InputFingerprint fingerprint = fingerprint();
 
-            while(p.hasNext()) { // Loops through each JSON object in the file
-                JsonElement e = p.next();
-                if (e.isJsonObject()) { // Validates the object
-                    JsonObject obj = e.getAsJsonObject();  // Converts it to a JSON Object
-                    JsonElement timestamp = obj.get("timeStamp"); // Gets the timeStamp
+        if(fingerprint != null && settings.isCacheResults() && readCache(fingerprint)) {
+            return;
+        }
 
-                    String originalJsonLine = e.toString(); // Un-edited JSON Object
-                    String strippedJsonLine = originalJsonLine; // Edited JSON Object
-                    strippedJsonLine = strippedJsonLine.replaceAll(pattern.toString(), " ");
+        boolean writeSidecar = false;
+        if(fingerprint != null && settings.isSidecarIndex()) {
+            try {
+                SidecarIndex index = SidecarIndex.open(settings.getSidecarFilePath(), settings.getInputFilePath(), fingerprint, settings.isQuarantineMalformed());
 
-                    //Timestamp of JSON Object - Also replaces " that are present after parsing
-                    String timestampRaw = timestamp.toString().replaceAll("\"", "");
+                if(index != null && SidecarIndex.canAnswer(settings)) {
+                    LOGGER.info("Answering the filters from sidecar index " + settings.getSidecarFilePath());
+                    sidecar = index;
+                    complete = true;
+                    return;
+                }
 
-                    List<String> args = extractArgs(Arrays.asList(strippedJsonLine.split(" ")));
+                if(index != null) { // Still up to date, but the regexes need the messages
+                    index.close();
+                } else {
+                    writeSidecar = true;
+                }
+            } catch (IOException e) {
+                LOGGER.warning("Could not read sidecar index " + settings.getSidecarFilePath() + ": " + e.getMessage());
+            }
+        }
 
-                    String regexStr = arrayToString(args);
+        complete = load();
 
-                    // Adds the message to the manager
-                    manager.addMessage(new Message(originalJsonLine, regexStr, args, settings.rawToDate(timestampRaw)));
+        if(complete && writeSidecar) {
+            try {
+                if(SidecarIndex.write(settings.getSidecarFilePath(), settings.getInputFilePath(), fingerprint, manager, settings.isQuarantineMalformed())) {
+                    LOGGER.info("Wrote sidecar index " + settings.getSidecarFilePath());
                 }
+            } catch (IOException e) {
+                LOGGER.warning("Could not write sidecar index " + settings.getSidecarFilePath() + ": " + e.getMessage());
             }
+        }
+    }
+
+    /**
+     * Takes the fingerprint of the input file before it is read,
+     * when the sidecar index or the result cache is used
+     * @return      fingerprint of the input file, or null if neither is used
+     */
+    private InputFingerprint fingerprint() {
+        if(!(settings.isSidecarIndex() && settings.getSidecarFilePath() != null)
+                && !(settings.isCacheResults() && settings.getCacheDirectory() != null)) {
+            return null;
+        }
+
+        if(!settings.isFileInput() || settings.getInputFiles().size() != 1 || isCompressedInput()) { // Only a single plain input file
+            return null;
+        }
 
-        } catch (Exception e) { // TODO: Make it so if malformed data is provided in the middle of a config, it will skip it and continue - as of right now it will just exit once it detects malformed data
-            LOGGER.severe("Malformed data provided in input.txt");
+        try {
+            return InputFingerprint.of(settings.getInputFilePath());
+        } catch (IOException e) {
+            LOGGER.warning("Could not read input.txt: " + e.getMessage());
+            return null;
         }
     }
 
     /**
-     * This method will run the MessageManagers methods on the
-     * input files messages. It will then filter and extract
-     * that data into the output file.
+     * Looks up the matches of the query in the result cache
+     * @param fingerprint       input file
+     * @return                  true if they were cached
+     */
+    private boolean readCache(InputFingerprint fingerprint) {
+        resultCache = new ResultCache(settings.getCacheDirectory(), settings.getCacheMaxBytes());
+        query = ResultCache.query(settings, fingerprint);
+
+        try {
+            inputFile = new MessageFile(settings.getInputFilePath());
+            cached = resultCache.get(query, inputFile);
+        } catch (IOException e) {
+            LOGGER.warning("Could not read the result cache " + settings.getCacheDirectory() + ": " + e.getMessage());
+        }
+
+        if(cached != null) {
+            LOGGER.info("Replaying the cached matches of this query from " + settings.getCacheDirectory());
+        }
+
+        return cached != null;
+    }
+
+    /**
+     * Loads every message of the input source
+     * @return      true if all of the input was read
+     */
+    private boolean load() {
+        try(Quarantine quarantine = openQuarantine(false)) {
+            if(settings.isParallelLoad() && settings.isFileInput() && !isCompressedInput()) {
+                try {
+                    for(Message message : new ParallelJsonLoader(settings, quarantine).load()) {
+                        manager.addMessage(message);
+                    }
+                    return true;
+                } catch (Exception e) { // The sequential load keeps every message before malformed data
+                    LOGGER.warning("Parallel load failed, loading input.txt sequentially");
+                }
+            }
+
+            try {
+                readJsonMessages(manager::addMessage, quarantine);
+                return true;
+            } catch (RuntimeException e) { // Only when malformed_input=stop, otherwise it is quarantined
+                Metrics.malformedRecord();
+                LOGGER.severe("Malformed data provided in input.txt");
+            }
+        } catch (IOException e) {
+            LOGGER.severe("Could not read input.txt: " + e.getMessage());
+        }
+
+        return false;
+    }
+
+    /**
+     * This method will iterate through the input file and run
+     * every filter on each message as soon as it is read. Matching
+     * messages are written straight to the output file, so nothing
+     * is kept in the MessageManagers container.
      * @throws IOException      if output file does not exist
      */
-    public void process() throws IOException {
-        ArrayList<Message> messages = new ArrayList<>();
+    public void streamJsonMessages() throws IOException {
+        if(!settings.doesInputExist()) {
+            LOGGER.severe("Could not find [input.txt] make sure it is in the directory of the .jar file!");
+            return;
+        }
 
-        if(settings.isTimeSearchActive()) {
-            messages.addAll(manager.getMessagesByDate());
-            manager.updateMessages(messages);
-            messages.clear();
+        if(!settings.doesOutputExist()) {
+            LOGGER.severe("Could not find [output.txt] make sure it is in the directory of the .jar file!");
+            return;
         }
 
-        if(settings.isStartKeywordActive()) {
-            messages.addAll(manager.getMessagesByStartKeyword(settings.getStartKeyword()));
-            manager.updateMessages(messages);
-            messages.clear();
+        try(MessageWriter writer = openOutput(false);
+            Quarantine quarantine = openQuarantine(false)) {
+            FilterPlan plan = FilterPlan.compile(settings, manager, false);
+            StreamingHandler handler = new StreamingHandler(writer, plan.newAdaptiveRun());
+
+            if(settings.isExplain()) {
+                LOGGER.info(plan.explain());
+            }
+
+            try {
+                readJsonMessages(handler, quarantine);
+            } catch (RuntimeException e) { // Only when malformed_input=stop
+                Metrics.malformedRecord();
+                LOGGER.severe("Malformed data provided in input.txt");
+            }
+
+            if(settings.isExplain()) { // The plan is reordered once the first messages have been sampled
+                LOGGER.info(handler.run.getPlan().explain());
+            }
+
+            LOGGER.info("Found " + handler.found + " message(s) that fit your specifications.");
         }
+    }
 
-        if(settings.isSearchKeywordActive()) {
-            messages.addAll(manager.getMessagesByKeyword());
-            manager.updateMessages(messages);
-            messages.clear();
+    /**
+     * This method will filter every input file at the same time
+     * and write the matches of all of them to the output file in
+     * timeStamp order.
+     * @throws IOException      if output file does not exist
+     */
+    public void processFiles() throws IOException {
+        if(!settings.doesOutputExist()) {
+            LOGGER.severe("Could not find [output.txt] make sure it is in the directory of the .jar file!");
+            return;
         }
 
-        messages = manager.getMessages();
+        if(settings.isExplain()) {
+            LOGGER.info(FilterPlan.compile(settings, manager, false).explain());
+        }
+
+        LOGGER.info("Processing " + settings.getInputFiles().size() + " input files on " + settings.getWorkerThreads() + " thread(s)");
+
+        try(MessageWriter writer = openOutput(false);
+            Quarantine quarantine = openQuarantine(false)) {
+            long found = new MultiFileProcessor(settings, quarantine).process(writer);
+
+            LOGGER.info("Found " + found + " message(s) that fit your specifications.");
+        }
+    }
+
+    /**
+     * This method will only read the messages that were added to
+     * the input file since the last run, and add the ones that
+     * match to the end of the output file. How far it got is kept
+     * in the checkpoint file. When a poll interval is set it keeps
+     * looking for new messages until it is stopped.
+     * @throws IOException      if output file does not exist
+     */
+    public void followJsonMessages() throws IOException {
+        if(!settings.isFileInput()) {
+            LOGGER.severe("Follow mode can only read an input_source of file");
+            return;
+        }
+
+        if(isCompressedInput()) {
+            LOGGER.severe("Follow mode cannot read a compressed input file");
+            return;
+        }
+
+        if(!settings.doesInputExist()) {
+            LOGGER.severe("Could not find [input.txt] make sure it is in the directory of the .jar file!");
+            return;
+        }
 
         if(!settings.doesOutputExist()) {
             LOGGER.severe("Could not find [output.txt] make sure it is in the directory of the .jar file!");
             return;
         }
 
-        LOGGER.info("Found " + messages.size() + " message(s) that fit your specifications.");
+        FilterPlan plan = FilterPlan.compile(settings, manager, false);
+
+        if(settings.isExplain()) {
+            LOGGER.info(plan.explain());
+        }
+
+        while(true) {
+            followOnce(plan);
+
+            if(settings.getPollInterval() == 0) {
+                return;
+            }
+
+            try {
+                Thread.sleep(settings.getPollInterval() * 1000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the input file from the checkpoint to the last
+     * message that has been completely written
+     * @param plan              filters
+     * @throws IOException      if the input, output or checkpoint file cannot be used
+     */
+    private void followOnce(FilterPlan plan) throws IOException {
+        String inputFilePath = settings.getInputFilePath();
+        Checkpoint checkpoint = Checkpoint.load(settings.getCheckpointFilePath());
+
+        if(checkpoint != null && !checkpoint.matches(inputFilePath)) {
+            LOGGER.warning("Input file has been replaced since the last run, reading it from the start");
+            checkpoint = null;
+        }
+
+        boolean append = checkpoint != null; // A new checkpoint starts a new output file
+        if(checkpoint == null) {
+            checkpoint = Checkpoint.empty();
+        }
+
+        long offset;
+        StreamingHandler handler;
+
+        try(MessageWriter writer = openOutput(append);
+            Quarantine quarantine = openQuarantine(append);
+            FileMessageSource source = new FileMessageSource(settings, inputFilePath, checkpoint.getOffset(), true, true, quarantine)) {
+            handler = new StreamingHandler(writer, plan.newAdaptiveRun(checkpoint.isStarted()));
+
+            try {
+                readJsonMessages(source, handler);
+            } catch (RuntimeException e) { // Only when malformed_input=stop, everything before the malformed data still counts
+                Metrics.malformedRecord();
+                LOGGER.severe("Malformed data provided in input.txt after byte " + source.position());
+            }
+
+            offset = source.position(); // The malformed data is read again by the next run
+        }
 
-        if(settings.isMultiLine()) {
-            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        // Only saved once the output has been written, so a message can be written twice but never lost
+        new Checkpoint(offset, handler.run.isStarted(), Checkpoint.checksum(inputFilePath, offset))
+                .save(settings.getCheckpointFilePath());
 
-            try(FileWriter writer = new FileWriter(settings.getOutputFilePath())) {
-                for(Message message : messages) {
-                    JsonElement obj = JsonParser.parseString(message.getContent());
+        LOGGER.info("Found " + handler.found + " new message(s) that fit your specifications.");
+    }
 
-                    String prettyJson = gson.toJson(obj);
+    /**
+     * This method will iterate through the input source
+     * and hand each message to the handler.
+     * @param handler           receives each message
+     * @param quarantine        receives malformed data, null to stop at it
+     * @throws IOException      if the input source cannot be read
+     */
+    private void readJsonMessages(MessageHandler handler, Quarantine quarantine) throws IOException {
+        try(MessageSource source = openSource(quarantine)) {
+            readJsonMessages(source, handler);
+        }
+    }
 
-                    writer.append(prettyJson + "\n");
+    /**
+     * Hands the messages of a source to the handler a batch at a
+     * time. A batch is only acknowledged once the handler is done
+     * with it, and the next one is not read before that. When the
+     * source stops at malformed data, the messages of the batch in
+     * front of it are still handled and flushed, but not acknowledged.
+     * @param source            input source
+     * @param handler           receives each message
+     * @throws IOException      if the input source cannot be read
+     */
+    private void readJsonMessages(MessageSource source, MessageHandler handler) throws IOException {
+        List<Message> batch = new ArrayList<>(settings.getBatchSize());
+
+        while(true) {
+            long start = Metrics.start();
+            try {
+                if(!source.nextBatch(batch, settings.getBatchSize())) {
+                    break;
                 }
+            } catch (RuntimeException e) { // Only when malformed_input=stop
+                handle(batch, handler);
+                throw e;
             }
-        } else {
-            try(FileWriter writer = new FileWriter(settings.getOutputFilePath())) {
-                for(Message message : messages) {
-                    writer.append(message.getContent() + "\n");
+            Metrics.stop(Metrics.Stage.READ, start);
+
+            handle(batch, handler);
+            source.acknowledge();
+            batch.clear();
+        }
+    }
+
+    private static void handle(List<Message> batch, MessageHandler handler) throws IOException {
+        for(Message message : batch) {
+            handler.handle(message);
+        }
+
+        handler.flush();
+    }
+
+    /**
+     * Opens the input source picked by the input_source setting
+     * @param quarantine        receives malformed data, null to stop at it
+     * @return                  the input source
+     * @throws IOException      if the input source cannot be opened
+     */
+    private MessageSource openSource(Quarantine quarantine) throws IOException {
+        switch(settings.getInputSource()) {
+            case "stdin":
+                return new StreamMessageSource(settings, System.in, "stdin", quarantine);
+            case "directory":
+                return new DirectoryMessageSource(settings, settings.getInputFilePath(), quarantine);
+            case "jms":
+                return new JmsMessageSource(settings, quarantine);
+            default:
+                return FileMessageSource.open(settings, settings.getInputFilePath(), true, quarantine);
+        }
+    }
+
+    /**
+     * Opens the quarantine file when malformed data is to be skipped
+     * @param append            true to add to the end of the quarantine file instead of replacing it
+     * @return                  the quarantine or null to stop at malformed data
+     * @throws IOException      if the old quarantine file cannot be removed
+     */
+    private Quarantine openQuarantine(boolean append) throws IOException {
+        if(!settings.isQuarantineMalformed() || settings.getQuarantineFilePath() == null) {
+            return null;
+        }
+
+        return new Quarantine(settings.getQuarantineFilePath(), append);
+    }
+
+    /**
+     * This method will run the filter plan on the input files
+     * messages. It will then filter and extract that data into
+     * the output file.
+     * @throws IOException      if output file does not exist
+     */
+    public void process() throws IOException {
+        if(cached != null) {
+            if(settings.isExplain()) {
+                LOGGER.info("Filter plan (result cache)\n  every match was cached by an earlier run of the same query");
+            }
+
+            writeMatches(cached);
+            return;
+        }
+
+        if(sidecar != null) {
+            processIndexed();
+            return;
+        }
+
+        FilterPlan plan = FilterPlan.compile(settings, manager, true).sample(manager.getMessages());
+
+        if(settings.isExplain()) {
+            LOGGER.info(plan.explain());
+        }
+
+        if(!plan.isEmpty()) {
+            FilterPlan.Run run = plan.newRun();
+            ArrayList<Message> messages = new ArrayList<>();
+
+            for(Message message : manager.getMessages()) {
+                long start = Metrics.start();
+                boolean passed = run.test(message);
+                Metrics.stop(Metrics.Stage.FILTER, start);
+
+                if(passed) {
+                    messages.add(message);
                 }
             }
+
+            manager.updateMessages(messages);
+        }
+
+        cacheMatches(manager.getMessages());
+        writeMatches(manager.getMessages());
+    }
+
+    /**
+     * Answers the filters with the sidecar index and writes the
+     * matching messages to the output file. Only the matching
+     * messages are read from the input file.
+     * @throws IOException      if output file does not exist
+     */
+    private void processIndexed() throws IOException {
+        int[] ids = sidecar.lookup(settings);
+
+        if(settings.isExplain()) {
+            LOGGER.info("Filter plan (sidecar index)\n  answered by " + settings.getSidecarFilePath() + " without reading the messages");
         }
+
+        List<Message> messages = new ArrayList<>(ids.length);
+        for(int id : ids) {
+            messages.add(sidecar.get(id));
+        }
+
+        cacheMatches(messages);
+        writeMatches(messages);
     }
 
     /**
-     * Extracts the properties/body from the raw json message
-     * @param args      raw message (in array form)
-     * @return          properties/body of the message
+     * Keeps the matches in the result cache, once every message has been checked
+     * @param messages      matching messages
      */
-    private List<String> extractArgs(List<String> args) {
-        List<String> noSpacesArray = new ArrayList<>();
-        List<String> finalArray = new ArrayList<>();
+    private void cacheMatches(List<Message> messages) {
+        if(resultCache == null || !complete) {
+            return;
+        }
 
-        // Strips array elements that are empty
-        for(String arg : args) {
-            if(!arg.isEmpty()) {
-                noSpacesArray.add(arg);
+        try {
+            resultCache.put(query, messages);
+        } catch (IOException e) {
+            LOGGER.warning("Could not write the result cache " + settings.getCacheDirectory() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the matching messages to the output file
+     * @param messages          matching messages
+     * @throws IOException      if output file does not exist
+     */
+    private void writeMatches(List<Message> messages) throws IOException {
+        if(!settings.doesOutputExist()) {
+            LOGGER.severe("Could not find [output.txt] make sure it is in the directory of the .jar file!");
+            return;
+        }
+
+        LOGGER.info("Found " + messages.size() + " message(s) that fit your specifications.");
+
+        try(MessageWriter writer = openOutput(false)) {
+            for(Message message : messages) {
+                writer.write(message);
             }
+        } catch (UncheckedIOException e) { // Messages that are only known by their location could not be read
+            throw e.getCause();
         }
+    }
 
-        /*
-        Skips the first 8 elements of the array - Also removes the "body" key.
-        Input: 0: timeStamp 1: 07-01-2020 2: 01 3: 59 4: 51 5: delayMillis 6: 13953 7: properties 8: body 9: This 10: is 11: a 12: search 13: string
-        Output: 8: body 9: This 10: is 11: a 12: search 13: string
-         */
-        for(int x = 0; x < noSpacesArray.size(); x++) {
-            if(x > 7) {
-                if(!noSpacesArray.get(x).equalsIgnoreCase("body")) {
-                    //System.out.print(x + ": " + noSpacesArray.get(x) + " ");
-                    finalArray.add(noSpacesArray.get(x));
+    /**
+     * Opens the output file. Single-line output is copied straight
+     * from the input file when zero-copy output is on, unless the
+     * output is compressed.
+     * @param append            true to add to the end of the output file instead of replacing it
+     * @return                  writer for the output file
+     * @throws IOException      if the output file cannot be opened
+     */
+    private MessageWriter openOutput(boolean append) throws IOException {
+        Compression compression = settings.getOutputCompression();
+
+        if(settings.isZeroCopyOutput() && !settings.isMultiLine() && settings.isFileInput() && settings.getInputFiles().size() == 1
+                && compression == Compression.NONE) {
+            return new SpanWriter(settings.getInputFilePath(), settings.getOutputFilePath(), append);
+        }
+
+        // Appending to a compressed output file adds more blocks after the ones that are there
+        OutputStream os = compression.compress(Metrics.countWritten(new FileOutputStream(settings.getOutputFilePath(), append)));
+
+        return new TextMessageWriter(new BufferedWriter(new OutputStreamWriter(os), OUTPUT_BUFFER_SIZE), settings.isMultiLine());
+    }
+
+    /**
+     * @return      true if the input file is compressed, so it can only be read as a stream
+     */
+    private boolean isCompressedInput() {
+        try {
+            return Compression.detect(settings.getInputFilePath()) != Compression.NONE;
+        } catch (IOException e) { // Left for the reader to report
+            return false;
+        }
+    }
+
+    /**
+     * @return      loaded messages
+     */
+    public MessageManager getManager() {
+        return manager;
+    }
+
+    /**
+     * Frees the loaded messages, which matters when
+     * they are kept off of the heap, and the input file
+     * when it is read by the sidecar index or the result cache
+     */
+    public void close() {
+        manager.close();
+
+        for(Closeable closeable : new Closeable[] { sidecar, inputFile }) {
+            if(closeable != null) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    LOGGER.warning("Could not close the input file: " + e.getMessage());
                 }
             }
         }
 
-        //System.out.println();
-        return finalArray;
+        sidecar = null;
+        inputFile = null;
     }
 
     /**
-     * Converts Lists to Strings
-     * @param arr       List
-     * @return          String
+     * Runs the filter plan on each message as it is read
+     * and writes the matching messages to the output file.
      */
-    private String arrayToString(List<String> arr) {
-        StringBuilder builder = new StringBuilder();
+    private class StreamingHandler implements MessageHandler {
+        private final MessageWriter writer;
+
+        private final FilterPlan.Run run;
+
+        private int found = 0;
 
-        for(String str : arr) {
-            builder.append(str + " ");
+        private StreamingHandler(MessageWriter writer, FilterPlan.Run run) {
+            this.writer = writer;
+            this.run = run;
         }
 
-        return builder.toString();
+        @Override
+        public void handle(Message message) throws IOException {
+            long start = Metrics.start();
+            boolean passed = run.test(message);
+            Metrics.stop(Metrics.Stage.FILTER, start);
+
+            if(!passed) {
+                return;
+            }
+
+            writer.write(message);
+            found++;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
     }
-}
\ No newline at end of file
+}
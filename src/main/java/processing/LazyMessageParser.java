@@ -0,0 +1,322 @@
+package processing;
+
+import com.google.gson.JsonParseException;
+import message.Message;
+import util.JsonText;
+import util.Metrics;
+import util.Settings;
+import util.TimestampParser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The LazyMessageParser program converts the raw bytes of a JSON
+ * object into a Message in a single pass. It picks out the timeStamp
+ * and splits the object into tokens without building a Gson tree or
+ * re-serializing the object. The single-line form of the object is
+ * only created once something asks for the Message's content.
+ *
+ * @author Luciano Kholos
+ */
+public class LazyMessageParser {
+    private static final byte[] TIMESTAMP_KEY = "timeStamp".getBytes(StandardCharsets.UTF_8);
+
+    private final Settings settings;
+
+    public LazyMessageParser(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Converts the raw bytes of a JSON object into a Message
+     * @param buffer        UTF-8 bytes
+     * @param start         position of the object's '{'
+     * @param end           position after the object's '}'
+     * @return              Message
+     */
+    public Message toMessage(ByteBuffer buffer, int start, int end) {
+        byte[] raw = new byte[end - start];
+
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(start);
+        slice.get(raw);
+
+        return toMessage(raw);
+    }
+
+    /**
+     * Converts the raw bytes of a JSON object into a Message. The tokens
+     * are the same ones MessageParser gets from Gson's single-line form.
+     * @param raw       UTF-8 bytes of the object
+     * @return          Message
+     */
+    public Message toMessage(byte[] raw) {
+        long start = Metrics.start();
+        Tokens tokens = new Tokens(raw);
+
+        int depth = 0;
+        boolean inString = false;
+        boolean expectKey = false;
+        boolean readingKey = false;
+        boolean readingTimestamp = false;
+        boolean timestampKey = false;
+        boolean timestampFound = false;
+        boolean timestampEscaped = false;
+        int keyStart = 0;
+        int timestampStart = -1;
+        int timestampEnd = -1;
+
+        for(int x = 0; x < raw.length; x++) {
+            byte b = raw[x];
+
+            if(inString) {
+                if(b == '"') {
+                    inString = false;
+                    tokens.end(x);
+
+                    if(readingKey) {
+                        timestampKey = depth == 1 && isKey(raw, keyStart, x, TIMESTAMP_KEY);
+                        timestampFound |= timestampKey;
+                        readingKey = false;
+                    }
+
+                    if(readingTimestamp) {
+                        timestampEnd = x;
+                        readingTimestamp = false;
+                    }
+                    continue;
+                }
+
+                // Printable characters are written the same way by Gson, everything else has to be escaped first
+                if((b >= 0x20 && b != '\\') || (b < 0 && b != (byte) 0xE2)) {
+                    if(b == ' ' || b == '{' || b == '}' || b == ',' || b == ':') {
+                        tokens.end(x);
+                    } else {
+                        x = tokens.add(x);
+                    }
+                } else {
+                    timestampEscaped |= readingTimestamp;
+                    x = tokens.addEscaped(x);
+                }
+                continue;
+            }
+
+            switch(b) {
+                case '"':
+                    tokens.end(x);
+                    inString = true;
+
+                    if(depth == 1 && expectKey) {
+                        readingKey = true;
+                        keyStart = x + 1;
+                        expectKey = false;
+                    } else if(depth == 1 && timestampKey) {
+                        readingTimestamp = true;
+                        timestampStart = x + 1;
+                        timestampKey = false;
+                    }
+                    break;
+                case '{':
+                    tokens.end(x);
+                    depth++;
+                    expectKey = depth == 1;
+                    timestampKey = false;
+                    break;
+                case '}':
+                    tokens.end(x);
+                    depth--;
+                    break;
+                case ',':
+                    tokens.end(x);
+                    if(depth == 1) {
+                        expectKey = true;
+                        timestampKey = false;
+                    }
+                    break;
+                case ':':
+                    tokens.end(x);
+                    break;
+                case ' ':
+                case '\t':
+                case '\n':
+                case '\r':
+                    tokens.skip(x); // Whitespace outside of strings is not part of the single-line form
+                    break;
+                case '[':
+                    depth++;
+                    x = tokens.add(x);
+                    timestampKey = false;
+                    break;
+                case ']':
+                    depth--;
+                    x = tokens.add(x);
+                    break;
+                default:
+                    x = tokens.add(x); // Numbers, true, false and null
+                    timestampKey = false;
+            }
+        }
+
+        tokens.end(raw.length);
+
+        if(!timestampFound) {
+            throw new JsonParseException("JSON object does not have a timeStamp");
+        }
+
+        List<String> args = MessageParser.extractArgs(tokens.list);
+        String regexContent = MessageParser.arrayToString(args);
+        Metrics.stop(Metrics.Stage.TOKENIZE, start);
+
+        start = Metrics.start();
+        long timestamp = Message.NO_TIMESTAMP;
+        if(timestampEnd >= 0) {
+            timestamp = timestampEscaped ? settings.rawToMillis(decode(raw, timestampStart, timestampEnd)) : TimestampParser.parse(raw, timestampStart, timestampEnd);
+        }
+        Metrics.stop(Metrics.Stage.TIMESTAMP, start);
+
+        return new Message(raw, regexContent, args, timestamp);
+    }
+
+    /**
+     * Decodes a string value that contains escape sequences the
+     * same way Gson writes it, without the quotes.
+     */
+    private static String decode(byte[] raw, int start, int end) {
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        StringBuilder builder = new StringBuilder();
+
+        for(int x = start; x < end; x++) {
+            if(raw[x] == '\\') {
+                x = JsonText.appendEscape(buffer, x, end, builder);
+            } else {
+                x = JsonText.appendChar(buffer, x, end, builder);
+            }
+        }
+
+        return builder.toString().replace("\"", "");
+    }
+
+    /**
+     * @return      true if the raw key between start and end is the same as key
+     */
+    private static boolean isKey(byte[] raw, int start, int end, byte[] key) {
+        if(end - start != key.length) {
+            return false;
+        }
+
+        for(int x = 0; x < key.length; x++) {
+            if(raw[start + x] != key[x]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Splits the raw bytes into tokens. Most tokens are a single run of
+     * bytes that is turned into a String in one go. Tokens with escape
+     * sequences or whitespace in the middle are built one character at
+     * a time instead.
+     */
+    private static class Tokens {
+        private final byte[] raw;
+        private final ByteBuffer buffer;
+
+        private final List<String> list = new ArrayList<>();
+
+        private int start = -1; // Start of the current run of bytes
+        private StringBuilder builder; // Only used by tokens that are not a single run of bytes
+        private final StringBuilder scratch = new StringBuilder(8);
+
+        private Tokens(byte[] raw) {
+            this.raw = raw;
+            this.buffer = ByteBuffer.wrap(raw);
+        }
+
+        /**
+         * Adds the character at a position to the current token
+         * @return      position of the last byte of the character
+         */
+        private int add(int position) {
+            if(builder == null) {
+                if(start < 0) {
+                    start = position;
+                }
+                return position;
+            }
+
+            return JsonText.appendChar(buffer, position, raw.length, builder);
+        }
+
+        /**
+         * Adds a character that Gson would escape. The escaped form
+         * can contain a '"', which ends the token.
+         * @return      position of the last byte of the character
+         */
+        private int addEscaped(int position) {
+            toBuilder(position);
+
+            scratch.setLength(0);
+            int last = raw[position] == '\\' ? JsonText.appendEscape(buffer, position, raw.length, scratch) : JsonText.appendChar(buffer, position, raw.length, scratch);
+
+            for(int x = 0; x < scratch.length(); x++) {
+                char c = scratch.charAt(x);
+
+                if(c == ' ' || c == '{' || c == '}' || c == '"' || c == ',' || c == ':') {
+                    end(position);
+                } else {
+                    if(builder == null) {
+                        builder = new StringBuilder();
+                    }
+                    builder.append(c);
+                }
+            }
+
+            return last;
+        }
+
+        /**
+         * Skips whitespace without ending the current token
+         */
+        private void skip(int position) {
+            if(start >= 0) {
+                toBuilder(position);
+            }
+        }
+
+        /**
+         * Ends the current token
+         * @param position      position after the last byte of the token
+         */
+        private void end(int position) {
+            if(builder != null) {
+                if(builder.length() > 0) {
+                    list.add(builder.toString());
+                }
+                builder = null;
+            } else if(start >= 0) {
+                list.add(new String(raw, start, position - start, StandardCharsets.UTF_8));
+            }
+
+            start = -1;
+        }
+
+        /**
+         * Moves the current run of bytes into the builder
+         */
+        private void toBuilder(int position) {
+            if(builder == null) {
+                builder = new StringBuilder();
+            }
+
+            if(start >= 0) {
+                builder.append(new String(raw, start, position - start, StandardCharsets.UTF_8));
+                start = -1;
+            }
+        }
+    }
+}
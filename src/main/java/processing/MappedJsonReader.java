@@ -0,0 +1,272 @@
+package processing;
+
+import com.google.gson.JsonParseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The MappedJsonReader program reads the input file through
+ * FileChannel.map and walks the mapped UTF-8 bytes one top-level
+ * object at a time. Only the object that is currently being read
+ * has to be decoded. Files larger than 2GB are read through a
+ * sequence of mapped windows. Reading can start part way into
+ * the file, and a file that is still being written to can end
+ * in the middle of an object. Malformed data is handed out as a
+ * value of its own that ends where the next object starts, so
+ * the caller can skip it and carry on.
+ *
+ * @author Luciano Kholos
+ */
+public class MappedJsonReader implements Closeable {
+    private static final long WINDOW_SIZE = 512 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private final boolean growing; // The last object may still be being written
+
+    private final JsonObjectScanner scanner = new JsonObjectScanner();
+
+    private MappedByteBuffer window;
+    private long windowStart = 0;
+    private int position = 0;
+
+    // Span of the current object inside of the window
+    private int start = -1;
+    private int end = -1;
+    private String error; // Why the current value is malformed, null if it is not
+
+    public MappedJsonReader(String inputFilePath) throws IOException {
+        this(inputFilePath, 0, false, WINDOW_SIZE);
+    }
+
+    /**
+     * @param inputFilePath     input file
+     * @param offset            position in the input file to start reading at
+     * @param growing           true if the file is still being written to, so next() stops at an
+     *                          object that is not finished instead of throwing
+     * @throws IOException      if the input file cannot be opened
+     */
+    public MappedJsonReader(String inputFilePath, long offset, boolean growing) throws IOException {
+        this(inputFilePath, offset, growing, WINDOW_SIZE);
+    }
+
+    MappedJsonReader(String inputFilePath, long windowSize) throws IOException {
+        this(inputFilePath, 0, false, windowSize);
+    }
+
+    private MappedJsonReader(String inputFilePath, long offset, boolean growing, long windowSize) throws IOException {
+        this.channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ);
+        this.size = channel.size(); // Anything written after this is left for the next reader
+        this.windowSize = windowSize;
+        this.growing = growing;
+
+        if(offset > size) {
+            channel.close();
+            throw new IOException("Offset " + offset + " is past the end of the " + size + " byte input file");
+        }
+
+        map(offset);
+    }
+
+    /**
+     * Moves to the next top-level JSON value in the file
+     * @return                  false if there are no more values
+     * @throws IOException      if the input file cannot be read
+     */
+    public boolean next() throws IOException {
+        error = null;
+
+        while(true) {
+            try {
+                start = scanner.findStart(window, position, window.limit());
+            } catch (JsonParseException e) { // Something other than a value is in between them
+                start = JsonObjectScanner.skipWhitespace(window, position, window.limit());
+                return malformed(e.getMessage());
+            }
+
+            if(start < 0) { // Only whitespace left in this window
+                if(isLastWindow()) {
+                    return false;
+                }
+
+                map(windowStart + window.limit());
+                continue;
+            }
+
+            end = scanner.findEnd(window, start + 1, window.limit());
+
+            if(end >= 0) {
+                position = end;
+                return true;
+            }
+
+            // The value continues past the end of the window
+            if(isLastWindow()) {
+                if(JsonObjectScanner.findBoundary(window, start + 1, window.limit()) >= 0) { // Never closed, the next object has started
+                    return malformed("Unexpected start of the next object");
+                }
+
+                if(growing) { // Read again once the rest of it has been written
+                    return false;
+                }
+
+                return malformed("Unexpected end of input");
+            }
+
+            if(start == 0) {
+                if(JsonObjectScanner.findBoundary(window, 1, window.limit()) >= 0) { // Never closed, the next object has started
+                    return malformed("Unexpected start of the next object");
+                }
+
+                throw new IOException("JSON object at byte " + windowStart + " is larger than the " + windowSize + " byte window");
+            }
+
+            map(windowStart + start);
+        }
+    }
+
+    /**
+     * Makes the malformed data the current value. It ends where the
+     * next object starts, or at the end of the window if none does.
+     * The position stays in front of it until it is skipped.
+     * @param reason        why the data is malformed
+     * @return              true
+     */
+    private boolean malformed(String reason) {
+        int boundary = JsonObjectScanner.findBoundary(window, start + 1, window.limit());
+
+        end = boundary < 0 ? window.limit() : boundary;
+        error = reason;
+        scanner.reset();
+
+        return true;
+    }
+
+    /**
+     * Moves past the current value after it could not be used. A value
+     * that runs into the next object is cut off where that one starts,
+     * so the next call to next() reads it.
+     */
+    public void skip() {
+        int boundary = JsonObjectScanner.findBoundary(window, start + 1, end);
+
+        if(boundary >= 0) {
+            end = boundary;
+        }
+
+        position = end;
+    }
+
+    /**
+     * @return      true if the current value is malformed data
+     */
+    public boolean isMalformed() {
+        return error != null;
+    }
+
+    /**
+     * @return      why the current value is malformed, null if it is not
+     */
+    public String error() {
+        return error;
+    }
+
+    /**
+     * @return      true if the current value is a JSON object
+     */
+    public boolean isObject() {
+        return window.get(start) == '{';
+    }
+
+    /**
+     * @return      the bytes of the current value
+     */
+    public ByteBuffer buffer() {
+        return window;
+    }
+
+    /**
+     * @return      start of the current value inside of buffer()
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return      end of the current value inside of buffer()
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * @return      position of the current value in the input file
+     */
+    public long offset() {
+        return windowStart + start;
+    }
+
+    /**
+     * @return      position in the input file right after the last value that was read
+     */
+    public long position() {
+        return windowStart + position;
+    }
+
+    /**
+     * @return      true if the current value is on a single line
+     */
+    public boolean isSingleLine() {
+        return !scanner.hasLineBreak();
+    }
+
+    /**
+     * @return      true if a newline comes right after the current value
+     */
+    public boolean isFollowedByNewline() {
+        return end < window.limit() && window.get(end) == '\n';
+    }
+
+    /**
+     * Decodes only the current value
+     * @return      the current value as a String
+     */
+    public String decode() {
+        byte[] bytes = new byte[end - start];
+
+        ByteBuffer slice = window.duplicate();
+        slice.position(start);
+        slice.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean isLastWindow() {
+        return windowStart + window.limit() >= size;
+    }
+
+    /**
+     * Maps the window that starts at a position in the input file
+     * @param offset            position in the input file
+     * @throws IOException      if the input file cannot be mapped
+     */
+    private void map(long offset) throws IOException {
+        windowStart = offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, size - offset));
+        position = 0;
+        scanner.reset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
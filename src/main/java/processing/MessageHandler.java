@@ -0,0 +1,22 @@
+package processing;
+
+import message.Message;
+
+import java.io.IOException;
+
+/**
+ * Receives each message as soon as it has
+ * been read from the input source.
+ *
+ * @author Luciano Kholos
+ */
+public interface MessageHandler {
+    void handle(Message message) throws IOException;
+
+    /**
+     * Called after each batch of messages, before the batch is acknowledged
+     * @throws IOException      if the handled messages could not be written
+     */
+    default void flush() throws IOException {
+    }
+}
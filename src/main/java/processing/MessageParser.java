@@ -0,0 +1,112 @@
+package processing;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import message.Message;
+import util.Metrics;
+import util.Settings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The MessageParser program converts parsed JSON
+ * objects into Messages. It does not keep any state
+ * so it can be shared between threads.
+ *
+ * @author Luciano Kholos
+ */
+public class MessageParser {
+    private final Settings settings;
+
+    private static final Pattern STRIP_PATTERN = Pattern.compile("[{}\",:]");
+
+    public MessageParser(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Converts a JSON object into a Message
+     * @param e         JSON object
+     * @return          Message
+     */
+    public Message toMessage(JsonElement e) {
+        JsonObject obj = e.getAsJsonObject();  // Converts it to a JSON Object
+        JsonElement timestamp = obj.get("timeStamp"); // Gets the timeStamp
+
+        if(timestamp == null) {
+            throw new JsonParseException("JSON object does not have a timeStamp");
+        }
+
+        String originalJsonLine = e.toString(); // Un-edited JSON Object
+
+        long start = Metrics.start();
+        String strippedJsonLine = originalJsonLine; // Edited JSON Object
+        strippedJsonLine = STRIP_PATTERN.matcher(strippedJsonLine).replaceAll(" ");
+
+        List<String> args = extractArgs(Arrays.asList(strippedJsonLine.split(" ")));
+
+        String regexStr = arrayToString(args);
+        Metrics.stop(Metrics.Stage.TOKENIZE, start);
+
+        //Timestamp of JSON Object - Also replaces " that are present after parsing
+        start = Metrics.start();
+        String timestampRaw = timestamp.toString().replaceAll("\"", "");
+        long millis = settings.rawToMillis(timestampRaw);
+        Metrics.stop(Metrics.Stage.TIMESTAMP, start);
+
+        return new Message(originalJsonLine, regexStr, args, millis);
+    }
+
+    /**
+     * Extracts the properties/body from the raw json message
+     * @param args      raw message (in array form)
+     * @return          properties/body of the message
+     */
+    static List<String> extractArgs(List<String> args) {
+        List<String> noSpacesArray = new ArrayList<>();
+        List<String> finalArray = new ArrayList<>();
+
+        // Strips array elements that are empty
+        for(String arg : args) {
+            if(!arg.isEmpty()) {
+                noSpacesArray.add(arg);
+            }
+        }
+
+        /*
+        Skips the first 8 elements of the array - Also removes the "body" key.
+        Input: 0: timeStamp 1: 07-01-2020 2: 01 3: 59 4: 51 5: delayMillis 6: 13953 7: properties 8: body 9: This 10: is 11: a 12: search 13: string
+        Output: 8: body 9: This 10: is 11: a 12: search 13: string
+         */
+        for(int x = 0; x < noSpacesArray.size(); x++) {
+            if(x > 7) {
+                if(!noSpacesArray.get(x).equalsIgnoreCase("body")) {
+                    //System.out.print(x + ": " + noSpacesArray.get(x) + " ");
+                    finalArray.add(noSpacesArray.get(x));
+                }
+            }
+        }
+
+        //System.out.println();
+        return finalArray;
+    }
+
+    /**
+     * Converts Lists to Strings
+     * @param arr       List
+     * @return          String
+     */
+    static String arrayToString(List<String> arr) {
+        StringBuilder builder = new StringBuilder();
+
+        for(String str : arr) {
+            builder.append(str + " ");
+        }
+
+        return builder.toString();
+    }
+}
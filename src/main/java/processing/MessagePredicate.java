@@ -0,0 +1,13 @@
+package processing;
+
+import message.Message;
+
+/**
+ * A single filter that a message either
+ * passes or fails.
+ *
+ * @author Luciano Kholos
+ */
+public interface MessagePredicate {
+    boolean test(Message message);
+}
@@ -0,0 +1,33 @@
+package processing;
+
+import message.Message;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Hands out the messages that the JsonProcessingTool works on, one
+ * batch at a time. A source only reads as far ahead as the batch it
+ * was asked for, so a slow output slows the source down instead of
+ * piling messages up in memory. Once a batch has been handled it is
+ * acknowledged, which lets sources like a queue forget about it.
+ *
+ * @author Luciano Kholos
+ */
+public interface MessageSource extends Closeable {
+    /**
+     * Reads the next batch of messages
+     * @param batch             receives messages until it holds max of them
+     * @param max               most messages the batch can hold
+     * @return                  false if the batch is empty because the source has no more messages
+     * @throws IOException      if the source cannot be read
+     */
+    boolean nextBatch(List<Message> batch, int max) throws IOException;
+
+    /**
+     * Marks every message handed out so far as handled
+     * @throws IOException      if the source could not be told
+     */
+    void acknowledge() throws IOException;
+}
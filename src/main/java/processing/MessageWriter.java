@@ -0,0 +1,17 @@
+package processing;
+
+import message.Message;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes the messages that fit the specifications
+ * to the output, one after another.
+ *
+ * @author Luciano Kholos
+ */
+public interface MessageWriter extends Closeable, Flushable {
+    void write(Message message) throws IOException;
+}
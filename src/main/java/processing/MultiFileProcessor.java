@@ -0,0 +1,354 @@
+package processing;
+
+import message.Message;
+import message.MessageManager;
+import util.Metrics;
+import util.Settings;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * The MultiFileProcessor program filters many input files at the
+ * same time on a fixed number of worker threads. The matches of
+ * each file are written to a temporary file, and once every file
+ * is done they are merged into one output in timeStamp order.
+ * The largest files are started first, so the whole batch takes
+ * about as long as the largest file when there are enough threads.
+ *
+ * The files count as one input in the order of their names: once
+ * the start keyword has matched in a file, every later file is
+ * treated as started from its first message.
+ *
+ * @author Luciano Kholos
+ */
+public class MultiFileProcessor {
+    private final Settings settings;
+
+    private final Quarantine quarantine;
+
+    private static final Logger LOGGER = Logger.getLogger(MultiFileProcessor.class.getName());
+
+    public MultiFileProcessor(Settings settings) {
+        this(settings, null);
+    }
+
+    /**
+     * @param settings          settings
+     * @param quarantine        receives the malformed data of every input file, null to stop at it
+     */
+    public MultiFileProcessor(Settings settings, Quarantine quarantine) {
+        this.settings = settings;
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Filters every input file and writes the matches in timeStamp order
+     * @param writer            receives the matches
+     * @return                  how many messages were written
+     * @throws IOException      if an input file cannot be read or the output cannot be written
+     */
+    public long process(MessageWriter writer) throws IOException {
+        List<String> files = settings.getInputFiles();
+        Matches[] matches = new Matches[files.size()];
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(settings.getWorkerThreads(), files.size()));
+
+        try {
+            List<Future<Matches>> futures = new ArrayList<>();
+            Integer[] order = largestFirst(files);
+
+            for(int index : order) {
+                futures.add(pool.submit(() -> filter(files.get(index))));
+            }
+
+            for(int x = 0; x < order.length; x++) {
+                matches[order[x]] = futures.get(x).get();
+            }
+
+            return merge(matches, writer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while filtering the input files");
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+
+            throw new IOException("Could not filter the input files", e.getCause());
+        } finally {
+            pool.shutdownNow();
+
+            for(Matches match : matches) {
+                if(match != null) {
+                    Files.deleteIfExists(match.path);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return      indexes of the files, largest file first
+     */
+    private static Integer[] largestFirst(List<String> files) throws IOException {
+        long[] sizes = new long[files.size()];
+        Integer[] order = new Integer[files.size()];
+
+        for(int x = 0; x < files.size(); x++) {
+            sizes[x] = Files.size(Paths.get(files.get(x)));
+            order[x] = x;
+        }
+
+        Arrays.sort(order, Comparator.comparingLong((Integer x) -> sizes[x]).reversed());
+        return order;
+    }
+
+    /**
+     * Filters one input file into a temporary file
+     * @param file      input file
+     * @return          where the matches are and whether the start keyword matched
+     */
+    private Matches filter(String file) {
+        // The filters keep state, so each file gets its own
+        FilterPlan plan = FilterPlan.compile(settings, new MessageManager(settings), false);
+        FilterPlan.Run run = plan.newAdaptiveRun();
+
+        // What would pass if the start keyword already matched in an earlier file
+        FilterPlan.Run startedRun = run.isStarted() ? null : plan.newAdaptiveRun(true);
+
+        try {
+            Matches matches = new Matches(Files.createTempFile("matches", ".run"));
+            matches.path.toFile().deleteOnExit();
+
+            long last = Long.MIN_VALUE;
+            boolean sorted = true;
+
+            try(MessageSource source = FileMessageSource.open(settings, file, false, quarantine);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(matches.path)))) {
+                List<Message> batch = new ArrayList<>(settings.getBatchSize());
+
+                while(true) {
+                    long read = Metrics.start();
+                    RuntimeException malformed = null;
+                    try {
+                        if(!source.nextBatch(batch, settings.getBatchSize())) {
+                            break;
+                        }
+                        Metrics.stop(Metrics.Stage.READ, read);
+                    } catch (RuntimeException e) { // The messages in front of the malformed data are still filtered
+                        malformed = e;
+                    }
+
+                    for(Message message : batch) {
+                        long start = Metrics.start();
+                        boolean beforeStart = !run.isStarted();
+                        boolean passed = run.test(message);
+
+                        if(!passed && beforeStart) {
+                            passed = startedRun.test(message);
+                        } else {
+                            beforeStart = false;
+                        }
+                        Metrics.stop(Metrics.Stage.FILTER, start);
+
+                        if(passed) {
+                            write(out, new Match(message.getTimestamp(), beforeStart, message.getContent()));
+                            matches.count++;
+
+                            sorted &= message.getTimestamp() >= last;
+                            last = message.getTimestamp();
+                        }
+                    }
+
+                    batch.clear();
+
+                    if(malformed != null) {
+                        throw malformed;
+                    }
+                }
+            } catch (RuntimeException e) { // Everything before the malformed data still counts
+                Metrics.malformedRecord();
+                LOGGER.severe("Malformed data provided in " + file);
+            }
+
+            matches.started = run.isStarted();
+
+            if(!sorted) {
+                sort(matches);
+            }
+
+            return matches;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(DataOutputStream out, Match match) throws IOException {
+        byte[] bytes = match.content.getBytes(StandardCharsets.UTF_8);
+
+        out.writeLong(match.timestamp);
+        out.writeBoolean(match.beforeStart);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Sorts the matches of a file whose messages are not in
+     * timeStamp order. Only needed for files like that, which
+     * have to fit in memory.
+     */
+    private static void sort(Matches matches) throws IOException {
+        List<Match> records = new ArrayList<>(matches.count);
+
+        try(MatchReader reader = new MatchReader(matches, 0, true)) {
+            while(reader.next()) {
+                records.add(reader.current);
+            }
+        }
+
+        records.sort(Comparator.comparingLong(match -> match.timestamp)); // Stable, so ties keep the file order
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(matches.path)))) {
+            for(Match match : records) {
+                write(out, match);
+            }
+        }
+    }
+
+    /**
+     * Merges the matches of every file, a message at a time, into timeStamp order
+     * @return      how many messages were written
+     */
+    private static long merge(Matches[] matches, MessageWriter writer) throws IOException {
+        // Ties go to the file that comes first by name
+        PriorityQueue<MatchReader> queue = new PriorityQueue<>(Math.max(1, matches.length),
+                Comparator.comparingLong((MatchReader reader) -> reader.current.timestamp).thenComparingInt(reader -> reader.file));
+
+        List<MatchReader> readers = new ArrayList<>();
+        long found = 0;
+
+        try {
+            boolean started = false;
+
+            for(int x = 0; x < matches.length; x++) {
+                MatchReader reader = new MatchReader(matches[x], x, started);
+                readers.add(reader);
+
+                if(reader.next()) {
+                    queue.add(reader);
+                }
+
+                started |= matches[x].started;
+            }
+
+            while(!queue.isEmpty()) {
+                MatchReader reader = queue.poll();
+
+                writer.write(new Message(reader.current.content, null, null, reader.current.timestamp));
+                found++;
+
+                if(reader.next()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for(MatchReader reader : readers) {
+                reader.close();
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * The temporary file of matches for one input file
+     */
+    private static class Matches {
+        private final Path path;
+        private int count = 0;
+        private boolean started; // The start keyword matched in this file, or there is none
+
+        private Matches(Path path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * A message that passed the filters
+     */
+    private static class Match {
+        private final long timestamp;
+        private final boolean beforeStart; // Only counts if the start keyword matched in an earlier file
+        private final String content;
+
+        private Match(long timestamp, boolean beforeStart, String content) {
+            this.timestamp = timestamp;
+            this.beforeStart = beforeStart;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Reads the matches of one input file back one at a time
+     */
+    private static class MatchReader implements AutoCloseable {
+        private final DataInputStream in;
+        private final int file; // Position of the input file by name
+        private final boolean started; // Keeps the matches from before the start keyword
+        private int left;
+
+        private Match current;
+
+        private MatchReader(Matches matches, int file, boolean started) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(matches.path)));
+            this.file = file;
+            this.started = started;
+            this.left = matches.count;
+        }
+
+        /**
+         * @return      false once there are no more matches
+         */
+        private boolean next() throws IOException {
+            while(left > 0) {
+                left--;
+
+                long timestamp = in.readLong();
+                boolean beforeStart = in.readBoolean();
+
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+
+                if(started || !beforeStart) {
+                    current = new Match(timestamp, beforeStart, new String(bytes, StandardCharsets.UTF_8));
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
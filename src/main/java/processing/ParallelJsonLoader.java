@@ -0,0 +1,339 @@
+package processing;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import message.Message;
+import util.Metrics;
+import util.Settings;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The ParallelJsonLoader program splits the input file
+ * into byte ranges and parses each range on its own
+ * thread. The messages are put back together in the
+ * same order as they appear in the input file. Malformed
+ * data is skipped inside of the chunk it is in, and written
+ * to the quarantine in input file order once every chunk
+ * is done. A chunk that does not start at a top-level object
+ * fails the whole load, so it can be done sequentially.
+ *
+ * @author Luciano Kholos
+ */
+public class ParallelJsonLoader {
+    private static final int MIN_CHUNK_SIZE = 64 * 1024; // Smaller files are not worth splitting
+    private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024; // Keeps each chunk well below the 2GB array limit
+    private static final int SEARCH_BUFFER_SIZE = 8 * 1024;
+
+    private final Settings settings;
+
+    private final MessageParser parser;
+
+    private final LazyMessageParser lazyParser;
+
+    private final Quarantine quarantine;
+
+    public ParallelJsonLoader(Settings settings) {
+        this(settings, null);
+    }
+
+    /**
+     * @param settings          settings
+     * @param quarantine        receives malformed data, null to stop at it
+     */
+    public ParallelJsonLoader(Settings settings, Quarantine quarantine) {
+        this.settings = settings;
+        this.parser = new MessageParser(settings);
+        this.lazyParser = new LazyMessageParser(settings);
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Parses the whole input file on a fork-join pool
+     * @return                  every message in input file order
+     * @throws IOException      if the input file cannot be read
+     * @throws JsonParseException   if a chunk does not start at a top-level object, or there is malformed data and no quarantine
+     */
+    public List<Message> load() throws IOException {
+        try(FileChannel channel = FileChannel.open(Paths.get(settings.getInputFilePath()), StandardOpenOption.READ)) {
+            long[] bounds = split(channel);
+
+            Chunk[] results = new Chunk[bounds.length - 1];
+
+            ForkJoinPool pool = new ForkJoinPool();
+            try {
+                pool.invoke(new ChunkTask(channel, bounds, results, 0, results.length));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+
+            // Stitches the chunks back together in file order
+            int total = 0;
+            for(Chunk result : results) {
+                total += result.messages.size();
+            }
+
+            List<Message> messages = new ArrayList<>(total);
+            for(Chunk result : results) {
+                messages.addAll(result.messages);
+
+                for(Quarantine.Entry entry : result.skipped) {
+                    quarantine.add(settings.getInputFilePath(), entry);
+                }
+            }
+
+            return messages;
+        }
+    }
+
+    /**
+     * Splits the input file into byte ranges. Each range starts
+     * at the beginning of a top-level JSON object, which is a line
+     * starting with '{'. A raw newline can never be inside of a JSON
+     * string, so only nested objects written at the start of a line
+     * can fool this. The object in front of such a range is never
+     * closed inside of its own range, which fails the load even
+     * when there is a quarantine.
+     * @param channel           input file
+     * @return                  start of every range followed by the file size
+     * @throws IOException      if the input file cannot be read
+     */
+    private long[] split(FileChannel channel) throws IOException {
+        long size = channel.size();
+
+        // A few chunks per core so a slow chunk does not hold up the others
+        long chunks = Math.max(Runtime.getRuntime().availableProcessors() * 4L, size / MAX_CHUNK_SIZE + 1);
+        chunks = Math.max(1, Math.min(chunks, size / MIN_CHUNK_SIZE));
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+
+        for(long x = 1; x < chunks; x++) {
+            long start = findObjectStart(channel, Math.max(size * x / chunks, bounds.get(bounds.size() - 1) + 1));
+
+            if(start < 0) { // No more objects in the rest of the file
+                break;
+            }
+
+            if(start > bounds.get(bounds.size() - 1)) {
+                bounds.add(start);
+            }
+        }
+
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for(int x = 0; x < result.length; x++) {
+            result[x] = bounds.get(x);
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the first line starting with '{' after a position
+     * @param channel           input file
+     * @param position          position to start searching from
+     * @return                  position of the '{' or -1 if there is none
+     * @throws IOException      if the input file cannot be read
+     */
+    private long findObjectStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SEARCH_BUFFER_SIZE);
+
+        long offset = position - 1; // The byte before the position has to be a newline
+        int previous = -1;
+
+        while(true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+
+            if(read <= 0) {
+                return -1;
+            }
+
+            for(int x = 0; x < read; x++) {
+                byte b = buffer.get(x);
+
+                if(b == '{' && previous == '\n') {
+                    return offset + x;
+                }
+
+                previous = b;
+            }
+
+            offset += read;
+        }
+    }
+
+    /**
+     * Parses a single byte range of the input file
+     * @param channel           input file
+     * @param start             start of the range
+     * @param end               end of the range
+     * @return                  every message in the range
+     * @throws IOException      if the input file cannot be read
+     */
+    private Chunk parseChunk(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, start + buffer.position()) < 0) {
+                break;
+            }
+        }
+        Metrics.bytesRead(buffer.position());
+
+        Chunk chunk = new Chunk();
+        JsonObjectScanner scanner = new JsonObjectScanner();
+        int limit = buffer.position();
+        int position = 0;
+
+        while(true) {
+            int objectStart;
+            String error = null;
+
+            try {
+                objectStart = scanner.findStart(buffer, position, limit);
+            } catch (JsonParseException e) { // Something other than a value is in between them
+                objectStart = JsonObjectScanner.skipWhitespace(buffer, position, limit);
+                error = e.getMessage();
+            }
+
+            if(objectStart < 0) {
+                return chunk;
+            }
+
+            if(error == null) {
+                position = scanner.findEnd(buffer, objectStart + 1, limit);
+
+                if(position < 0 && end < channel.size()) { // The next chunk starts inside of this value
+                    throw new JsonParseException("Chunk at byte " + end + " does not start at a top-level object");
+                }
+
+                if(position < 0) { // Cut off at the end of the input file
+                    error = "Unexpected end of input";
+                }
+            }
+
+            if(error != null) { // Runs up to the next object in the chunk
+                int boundary = JsonObjectScanner.findBoundary(buffer, objectStart + 1, limit);
+
+                position = boundary < 0 ? limit : boundary;
+                skip(chunk, buffer, start, objectStart, position, new JsonParseException(error + " at byte " + (start + objectStart)));
+                continue;
+            }
+
+            if(buffer.get(objectStart) != '{') {
+                continue;
+            }
+
+            long parseStart = Metrics.start();
+            Message message;
+            try {
+                if(settings.isLazyParsing()) {
+                    message = lazyParser.toMessage(buffer, objectStart, position);
+                } else {
+                    message = parser.toMessage(JsonParser.parseString(new String(buffer.array(), objectStart, position - objectStart, StandardCharsets.UTF_8)));
+                }
+            } catch (RuntimeException e) { // A value that runs into the next object is cut off where that one starts
+                int boundary = JsonObjectScanner.findBoundary(buffer, objectStart + 1, position);
+
+                if(boundary >= 0) {
+                    position = boundary;
+                }
+
+                skip(chunk, buffer, start, objectStart, position, e);
+                continue;
+            }
+            Metrics.stop(Metrics.Stage.PARSE, parseStart);
+            Metrics.objectParsed();
+
+            if(!scanner.hasLineBreak()) {
+                boolean newline = position < limit && buffer.get(position) == '\n';
+                message.setSpan(start + objectStart, position - objectStart, newline);
+            } else {
+                message.setLocation(start + objectStart, position - objectStart);
+            }
+
+            chunk.messages.add(message);
+        }
+    }
+
+    /**
+     * Keeps malformed data for the quarantine, or stops the
+     * load when there is no quarantine
+     * @param chunk         chunk the data is in
+     * @param buffer        bytes of the chunk
+     * @param offset        position of the chunk in the input file
+     * @param from          start of the data inside of the chunk
+     * @param to            end of the data inside of the chunk
+     * @param e             what was wrong with it
+     */
+    private void skip(Chunk chunk, ByteBuffer buffer, long offset, int from, int to, RuntimeException e) {
+        if(quarantine == null) {
+            throw e;
+        }
+
+        byte[] span = new byte[to - from];
+        System.arraycopy(buffer.array(), from, span, 0, span.length);
+
+        chunk.skipped.add(new Quarantine.Entry(offset + from, span, String.valueOf(e.getMessage())));
+    }
+
+    /**
+     * What was read from a single byte range of the input file
+     */
+    private static class Chunk {
+        private final List<Message> messages = new ArrayList<>();
+        private final List<Quarantine.Entry> skipped = new ArrayList<>();
+    }
+
+    /**
+     * Parses a group of chunks by splitting it in half
+     * until only one chunk is left.
+     */
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final Chunk[] results;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(FileChannel channel, long[] bounds, Chunk[] results, int from, int to) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from == 1) {
+                try {
+                    results[from] = parseChunk(channel, bounds[from], bounds[to]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(channel, bounds, results, from, middle),
+                    new ChunkTask(channel, bounds, results, middle, to));
+        }
+    }
+}
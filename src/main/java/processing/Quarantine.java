@@ -0,0 +1,124 @@
+package processing;
+
+import com.google.gson.JsonObject;
+import util.Metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+/**
+ * The Quarantine program keeps the malformed data that was skipped
+ * while reading the input. Each skipped span is written to the
+ * quarantine file as one JSON object per line, with where it came
+ * from, its byte offset, why it was skipped and the span itself,
+ * so it can be fixed and run on its own. The file is only created
+ * once something has been skipped. Any number of threads can use it.
+ *
+ * @author Luciano Kholos
+ */
+public class Quarantine implements Closeable {
+    private final Path path;
+
+    private Writer writer; // Opened by the first span
+
+    private long count = 0;
+
+    private static final Logger LOGGER = Logger.getLogger(Quarantine.class.getName());
+
+    /**
+     * @param quarantineFilePath        quarantine file
+     * @param append                    true to add to the quarantine file instead of replacing it
+     * @throws IOException              if the old quarantine file cannot be removed
+     */
+    public Quarantine(String quarantineFilePath, boolean append) throws IOException {
+        this.path = Paths.get(quarantineFilePath);
+
+        if(!append) { // Left over from an earlier run
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Writes a skipped span
+     * @param source            input the span was read from
+     * @param offset            position of the span in the input
+     * @param buffer            UTF-8 bytes
+     * @param start             start of the span inside of buffer
+     * @param end               end of the span inside of buffer
+     * @param error             why it was skipped
+     * @throws IOException      if the quarantine file cannot be written
+     */
+    public void add(String source, long offset, ByteBuffer buffer, int start, int end, String error) throws IOException {
+        byte[] span = new byte[end - start];
+
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(start);
+        slice.get(span);
+
+        add(source, new Entry(offset, span, error));
+    }
+
+    /**
+     * Writes a skipped span
+     * @param source            input the span was read from
+     * @param entry             the span
+     * @throws IOException      if the quarantine file cannot be written
+     */
+    public synchronized void add(String source, Entry entry) throws IOException {
+        if(writer == null) {
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("source", source);
+        json.addProperty("offset", entry.offset);
+        json.addProperty("length", entry.span.length);
+        json.addProperty("error", entry.error);
+        json.addProperty("span", new String(entry.span, StandardCharsets.UTF_8));
+
+        writer.write(json.toString());
+        writer.write('\n');
+        count++;
+        Metrics.malformedRecord();
+
+        LOGGER.warning("Skipped malformed data at byte " + entry.offset + " of " + source + ": " + entry.error);
+    }
+
+    /**
+     * @return      how many spans have been skipped
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * A skipped span that has not been written yet
+     */
+    public static class Entry {
+        private final long offset;
+        private final byte[] span;
+        private final String error;
+
+        public Entry(long offset, byte[] span, String error) {
+            this.offset = offset;
+            this.span = span;
+            this.error = error;
+        }
+    }
+}
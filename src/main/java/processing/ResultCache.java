@@ -0,0 +1,280 @@
+package processing;
+
+import message.Message;
+import message.MessageFile;
+import util.FieldFilter;
+import util.InputFingerprint;
+import util.Settings;
+import util.TimeRange;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+/**
+ * The ResultCache program remembers which messages matched a query,
+ * so the same query against the same input file only copies them to
+ * the output again. A query is the fingerprint of the input file and
+ * the filters, written out the same way however they were given in
+ * the config. Only where each match is in the input file is kept, so
+ * a cached result can be written with any output setting.
+ *
+ * Each result is a file in the cache directory named after the hash
+ * of its query. Reading a result marks it as used, and once the files
+ * add up to more than the size limit the ones used longest ago are
+ * removed. Any number of threads can use it.
+ *
+ * @author Luciano Kholos
+ */
+public class ResultCache {
+    private static final int MAGIC = 0x4A505452; // JPTR
+    private static final int VERSION = 1; // Results of any other version are never read
+
+    private static final String SUFFIX = ".matches";
+
+    private final Path directory;
+    private final long maxBytes;
+
+    private static final Logger LOGGER = Logger.getLogger(ResultCache.class.getName());
+
+    /**
+     * @param directory     where the results are kept
+     * @param maxBytes      size the results are kept under
+     */
+    public ResultCache(String directory, long maxBytes) {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Writes out a query in one form, so two configs with the same
+     * filters in another order or with repeated start/stop times
+     * give the same query
+     * @param settings          settings
+     * @param fingerprint       input file
+     * @return                  the query
+     */
+    public static String query(Settings settings, InputFingerprint fingerprint) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("input=").append(fingerprint).append('\n');
+
+        // Merged and sorted when the Settings were created
+        builder.append("time=");
+        if(settings.isTimeSearchActive()) {
+            for(TimeRange range : settings.getTimeRanges()) {
+                builder.append(range.getStart()).append('-').append(range.getEnd()).append(',');
+            }
+        }
+        builder.append('\n');
+
+        builder.append("search=");
+        if(settings.isSearchKeywordActive()) {
+            for(String keyword : new TreeSet<>(settings.getSearchKeywordMap().keySet())) {
+                builder.append(keyword.length()).append(':').append(keyword); // Keywords can have any character in them
+            }
+        }
+        builder.append('\n');
+
+        builder.append("fields=");
+        if(settings.isFieldFilterActive()) {
+            for(String filter : new TreeSet<>(toStrings(settings.getFieldFilters()))) {
+                builder.append(filter.length()).append(':').append(filter);
+            }
+        }
+        builder.append('\n');
+
+        builder.append("start=");
+        if(settings.isStartKeywordActive()) {
+            builder.append(settings.getStartKeyword());
+        }
+        builder.append('\n');
+
+        // Stopping at malformed data leaves out every message after it
+        builder.append("malformed=").append(settings.isQuarantineMalformed() ? "quarantine" : "stop").append('\n');
+
+        return builder.toString();
+    }
+
+    private static List<String> toStrings(List<FieldFilter> filters) {
+        List<String> strings = new ArrayList<>(filters.size());
+
+        for(FieldFilter filter : filters) {
+            strings.add(filter.toString());
+        }
+
+        return strings;
+    }
+
+    /**
+     * Gets the result of a query and marks it as used
+     * @param query             what query returned
+     * @param file              input file the matches are read from
+     * @return                  the matches in the order they were found, or null if the query is not cached
+     * @throws IOException      if the result cannot be read
+     */
+    public synchronized List<Message> get(String query, MessageFile file) throws IOException {
+        Path path = path(query);
+
+        if(!Files.exists(path)) {
+            return null;
+        }
+
+        List<Message> matches;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+
+            byte[] stored = new byte[in.readInt()];
+            in.readFully(stored);
+            if(!Arrays.equals(stored, query.getBytes(StandardCharsets.UTF_8))) { // Another query with the same hash
+                return null;
+            }
+
+            int count = in.readInt();
+            matches = new ArrayList<>(count);
+
+            for(int x = 0; x < count; x++) {
+                int id = in.readInt();
+                long timestamp = in.readLong();
+                long offset = in.readLong();
+                int length = in.readInt();
+                byte flags = in.readByte();
+
+                matches.add(file.getMessage(id, timestamp, offset, length, flags));
+            }
+        } catch (IOException e) { // Cut off while it was written by a run that was stopped
+            LOGGER.warning("Removing unreadable cached result " + path.getFileName() + ": " + e.getMessage());
+            Files.deleteIfExists(path);
+            return null;
+        }
+
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+        return matches;
+    }
+
+    /**
+     * Keeps the result of a query, then removes the results used
+     * longest ago until the cache is under its size. Nothing is kept
+     * if the location of a match is not known.
+     * @param query             what query returned
+     * @param matches           matches in the order they were found
+     * @return                  true if the result was kept
+     * @throws IOException      if the result cannot be written
+     */
+    public synchronized boolean put(String query, List<Message> matches) throws IOException {
+        for(Message message : matches) {
+            if(!message.hasLocation()) {
+                LOGGER.info("Result not cached, the location of every match in the input file is not known");
+                return false;
+            }
+        }
+
+        Files.createDirectories(directory);
+
+        Path path = path(query);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            byte[] bytes = query.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeInt(matches.size());
+
+            for(Message message : matches) {
+                out.writeInt(message.getId());
+                out.writeLong(message.getTimestamp());
+                out.writeLong(message.getOffset());
+                out.writeInt(message.getLength());
+                out.writeByte(MessageFile.flags(message));
+            }
+        }
+
+        // Replaced in one step, so a run that is stopped part way never leaves half of a result
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        evict(path);
+        return true;
+    }
+
+    /**
+     * Removes the results used longest ago until the cache is under its size
+     * @param kept              result that was just written, which is never removed
+     * @throws IOException      if the cache directory cannot be listed
+     */
+    private void evict(Path kept) throws IOException {
+        List<Path> results = new ArrayList<>();
+        long total = 0;
+
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for(Path result : stream) {
+                results.add(result);
+                total += Files.size(result);
+            }
+        }
+
+        results.sort(Comparator.comparingLong(ResultCache::lastUsed));
+
+        for(Path result : results) {
+            if(total <= maxBytes) {
+                break;
+            }
+
+            if(!result.equals(kept)) {
+                total -= Files.size(result);
+                Files.deleteIfExists(result);
+            }
+        }
+    }
+
+    private static long lastUsed(Path result) {
+        try {
+            return Files.getLastModifiedTime(result).toMillis();
+        } catch (IOException e) { // Removed by another run, so it goes first
+            return 0;
+        }
+    }
+
+    /**
+     * @param query     what query returned
+     * @return          file the result of the query is kept in
+     */
+    private Path path(String query) {
+        try {
+            StringBuilder name = new StringBuilder();
+
+            for(byte b : MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8))) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+
+            return directory.resolve(name.append(SUFFIX).toString());
+        } catch (NoSuchAlgorithmException e) { // Every JVM has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package processing;
+
+import message.Message;
+import util.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The SpanWriter program copies the original bytes of each
+ * message from the input file to the output file with
+ * FileChannel.transferTo, so nothing is decoded or encoded.
+ * Messages that sit next to each other in the input file are
+ * copied in a single transfer. Messages without a span (the
+ * ones spread over several lines) are written from their
+ * content instead.
+ *
+ * @author Luciano Kholos
+ */
+public class SpanWriter implements MessageWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel input;
+    private final FileChannel output;
+
+    private final Charset charset = Charset.defaultCharset(); // Same as the FileWriter used for the other output
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE); // Bytes that did not come from a span
+
+    // Span of the input file that has not been copied yet
+    private long runStart = 0;
+    private long runEnd = 0;
+
+    public SpanWriter(String inputFilePath, String outputFilePath) throws IOException {
+        this(inputFilePath, outputFilePath, false);
+    }
+
+    /**
+     * @param inputFilePath     file the spans point into
+     * @param outputFilePath    output file
+     * @param append            true to add to the end of the output file instead of replacing it
+     * @throws IOException      if either file cannot be opened
+     */
+    public SpanWriter(String inputFilePath, String outputFilePath, boolean append) throws IOException {
+        this.input = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ);
+        this.output = FileChannel.open(Paths.get(outputFilePath), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Writes a message followed by a newline
+     * @param message           message to write
+     * @throws IOException      if the message could not be written
+     */
+    @Override
+    public void write(Message message) throws IOException {
+        long start = Metrics.start();
+        Metrics.messageWritten();
+
+        try {
+            copy(message);
+        } finally {
+            Metrics.stop(Metrics.Stage.WRITE, start);
+        }
+    }
+
+    private void copy(Message message) throws IOException {
+        if(!message.hasSpan()) {
+            flushRun();
+            put(message.getContent().getBytes(charset));
+            put(NEWLINE);
+            return;
+        }
+
+        if(message.getOffset() != runEnd) { // Not right after the previous message
+            flushRun();
+            runStart = message.getOffset();
+        }
+
+        runEnd = message.getOffset() + message.getLength();
+
+        if(message.isFollowedByNewline()) { // The newline can be copied along with the message
+            runEnd++;
+        } else {
+            flushRun();
+            put(NEWLINE);
+        }
+    }
+
+    /**
+     * Copies the current run of the input file to the output
+     */
+    private void flushRun() throws IOException {
+        if(runEnd == runStart) {
+            return;
+        }
+
+        flushBuffer();
+
+        long position = runStart;
+        while(position < runEnd) {
+            long transferred = input.transferTo(position, runEnd - position, output);
+
+            if(transferred == 0 && position >= input.size()) {
+                throw new IOException("Input file is shorter than the message at byte " + position);
+            }
+
+            position += transferred;
+        }
+        Metrics.bytesWritten(runEnd - runStart);
+
+        runStart = runEnd;
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if(bytes.length > buffer.remaining()) {
+            flushBuffer();
+
+            if(bytes.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes));
+                return;
+            }
+        }
+
+        buffer.put(bytes);
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        Metrics.bytesWritten(bytes.remaining());
+
+        while(bytes.hasRemaining()) {
+            output.write(bytes);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushRun();
+        flushBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushRun();
+            flushBuffer();
+        } finally {
+            input.close();
+            output.close();
+        }
+    }
+
+    private static final byte[] NEWLINE = { '\n' };
+}
@@ -0,0 +1,225 @@
+package processing;
+
+import com.google.gson.JsonParseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The StreamJsonReader program walks the UTF-8 bytes of a stream
+ * one top-level value at a time, the way the MappedJsonReader
+ * walks a mapped file. It is used for input that cannot be
+ * mapped, such as a compressed input file. The buffer only
+ * grows to fit the largest value in the stream. Malformed data
+ * is handed out the same way the MappedJsonReader does it.
+ *
+ * @author Luciano Kholos
+ */
+public class StreamJsonReader implements Closeable {
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final InputStream is;
+
+    private final JsonObjectScanner scanner = new JsonObjectScanner();
+
+    private byte[] bytes = new byte[BUFFER_SIZE];
+    private ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private int limit = 0; // End of the bytes that have been read
+    private int position = 0;
+    private boolean finished = false; // The stream has no more bytes
+    private long dropped = 0; // Bytes of the stream in front of the buffer
+
+    // Span of the current value inside of the buffer
+    private int start = -1;
+    private int end = -1;
+    private String error; // Why the current value is malformed, null if it is not
+
+    public StreamJsonReader(InputStream is) {
+        this.is = is;
+    }
+
+    /**
+     * Moves to the next top-level JSON value in the stream
+     * @return                  false if there are no more values
+     * @throws IOException      if the stream cannot be read
+     */
+    public boolean next() throws IOException {
+        error = null;
+
+        while(true) {
+            try {
+                start = scanner.findStart(buffer, position, limit);
+            } catch (JsonParseException e) { // Something other than a value is in between them
+                start = JsonObjectScanner.skipWhitespace(buffer, position, limit);
+                return malformed(e.getMessage());
+            }
+
+            if(start < 0) { // Only whitespace left in the buffer
+                position = limit;
+
+                if(!fill()) {
+                    return false;
+                }
+                continue;
+            }
+
+            int scanned = 1; // Bytes of the value that have been scanned
+
+            while(true) {
+                end = scanner.findEnd(buffer, start + scanned, limit);
+
+                if(end >= 0) {
+                    position = end;
+                    return true;
+                }
+
+                if(JsonObjectScanner.findBoundary(buffer, start + scanned, limit) >= 0) { // Never closed, the next object has started
+                    return malformed("Unexpected start of the next object");
+                }
+
+                // The scanner remembers where it left off, so only the new bytes are scanned
+                scanned = limit - start;
+                position = start;
+
+                if(!fill()) {
+                    start = position;
+                    return malformed("Unexpected end of input");
+                }
+
+                start = position; // The bytes in front of the value were dropped
+            }
+        }
+    }
+
+    /**
+     * Makes the malformed data the current value. It ends where the
+     * next object starts, or at the end of the buffer if none does.
+     * @param reason        why the data is malformed
+     * @return              true
+     */
+    private boolean malformed(String reason) {
+        int boundary = JsonObjectScanner.findBoundary(buffer, start + 1, limit);
+
+        end = boundary < 0 ? limit : boundary;
+        error = reason;
+        scanner.reset();
+
+        return true;
+    }
+
+    /**
+     * Moves past the current value after it could not be used. A value
+     * that runs into the next object is cut off where that one starts,
+     * so the next call to next() reads it.
+     */
+    public void skip() {
+        int boundary = JsonObjectScanner.findBoundary(buffer, start + 1, end);
+
+        if(boundary >= 0) {
+            end = boundary;
+        }
+
+        position = end;
+    }
+
+    /**
+     * @return      true if the current value is malformed data
+     */
+    public boolean isMalformed() {
+        return error != null;
+    }
+
+    /**
+     * @return      why the current value is malformed, null if it is not
+     */
+    public String error() {
+        return error;
+    }
+
+    /**
+     * @return      position of the current value in the stream
+     */
+    public long offset() {
+        return dropped + start;
+    }
+
+    /**
+     * Decodes only the current value
+     * @return      the current value as a String
+     */
+    public String decode() {
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return      true if the current value is a JSON object
+     */
+    public boolean isObject() {
+        return bytes[start] == '{';
+    }
+
+    /**
+     * @return      the bytes of the current value, valid until the next call to next()
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return      start of the current value inside of buffer()
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return      end of the current value inside of buffer()
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * Reads more of the stream. What comes before the position is
+     * dropped first, and the buffer is made larger if it is full.
+     * @return      false if the stream has no more bytes
+     */
+    private boolean fill() throws IOException {
+        if(finished) {
+            return false;
+        }
+
+        if(position > 0) {
+            System.arraycopy(bytes, position, bytes, 0, limit - position);
+            limit -= position;
+            dropped += position;
+            position = 0;
+        }
+
+        if(limit == bytes.length) {
+            byte[] larger = new byte[bytes.length * 2];
+            System.arraycopy(bytes, 0, larger, 0, limit);
+
+            bytes = larger;
+            buffer = ByteBuffer.wrap(bytes);
+        }
+
+        int read = is.read(bytes, limit, bytes.length - limit);
+
+        if(read < 0) {
+            finished = true;
+            return false;
+        }
+
+        limit += read;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+}
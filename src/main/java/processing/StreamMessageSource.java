@@ -0,0 +1,112 @@
+package processing;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import message.Message;
+import util.Metrics;
+import util.Settings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * The StreamMessageSource program reads JSON objects one after
+ * another from a stream, such as a pipe into stdin or an input
+ * file that is not memory-mapped. The objects are found in the
+ * raw bytes by a StreamJsonReader and parsed with the
+ * LazyMessageParser when lazy parsing is on, otherwise each one
+ * is decoded on its own and parsed with Gson. Malformed data is
+ * skipped into the quarantine when there is one, otherwise it
+ * stops the reading.
+ *
+ * @author Luciano Kholos
+ */
+public class StreamMessageSource implements MessageSource {
+    private final Settings settings;
+
+    private final String name; // What the quarantine calls the stream
+
+    private final StreamJsonReader reader;
+
+    private final MessageParser parser;
+
+    private final LazyMessageParser lazyParser;
+
+    private final Quarantine quarantine;
+
+    public StreamMessageSource(Settings settings, InputStream is) {
+        this(settings, is, "stdin", null);
+    }
+
+    /**
+     * @param settings          settings
+     * @param is                stream of JSON objects
+     * @param name              where the stream comes from
+     * @param quarantine        receives malformed data, null to stop at it
+     */
+    public StreamMessageSource(Settings settings, InputStream is, String name, Quarantine quarantine) {
+        this.settings = settings;
+        this.name = name;
+        this.reader = new StreamJsonReader(Metrics.countRead(is));
+        this.parser = new MessageParser(settings);
+        this.lazyParser = new LazyMessageParser(settings);
+        this.quarantine = quarantine;
+    }
+
+    @Override
+    public boolean nextBatch(List<Message> batch, int max) throws IOException {
+        while(batch.size() < max && reader.next()) { // Loops through each JSON object in the stream
+            if(reader.isMalformed()) {
+                skip(new JsonParseException(reader.error() + " at byte " + reader.offset()));
+                continue;
+            }
+
+            if(!reader.isObject()) {
+                continue;
+            }
+
+            long start = Metrics.start();
+            try {
+                if(settings.isLazyParsing()) {
+                    batch.add(lazyParser.toMessage(reader.buffer(), reader.start(), reader.end()));
+                } else { // Only decodes one JSON object at a time
+                    batch.add(parser.toMessage(JsonParser.parseString(reader.decode())));
+                }
+            } catch (RuntimeException e) {
+                skip(e);
+                continue;
+            }
+
+            Metrics.stop(Metrics.Stage.PARSE, start);
+            Metrics.objectParsed();
+        }
+
+        return !batch.isEmpty();
+    }
+
+    /**
+     * Moves past the current value and quarantines it, or
+     * stops the reading when there is no quarantine
+     * @param e                 what was wrong with it
+     * @throws IOException      if the quarantine file cannot be written
+     */
+    private void skip(RuntimeException e) throws IOException {
+        if(quarantine == null) {
+            throw e;
+        }
+
+        reader.skip();
+        quarantine.add(name, reader.offset(), reader.buffer(), reader.start(), reader.end(), String.valueOf(e.getMessage()));
+    }
+
+    @Override
+    public void acknowledge() {
+        // Nothing to tell a stream
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,54 @@
+package processing;
+
+import message.Message;
+import util.JsonPrettyPrinter;
+import util.Metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The TextMessageWriter program writes the content of each
+ * message on its own line, or pretty printed when the output
+ * is multi-line.
+ *
+ * @author Luciano Kholos
+ */
+public class TextMessageWriter implements MessageWriter {
+    private final Writer writer;
+
+    private final boolean multiLine;
+
+    private final JsonPrettyPrinter prettyPrinter = new JsonPrettyPrinter();
+
+    public TextMessageWriter(Writer writer, boolean multiLine) {
+        this.writer = writer;
+        this.multiLine = multiLine;
+    }
+
+    @Override
+    public void write(Message message) throws IOException {
+        long start = Metrics.start();
+
+        if(multiLine) {
+            prettyPrinter.print(message.getContent(), writer);
+        } else {
+            writer.write(message.getContent());
+        }
+
+        writer.write('\n');
+
+        Metrics.stop(Metrics.Stage.WRITE, start);
+        Metrics.messageWritten();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,180 @@
+package util;
+
+import com.github.luben.zstd.Zstd;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The BlockCompressingOutputStream program compresses what is
+ * written to it in independent blocks: BGZF blocks for gzip and
+ * one frame per block for zstd. Any gzip or zstd reader can read
+ * the output as usual, and this program can read it back on
+ * several threads.
+ *
+ * @author Luciano Kholos
+ */
+public class BlockCompressingOutputStream extends OutputStream {
+    private static final int GZIP_BLOCK_SIZE = 60000; // A BGZF block has to stay under 64KB once compressed
+    private static final int ZSTD_BLOCK_SIZE = 4 * 1024 * 1024;
+    private static final int ZSTD_LEVEL = 3;
+
+    private static final int BGZF_HEADER_SIZE = 18;
+    private static final int BGZF_FOOTER_SIZE = 8;
+
+    // Empty block that marks the end of a BGZF file
+    private static final byte[] BGZF_EOF = {
+            0x1f, (byte) 0x8b, 0x08, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xff, 0x06, 0x00,
+            0x42, 0x43, 0x02, 0x00, 0x1b, 0x00, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
+    };
+
+    private final OutputStream out;
+    private final Compression compression;
+
+    private final byte[] block;
+    private int length = 0;
+
+    private byte[] compressed;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * @param out               receives the compressed bytes
+     * @param compression       GZIP or ZSTD
+     */
+    public BlockCompressingOutputStream(OutputStream out, Compression compression) {
+        this.out = out;
+        this.compression = compression;
+
+        if(compression == Compression.GZIP) {
+            this.block = new byte[GZIP_BLOCK_SIZE];
+            this.compressed = new byte[64 * 1024];
+            this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        } else {
+            this.block = new byte[ZSTD_BLOCK_SIZE];
+            this.compressed = new byte[(int) Zstd.compressBound(ZSTD_BLOCK_SIZE)];
+            this.deflater = null;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if(length == block.length) {
+            writeBlock();
+        }
+
+        block[length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while(len > 0) {
+            if(length == block.length) {
+                writeBlock();
+            }
+
+            int count = Math.min(len, block.length - length);
+            System.arraycopy(b, off, block, length, count);
+
+            length += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Ends the current block, so everything written so far can be decompressed
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeBlock();
+
+            if(compression == Compression.GZIP) {
+                out.write(BGZF_EOF);
+            }
+        } finally {
+            if(deflater != null) {
+                deflater.end();
+            }
+
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if(length == 0) {
+            return;
+        }
+
+        if(compression == Compression.GZIP) {
+            writeGzipBlock();
+        } else {
+            int size = (int) Zstd.compressByteArray(compressed, 0, compressed.length, block, 0, length, ZSTD_LEVEL);
+
+            if(Zstd.isError(size)) {
+                throw new IOException("Could not compress the output: " + Zstd.getErrorName(size));
+            }
+
+            out.write(compressed, 0, size);
+        }
+
+        length = 0;
+    }
+
+    private void writeGzipBlock() throws IOException {
+        deflater.reset();
+        deflater.setInput(block, 0, length);
+        deflater.finish();
+
+        int size = BGZF_HEADER_SIZE;
+        while(!deflater.finished() && size < compressed.length) {
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+
+        if(!deflater.finished() || size + BGZF_FOOTER_SIZE > 65536) { // Does not compress, so it is stored as it is
+            deflater.reset();
+            deflater.setLevel(Deflater.NO_COMPRESSION);
+            deflater.setInput(block, 0, length);
+            deflater.finish();
+
+            size = BGZF_HEADER_SIZE;
+            while(!deflater.finished()) {
+                size += deflater.deflate(compressed, size, compressed.length - size);
+            }
+
+            deflater.setLevel(Deflater.DEFAULT_COMPRESSION);
+        }
+
+        crc.reset();
+        crc.update(block, 0, length);
+
+        int blockSize = size + BGZF_FOOTER_SIZE;
+
+        // ID1 ID2 CM FLG(FEXTRA) MTIME XFL OS XLEN, then the BC subfield with the block size - 1
+        byte[] header = {
+                0x1f, (byte) 0x8b, 0x08, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xff, 0x06, 0x00,
+                0x42, 0x43, 0x02, 0x00, (byte) (blockSize - 1), (byte) ((blockSize - 1) >>> 8)
+        };
+        System.arraycopy(header, 0, compressed, 0, BGZF_HEADER_SIZE);
+
+        out.write(compressed, 0, size);
+        writeInt((int) crc.getValue());
+        writeInt(length);
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+}
@@ -0,0 +1,152 @@
+package util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The CompressedBlocks program finds where the independent
+ * blocks of a compressed file start, by reading only their
+ * headers. Those are BGZF blocks for gzip, which keep their
+ * size in the header, and frames for zstd. Neighboring blocks
+ * are grouped so each group is worth handing to a thread.
+ *
+ * @author Luciano Kholos
+ */
+public class CompressedBlocks {
+    private static final int GROUP_SIZE = 1024 * 1024; // Compressed bytes decompressed by a single task
+
+    private static final int ZSTD_MAGIC = 0xFD2FB528;
+    private static final int ZSTD_SKIPPABLE_MAGIC = 0x184D2A50; // Low 4 bits can be anything
+
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(18).order(ByteOrder.LITTLE_ENDIAN);
+
+    private CompressedBlocks(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @param filePath          compressed file
+     * @param compression       format of the file
+     * @return                  where each group of blocks starts followed by the size of the file,
+     *                          or null if the file cannot be split
+     * @throws IOException      if the file cannot be read
+     */
+    public static long[] find(String filePath, Compression compression) throws IOException {
+        try(FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            CompressedBlocks blocks = new CompressedBlocks(channel);
+            LongList bounds = new LongList();
+
+            long size = channel.size();
+            long position = 0;
+            long groupStart = 0;
+
+            bounds.add(0);
+
+            while(position < size) {
+                long next = compression == Compression.GZIP ? blocks.nextGzipBlock(position) : blocks.nextZstdFrame(position);
+
+                if(next < 0) { // Not made of independent blocks
+                    return null;
+                }
+
+                position = next;
+
+                if(position - groupStart >= GROUP_SIZE && position < size) {
+                    bounds.add(position);
+                    groupStart = position;
+                }
+            }
+
+            bounds.add(size);
+
+            return bounds.size() > 2 ? bounds.toArray() : null; // A single group is read as a stream
+        }
+    }
+
+    /**
+     * Reads the header of a BGZF block
+     * @param position      start of the block
+     * @return              start of the next block or -1 if the block does not have its size in the header
+     */
+    private long nextGzipBlock(long position) throws IOException {
+        read(position, 18);
+
+        boolean extra = (header.get(3) & 0x04) != 0;
+
+        // The BC extra subfield is the first one in a BGZF block and holds the block size - 1
+        if((header.get(0) & 0xFF) != 0x1F || (header.get(1) & 0xFF) != 0x8B || !extra
+                || header.get(12) != 'B' || header.get(13) != 'C' || header.getShort(14) != 2) {
+            return -1;
+        }
+
+        return position + (header.getShort(16) & 0xFFFF) + 1;
+    }
+
+    /**
+     * Walks the block headers of a zstd frame
+     * @param position      start of the frame
+     * @return              start of the next frame or -1 if it is not a zstd frame
+     */
+    private long nextZstdFrame(long position) throws IOException {
+        read(position, 4);
+        int magic = header.getInt(0);
+
+        if((magic & 0xFFFFFFF0) == ZSTD_SKIPPABLE_MAGIC) {
+            read(position + 4, 4);
+            return position + 8 + (header.getInt(0) & 0xFFFFFFFFL);
+        }
+
+        if(magic != ZSTD_MAGIC) {
+            return -1;
+        }
+
+        read(position + 4, 1);
+        int descriptor = header.get(0) & 0xFF;
+
+        int contentSizeFlag = descriptor >>> 6;
+        boolean singleSegment = (descriptor & 0x20) != 0;
+        boolean checksum = (descriptor & 0x04) != 0;
+        int dictionaryFlag = descriptor & 0x03;
+
+        int headerSize = 1 + (singleSegment ? 0 : 1)
+                + (dictionaryFlag == 3 ? 4 : dictionaryFlag)
+                + (contentSizeFlag == 0 ? (singleSegment ? 1 : 0) : 1 << contentSizeFlag);
+
+        position += 4 + headerSize;
+
+        while(true) {
+            read(position, 3);
+            int block = (header.get(0) & 0xFF) | (header.get(1) & 0xFF) << 8 | (header.get(2) & 0xFF) << 16;
+
+            boolean last = (block & 1) != 0;
+            int type = (block >>> 1) & 0x03;
+            int size = block >>> 3;
+
+            if(type == 3) { // Reserved
+                return -1;
+            }
+
+            position += 3 + (type == 1 ? 1 : size); // RLE blocks hold a single byte
+
+            if(last) {
+                return position + (checksum ? 4 : 0);
+            }
+        }
+    }
+
+    private void read(long position, int length) throws IOException {
+        header.clear().limit(length);
+
+        while(header.hasRemaining()) {
+            if(channel.read(header, position + header.position()) < 0) {
+                throw new EOFException("Compressed file ends in the middle of a block header");
+            }
+        }
+    }
+}
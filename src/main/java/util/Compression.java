@@ -0,0 +1,103 @@
+package util;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The compressed formats that the input and output files can
+ * be in. Compressed input files are recognized by their first
+ * bytes, so their names do not matter.
+ *
+ * @author Luciano Kholos
+ */
+public enum Compression {
+    NONE,
+    GZIP,
+    ZSTD;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Looks at the first bytes of a file
+     * @param filePath          file
+     * @return                  the format the file is compressed in
+     * @throws IOException      if the file cannot be read
+     */
+    public static Compression detect(String filePath) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(4);
+
+        try(FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            while(magic.hasRemaining()) {
+                if(channel.read(magic) < 0) { // Shorter than the magic bytes
+                    break;
+                }
+            }
+        }
+
+        if(magic.position() >= 2 && (magic.get(0) & 0xFF) == 0x1F && (magic.get(1) & 0xFF) == 0x8B) {
+            return GZIP;
+        }
+
+        if(magic.position() == 4 && (magic.get(0) & 0xFF) == 0x28 && (magic.get(1) & 0xFF) == 0xB5
+                && (magic.get(2) & 0xFF) == 0x2F && (magic.get(3) & 0xFF) == 0xFD) {
+            return ZSTD;
+        }
+
+        return NONE;
+    }
+
+    /**
+     * Opens a file and decompresses it as it is read. Files made
+     * of several independent gzip blocks (BGZF) or zstd frames are
+     * decompressed on more than one thread.
+     * @param filePath          file in this format
+     * @param threads           most threads to decompress on
+     * @return                  the decompressed bytes of the file
+     * @throws IOException      if the file cannot be opened
+     */
+    public InputStream open(String filePath, int threads) throws IOException {
+        if(this != NONE && threads > 1) {
+            long[] bounds = CompressedBlocks.find(filePath, this);
+
+            if(bounds != null) {
+                return new ParallelBlockInputStream(filePath, bounds, this, threads);
+            }
+        }
+
+        return decompress(new FileInputStream(filePath));
+    }
+
+    /**
+     * @param in                bytes in this format, one or more gzip members or zstd frames
+     * @return                  the decompressed bytes
+     * @throws IOException      if the bytes are not in this format
+     */
+    public InputStream decompress(InputStream in) throws IOException {
+        switch(this) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case ZSTD:
+                return new ZstdInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * @param out       receives the bytes in this format
+     * @return          stream that compresses what is written to it
+     */
+    public OutputStream compress(OutputStream out) {
+        return this == NONE ? out : new BlockCompressingOutputStream(out, this);
+    }
+}
@@ -0,0 +1,418 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The FieldFilter program checks a single field of a message, picked
+ * out by its path of keys, against a value. It is written as
+ *
+ *   path operator value
+ *
+ * for example properties.messageType eq SEVERE or delayMillis gt 5000.
+ * eq and ne compare the text of the field, or its number when both
+ * are numbers. gt, ge, lt and le compare numbers, which can also be
+ * strings that hold a number. matches looks for a regex in the text
+ * of the field, written as regex(expression) or as the bare expression.
+ *
+ * The field is found by walking the raw JSON bytes of the message,
+ * skipping over everything that is not on its path, so the tokens of
+ * the message are never needed. A message without the field, or where
+ * the field is an object or an array, does not match.
+ *
+ * @author Luciano Kholos
+ */
+public class FieldFilter {
+    private enum Operator {
+        EQ, NE, GT, GE, LT, LE, MATCHES
+    }
+
+    private static final long NOT_FOUND = -1;
+
+    private final String[] path;
+    private final byte[][] keys; // UTF-8 bytes of each key in the path
+    private final Operator operator;
+    private final String value;
+    private final byte[] valueBytes;
+    private final boolean numeric; // True if the value is a number
+    private final double number;
+    private final Pattern pattern; // Only used by matches
+
+    private FieldFilter(String[] path, Operator operator, String value) {
+        this.path = path;
+        this.operator = operator;
+        this.value = value;
+        this.valueBytes = value.getBytes(StandardCharsets.UTF_8);
+
+        this.keys = new byte[path.length][];
+        for(int x = 0; x < path.length; x++) {
+            keys[x] = path[x].getBytes(StandardCharsets.UTF_8);
+        }
+
+        Double parsed = toNumber(value);
+        this.numeric = parsed != null;
+        this.number = numeric ? parsed : Double.NaN;
+
+        if(operator == Operator.MATCHES) {
+            this.pattern = Pattern.compile(value.startsWith("regex(") && value.endsWith(")") ? value.substring(6, value.length() - 1) : value);
+        } else {
+            this.pattern = null;
+        }
+
+        if(!numeric && operator != Operator.EQ && operator != Operator.NE && operator != Operator.MATCHES) {
+            throw new IllegalArgumentException("[" + value + "] is not a number, which " + operator.name().toLowerCase(Locale.ROOT) + " needs");
+        }
+    }
+
+    /**
+     * @param raw       field filter as it is written in the config
+     * @return          field filter
+     * @throws IllegalArgumentException     if it is not path operator value, or the value does not fit the operator
+     */
+    public static FieldFilter parse(String raw) {
+        String[] parts = raw.trim().split("\\s+", 3); // The value can have spaces in it
+
+        if(parts.length < 3) {
+            throw new IllegalArgumentException("Invalid field_filter [" + raw + "], the format is path operator value");
+        }
+
+        String path = parts[0];
+        String operator = parts[1];
+        String value = parts[2];
+
+        if(path.startsWith(".") || path.endsWith(".") || path.contains("..")) {
+            throw new IllegalArgumentException("Invalid field_filter path [" + path + "], the keys are separated by a single '.'");
+        }
+
+        Operator parsed;
+        try {
+            parsed = Operator.valueOf(operator.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown field_filter operator [" + operator + "], use eq, ne, gt, ge, lt, le or matches");
+        }
+
+        return new FieldFilter(path.split("\\."), parsed, value);
+    }
+
+    /**
+     * @param json      UTF-8 bytes of a JSON object
+     * @return          true if the field is there and passes the comparison
+     */
+    public boolean matches(byte[] json) {
+        long span = find(json);
+
+        if(span == NOT_FOUND) {
+            return false;
+        }
+
+        int start = (int) (span >>> 32);
+        int end = (int) span;
+        byte first = json[start];
+
+        if(first == '{' || first == '[') {
+            return false;
+        }
+
+        boolean string = first == '"';
+        if(string) { // Without the quotes
+            start++;
+            end--;
+        }
+
+        switch(operator) {
+            case EQ:
+                return equalTo(json, start, end, string);
+            case NE:
+                return !equalTo(json, start, end, string);
+            case MATCHES:
+                return pattern.matcher(text(json, start, end, string)).find();
+            default:
+                Double field = toNumber(json, start, end, string);
+                return field != null && compare(field);
+        }
+    }
+
+    private boolean equalTo(byte[] json, int start, int end, boolean string) {
+        if(numeric && !string) { // 5000 is the same as 5000.0 or 5e3
+            Double field = toNumber(json, start, end, false);
+            return field != null && field == number;
+        }
+
+        if(!string || !hasEscape(json, start, end)) {
+            return equals(json, start, end, valueBytes);
+        }
+
+        return decode(json, start, end).equals(value);
+    }
+
+    private boolean compare(double field) {
+        switch(operator) {
+            case GT:
+                return field > number;
+            case GE:
+                return field >= number;
+            case LT:
+                return field < number;
+            default:
+                return field <= number;
+        }
+    }
+
+    /**
+     * Finds the value of the field
+     * @param json      UTF-8 bytes of a JSON object
+     * @return          start of the value in the upper half and its end in the lower half, or NOT_FOUND
+     */
+    private long find(byte[] json) {
+        try {
+            int position = skipWhitespace(json, 0);
+
+            for(int depth = 0; depth < keys.length; depth++) {
+                if(json[position] != '{') {
+                    return NOT_FOUND;
+                }
+
+                position = skipWhitespace(json, position + 1);
+
+                while(true) {
+                    if(json[position] != '"') { // The end of the object, or not an object
+                        return NOT_FOUND;
+                    }
+
+                    int keyStart = position + 1;
+                    int keyEnd = endOfString(json, position);
+
+                    position = skipWhitespace(json, keyEnd + 1);
+                    if(json[position] != ':') {
+                        return NOT_FOUND;
+                    }
+                    position = skipWhitespace(json, position + 1);
+
+                    if(isKey(json, keyStart, keyEnd, depth)) {
+                        break;
+                    }
+
+                    position = skipWhitespace(json, skipValue(json, position));
+                    if(json[position] != ',') {
+                        return NOT_FOUND;
+                    }
+                    position = skipWhitespace(json, position + 1);
+                }
+            }
+
+            return ((long) position << 32) | skipValue(json, position);
+        } catch (ArrayIndexOutOfBoundsException e) { // Cut off before the field was found
+            return NOT_FOUND;
+        }
+    }
+
+    private boolean isKey(byte[] json, int start, int end, int depth) {
+        if(!hasEscape(json, start, end)) {
+            return equals(json, start, end, keys[depth]);
+        }
+
+        return decode(json, start, end).equals(path[depth]);
+    }
+
+    /**
+     * @param position      position of the first byte of a value
+     * @return              position after the value
+     */
+    private static int skipValue(byte[] json, int position) {
+        byte b = json[position];
+
+        if(b == '"') {
+            return endOfString(json, position) + 1;
+        }
+
+        if(b == '{' || b == '[') {
+            int depth = 0;
+
+            for(int x = position; ; x++) {
+                switch(json[x]) {
+                    case '"':
+                        x = endOfString(json, x);
+                        break;
+                    case '{':
+                    case '[':
+                        depth++;
+                        break;
+                    case '}':
+                    case ']':
+                        if(--depth == 0) {
+                            return x + 1;
+                        }
+                        break;
+                    default:
+                }
+            }
+        }
+
+        int x = position;
+        while(x < json.length && json[x] != ',' && json[x] != '}' && json[x] != ']' && !isWhitespace(json[x])) {
+            x++;
+        }
+
+        return x;
+    }
+
+    /**
+     * @param position      position of the opening quote
+     * @return              position of the closing quote
+     */
+    private static int endOfString(byte[] json, int position) {
+        for(int x = position + 1; ; x++) {
+            if(json[x] == '\\') {
+                x++;
+            } else if(json[x] == '"') {
+                return x;
+            }
+        }
+    }
+
+    private static int skipWhitespace(byte[] json, int position) {
+        while(isWhitespace(json[position])) {
+            position++;
+        }
+
+        return position;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean hasEscape(byte[] json, int start, int end) {
+        for(int x = start; x < end; x++) {
+            if(json[x] == '\\') {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean equals(byte[] json, int start, int end, byte[] bytes) {
+        if(end - start != bytes.length) {
+            return false;
+        }
+
+        for(int x = 0; x < bytes.length; x++) {
+            if(json[start + x] != bytes[x]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static String text(byte[] json, int start, int end, boolean string) {
+        return string && hasEscape(json, start, end) ? decode(json, start, end) : new String(json, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the escape sequences of a JSON string
+     */
+    private static String decode(byte[] json, int start, int end) {
+        String escaped = new String(json, start, end - start, StandardCharsets.UTF_8);
+        StringBuilder builder = new StringBuilder(escaped.length());
+
+        for(int x = 0; x < escaped.length(); x++) {
+            char c = escaped.charAt(x);
+
+            if(c != '\\' || x + 1 >= escaped.length()) {
+                builder.append(c);
+                continue;
+            }
+
+            c = escaped.charAt(++x);
+            switch(c) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    if(x + 4 < escaped.length()) {
+                        try {
+                            builder.append((char) Integer.parseInt(escaped.substring(x + 1, x + 5), 16));
+                            x += 4;
+                            break;
+                        } catch (NumberFormatException e) { // Left as it is
+                        }
+                    }
+                    builder.append("\\u");
+                    break;
+                default: // \" \\ and \/
+                    builder.append(c);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Reads a number out of the bytes of a value. Whole numbers
+     * are read without creating a String.
+     * @return      the number, or null if the value is not one
+     */
+    private static Double toNumber(byte[] json, int start, int end, boolean string) {
+        if(string && hasEscape(json, start, end)) {
+            return toNumber(decode(json, start, end));
+        }
+
+        boolean negative = start < end && json[start] == '-';
+        int x = negative ? start + 1 : start;
+
+        if(x < end && end - x <= 18) {
+            long whole = 0;
+
+            for(; x < end; x++) {
+                byte b = json[x];
+
+                if(b < '0' || b > '9') {
+                    break;
+                }
+
+                whole = whole * 10 + (b - '0');
+            }
+
+            if(x == end) {
+                return (double) (negative ? -whole : whole);
+            }
+        }
+
+        return toNumber(new String(json, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    private static Double toNumber(String value) {
+        if(value.isEmpty() || !(Character.isDigit(value.charAt(value.length() - 1)) || value.endsWith("."))) { // Leaves out NaN, Infinity and 5d
+            return null;
+        }
+
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return      the field filter written out the same way however it was spaced in the config
+     */
+    @Override
+    public String toString() {
+        return String.join(".", path) + " " + operator.name().toLowerCase(Locale.ROOT) + " " + value;
+    }
+}
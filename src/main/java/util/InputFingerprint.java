@@ -0,0 +1,110 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * The InputFingerprint program tells whether an input file is still
+ * the one something was worked out from. It is the size, the last
+ * modified time and a CRC32 of every byte of the file, so a file
+ * that was edited in place without changing its size or time is
+ * still told apart.
+ *
+ * @author Luciano Kholos
+ */
+public class InputFingerprint {
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final long size;
+    private final long modified; // Epoch milliseconds
+    private final long checksum; // CRC32 of the whole file
+
+    public InputFingerprint(long size, long modified, long checksum) {
+        this.size = size;
+        this.modified = modified;
+        this.checksum = checksum;
+    }
+
+    /**
+     * @param inputFilePath     input file
+     * @return                  fingerprint of the input file as it is now
+     * @throws IOException      if the input file cannot be read
+     */
+    public static InputFingerprint of(String inputFilePath) throws IOException {
+        Path path = Paths.get(inputFilePath);
+        long size = Files.size(path);
+        long modified = Files.getLastModifiedTime(path).toMillis();
+
+        return new InputFingerprint(size, modified, checksum(path));
+    }
+
+    /**
+     * Only checks the size and last modified time, which
+     * does not need the input file to be read
+     * @param inputFilePath     input file
+     * @return                  true if the input file still has the size and last modified time
+     * @throws IOException      if the input file cannot be read
+     */
+    public boolean isCurrent(String inputFilePath) throws IOException {
+        Path path = Paths.get(inputFilePath);
+
+        return Files.size(path) == size && Files.getLastModifiedTime(path).toMillis() == modified;
+    }
+
+    private static long checksum(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while(channel.read(bytes) >= 0) {
+                bytes.flip();
+                crc.update(bytes);
+                bytes.clear();
+            }
+        }
+
+        return crc.getValue();
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof InputFingerprint)) {
+            return false;
+        }
+
+        InputFingerprint other = (InputFingerprint) o;
+        return size == other.size && modified == other.modified && checksum == other.checksum;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(size) * 31 + Long.hashCode(checksum);
+    }
+
+    /**
+     * @return      size, last modified time and checksum, the same for equal fingerprints
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d:%d:%08x", size, modified, checksum);
+    }
+}
@@ -0,0 +1,50 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used where a
+ * List<Integer> would box every value.
+ *
+ * @author Luciano Kholos
+ */
+public class IntList {
+    private int[] values;
+    private int size = 0;
+
+    public IntList() {
+        this(8);
+    }
+
+    public IntList(int capacity) {
+        values = new int[Math.max(1, capacity)];
+    }
+
+    public void add(int value) {
+        if(size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        values[size++] = value;
+    }
+
+    public int get(int index) {
+        if(index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
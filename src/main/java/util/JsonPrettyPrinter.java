@@ -0,0 +1,220 @@
+package util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The JsonPrettyPrinter program re-indents a single-line JSON
+ * object one token at a time. The output is the same as Gson's
+ * pretty printing, without parsing the object into a tree and
+ * writing it back out. Like Gson, it leaves out object members
+ * that are null and escapes the HTML characters in strings.
+ * The builder is reused, so each thread needs its own printer.
+ *
+ * @author Luciano Kholos
+ */
+public class JsonPrettyPrinter {
+    private static final String INDENT = "  ";
+
+    private final StringBuilder builder = new StringBuilder(1024);
+    private char[] chars = new char[1024];
+
+    private String json;
+
+    /**
+     * Pretty prints a JSON object
+     * @param json              JSON object in the form of Gson's JsonElement.toString()
+     * @param writer            receives the pretty printed object
+     * @throws IOException      if the object could not be written
+     */
+    public void print(String json, Writer writer) throws IOException {
+        this.json = json;
+        builder.setLength(0);
+
+        writeValue(0, 0);
+
+        if(chars.length < builder.length()) {
+            chars = new char[builder.length() * 2];
+        }
+
+        builder.getChars(0, builder.length(), chars, 0); // Writing the builder itself would copy it into a new String
+        writer.write(chars, 0, builder.length());
+
+        this.json = null;
+    }
+
+    /**
+     * Writes the value that starts at a position
+     * @param position      position of the first character of the value
+     * @param depth         nesting depth of the value
+     * @return              position after the value
+     */
+    private int writeValue(int position, int depth) {
+        char c = json.charAt(position);
+
+        if(c == '{') {
+            return writeObject(position, depth);
+        }
+
+        if(c == '[') {
+            return writeArray(position, depth);
+        }
+
+        if(c == '"') {
+            return writeString(position);
+        }
+
+        // Numbers, true, false and null are written as they are
+        int end = position;
+        while(end < json.length() && !isEnd(json.charAt(end))) {
+            end++;
+        }
+
+        builder.append(json, position, end);
+        return end;
+    }
+
+    private int writeObject(int position, int depth) {
+        boolean empty = true;
+        position++; // Skips the {
+
+        while(json.charAt(position) != '}') {
+            if(json.charAt(position) == ',') {
+                position++;
+            }
+
+            int nameStart = position;
+            int valueStart = skipString(nameStart) + 1; // Skips the :
+
+            if(isNull(valueStart)) { // Gson does not write null members
+                position = valueStart + 4;
+                continue;
+            }
+
+            builder.append(empty ? '{' : ',');
+            newLine(depth + 1);
+            writeString(nameStart);
+            builder.append(": ");
+
+            position = writeValue(valueStart, depth + 1);
+            empty = false;
+        }
+
+        if(empty) {
+            builder.append("{}");
+        } else {
+            newLine(depth);
+            builder.append('}');
+        }
+
+        return position + 1;
+    }
+
+    private int writeArray(int position, int depth) {
+        boolean empty = true;
+        position++; // Skips the [
+
+        while(json.charAt(position) != ']') {
+            if(json.charAt(position) == ',') {
+                position++;
+            }
+
+            builder.append(empty ? '[' : ',');
+            newLine(depth + 1);
+
+            position = writeValue(position, depth + 1);
+            empty = false;
+        }
+
+        if(empty) {
+            builder.append("[]");
+        } else {
+            newLine(depth);
+            builder.append(']');
+        }
+
+        return position + 1;
+    }
+
+    /**
+     * Copies a string, escaping the characters that Gson escapes
+     * when it is HTML safe
+     * @param position      position of the opening quote
+     * @return              position after the closing quote
+     */
+    private int writeString(int position) {
+        int start = position;
+        int x = position + 1;
+
+        while(true) {
+            char c = json.charAt(x);
+
+            if(c == '"') {
+                break;
+            }
+
+            if(c == '\\') { // Already escaped
+                x += 2;
+                continue;
+            }
+
+            String escaped = htmlEscape(c);
+            if(escaped != null) {
+                builder.append(json, start, x).append(escaped);
+                start = x + 1;
+            }
+
+            x++;
+        }
+
+        builder.append(json, start, x + 1);
+        return x + 1;
+    }
+
+    /**
+     * @param position      position of the opening quote
+     * @return              position after the closing quote
+     */
+    private int skipString(int position) {
+        int x = position + 1;
+
+        while(json.charAt(x) != '"') {
+            x += json.charAt(x) == '\\' ? 2 : 1;
+        }
+
+        return x + 1;
+    }
+
+    private boolean isNull(int position) {
+        return json.startsWith("null", position) && (position + 4 == json.length() || isEnd(json.charAt(position + 4)));
+    }
+
+    private void newLine(int depth) {
+        builder.append('\n');
+
+        for(int x = 0; x < depth; x++) {
+            builder.append(INDENT);
+        }
+    }
+
+    private static boolean isEnd(char c) {
+        return c == ',' || c == '}' || c == ']';
+    }
+
+    private static String htmlEscape(char c) {
+        switch(c) {
+            case '<':
+                return "\\u003c";
+            case '>':
+                return "\\u003e";
+            case '&':
+                return "\\u0026";
+            case '=':
+                return "\\u003d";
+            case '\'':
+                return "\\u0027";
+            default:
+                return null;
+        }
+    }
+}
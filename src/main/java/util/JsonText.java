@@ -0,0 +1,215 @@
+package util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The JsonText program works on raw UTF-8 JSON bytes. It writes
+ * them out the same way Gson's JsonElement.toString() would, without
+ * having to build a Gson tree first.
+ *
+ * @author Luciano Kholos
+ */
+public class JsonText {
+    private JsonText() {}
+
+    /**
+     * Removes the whitespace outside of strings, which gives the
+     * same single-line form as Gson's JsonElement.toString().
+     * @param raw       raw JSON object
+     * @return          single-line JSON object
+     */
+    public static String compact(byte[] raw) {
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        StringBuilder builder = new StringBuilder(raw.length);
+
+        boolean inString = false;
+
+        for(int x = 0; x < raw.length; x++) {
+            byte b = raw[x];
+
+            if(inString) {
+                if(b == '"') {
+                    inString = false;
+                    builder.append('"');
+                } else if(b == '\\') {
+                    x = appendEscape(buffer, x, raw.length, builder);
+                } else {
+                    x = appendChar(buffer, x, raw.length, builder);
+                }
+                continue;
+            }
+
+            if(b == '"') {
+                inString = true;
+            }
+
+            if(b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                builder.append((char) b);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Appends the character inside of a JSON string that starts at a
+     * position. Characters that Gson escapes are appended escaped.
+     * @param buffer        UTF-8 bytes
+     * @param position      position of the first byte of the character
+     * @param limit         end of the bytes
+     * @param builder       receives the character
+     * @return              position of the last byte of the character
+     */
+    public static int appendChar(ByteBuffer buffer, int position, int limit, StringBuilder builder) {
+        int b = buffer.get(position) & 0xFF;
+
+        if(b < 0x80) {
+            appendEscaped(b, builder);
+            return position;
+        }
+
+        int length;
+        int codePoint;
+
+        if(b >= 0xF0) {
+            length = 4;
+            codePoint = b & 0x07;
+        } else if(b >= 0xE0) {
+            length = 3;
+            codePoint = b & 0x0F;
+        } else {
+            length = 2;
+            codePoint = b & 0x1F;
+        }
+
+        if(position + length > limit) { // Cut off in the middle of a character
+            builder.append('\uFFFD');
+            return limit - 1;
+        }
+
+        for(int x = 1; x < length; x++) {
+            codePoint = (codePoint << 6) | (buffer.get(position + x) & 0x3F);
+        }
+
+        if(Character.isValidCodePoint(codePoint)) {
+            appendEscaped(codePoint, builder);
+        } else {
+            builder.append('\uFFFD');
+        }
+
+        return position + length - 1;
+    }
+
+    /**
+     * Appends an escape sequence inside of a JSON string the way Gson
+     * writes it back out. For example \/ becomes / and escaped
+     * letters become the letter itself.
+     * @param buffer        UTF-8 bytes
+     * @param position      position of the backslash
+     * @param limit         end of the bytes
+     * @param builder       receives the character
+     * @return              position of the last byte of the escape sequence
+     */
+    public static int appendEscape(ByteBuffer buffer, int position, int limit, StringBuilder builder) {
+        if(position + 1 >= limit) {
+            builder.append('\\');
+            return position;
+        }
+
+        char c = (char) buffer.get(position + 1);
+
+        if(c == '/') {
+            builder.append('/');
+            return position + 1;
+        }
+
+        if(c != 'u' || position + 5 >= limit) { // \" \\ \n \t \b \f \r are written back unchanged
+            builder.append('\\').append(c);
+            return position + 1;
+        }
+
+        int codePoint = parseHex(buffer, position + 2);
+        int last = position + 5;
+
+        // Surrogate pairs are written as two escape sequences
+        if(Character.isHighSurrogate((char) codePoint) && last + 6 < limit
+                && buffer.get(last + 1) == '\\' && buffer.get(last + 2) == 'u') {
+            int low = parseHex(buffer, last + 3);
+
+            if(Character.isLowSurrogate((char) low)) {
+                codePoint = Character.toCodePoint((char) codePoint, (char) low);
+                last += 6;
+            }
+        }
+
+        if(codePoint < 0) {
+            builder.append('\\').append(c);
+            return position + 1;
+        }
+
+        appendEscaped(codePoint, builder);
+        return last;
+    }
+
+    /**
+     * Appends a character the same way Gson's JsonWriter does
+     * @param codePoint     character
+     * @param builder       receives the character
+     */
+    private static void appendEscaped(int codePoint, StringBuilder builder) {
+        switch(codePoint) {
+            case '"':
+                builder.append("\\\"");
+                return;
+            case '\\':
+                builder.append("\\\\");
+                return;
+            case '\t':
+                builder.append("\\t");
+                return;
+            case '\b':
+                builder.append("\\b");
+                return;
+            case '\n':
+                builder.append("\\n");
+                return;
+            case '\r':
+                builder.append("\\r");
+                return;
+            case '\f':
+                builder.append("\\f");
+                return;
+            case '\u2028':
+                builder.append("\\u2028");
+                return;
+            case '\u2029':
+                builder.append("\\u2029");
+                return;
+            default:
+                if(codePoint < 0x20) {
+                    builder.append(String.format("\\u%04x", codePoint));
+                } else {
+                    builder.appendCodePoint(codePoint);
+                }
+        }
+    }
+
+    /**
+     * @return      the value of 4 hex digits or -1 if they are not hex digits
+     */
+    private static int parseHex(ByteBuffer buffer, int position) {
+        int value = 0;
+
+        for(int x = position; x < position + 4; x++) {
+            int digit = Character.digit((char) buffer.get(x), 16);
+
+            if(digit < 0) {
+                return -1;
+            }
+
+            value = (value << 4) | digit;
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,90 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram program counts how long something took
+ * in buckets that double in size, from 1 nanosecond up. The
+ * percentiles it gives are the upper end of their bucket, so
+ * they are at most twice the real value. Any number of threads
+ * can record at the same time.
+ *
+ * @author Luciano Kholos
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS); // Bucket x holds values below 2^x nanoseconds
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * @param nanos     how long it took
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+        count.increment();
+        total.add(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return      nanoseconds of every value recorded
+     */
+    public long getTotalNanos() {
+        return total.sum();
+    }
+
+    /**
+     * @param percentile        between 0 and 100
+     * @return                  nanoseconds that the percentile of the values are below, 0 if there are none
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = snapshot();
+        long sum = 0;
+
+        for(long bucket : counts) {
+            sum += bucket;
+        }
+
+        long rank = (long) Math.ceil(sum * percentile / 100);
+        long seen = 0;
+
+        for(int x = 0; x < BUCKETS; x++) {
+            seen += counts[x];
+
+            if(seen >= rank && counts[x] > 0) {
+                return upperBound(x);
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return      how many values are in each bucket
+     */
+    public long[] snapshot() {
+        long[] counts = new long[BUCKETS];
+
+        for(int x = 0; x < BUCKETS; x++) {
+            counts[x] = buckets.get(x);
+        }
+
+        return counts;
+    }
+
+    /**
+     * @param bucket    bucket index
+     * @return          nanoseconds that every value in the bucket is below
+     */
+    public static long upperBound(int bucket) {
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+}
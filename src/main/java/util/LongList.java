@@ -0,0 +1,50 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive longs, used where a
+ * List<Long> would box every value.
+ *
+ * @author Luciano Kholos
+ */
+public class LongList {
+    private long[] values;
+    private int size = 0;
+
+    public LongList() {
+        this(8);
+    }
+
+    public LongList(int capacity) {
+        values = new long[Math.max(1, capacity)];
+    }
+
+    public void add(long value) {
+        if(size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        values[size++] = value;
+    }
+
+    public long get(int index) {
+        if(index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,364 @@
+package util;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * The Metrics program times each stage of a run and counts what
+ * went through it. It does nothing until it is enabled, so the
+ * timers cost a single check when metrics are not collected.
+ * While enabled it can be read over JMX, and at the end of the
+ * run it is written out as a JSON report.
+ *
+ * The stages are:
+ *  read        - one batch from the input source, which includes parsing it
+ *  parse       - one JSON object into a Message
+ *  tokenize    - the tokens of one message, part of parse
+ *  timestamp   - the timeStamp of one message, part of parse
+ *  filter      - every filter on one message
+ *  write       - one message into the output
+ *
+ * @author Luciano Kholos
+ */
+public class Metrics implements MetricsMXBean {
+    public enum Stage {
+        READ, PARSE, TOKENIZE, TIMESTAMP, FILTER, WRITE;
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public static final String OBJECT_NAME = "JSONProcessingTool:type=Metrics";
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    private static boolean enabled = false; // Set once before anything is read
+
+    private static final Logger LOGGER = Logger.getLogger(Metrics.class.getName());
+
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder objectsParsed = new LongAdder();
+    private final LongAdder malformedRecords = new LongAdder();
+    private final LongAdder messagesWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    // Kept in the order the filters were first seen
+    private final Map<String, LongAdder> filterChecked = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, LongAdder> filterMatches = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private final long started = System.currentTimeMillis();
+
+    private Metrics() {
+    }
+
+    /**
+     * Starts collecting metrics and shows them over JMX. The
+     * counters keep adding up when it is called again.
+     */
+    public static synchronized void enable() {
+        if(enabled) {
+            return;
+        }
+
+        enabled = true;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) { // Still collected for the report
+            LOGGER.warning("Could not register the metrics MBean: " + e.getMessage());
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return      the start time to hand to stop, or 0 when metrics are not collected
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records how long a stage took
+     * @param stage     stage that ran
+     * @param start     what start returned
+     */
+    public static void stop(Stage stage, long start) {
+        if(enabled) {
+            stage.histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    public static void bytesRead(long bytes) {
+        if(enabled) {
+            INSTANCE.bytesRead.add(bytes);
+        }
+    }
+
+    public static void objectParsed() {
+        if(enabled) {
+            INSTANCE.objectsParsed.increment();
+        }
+    }
+
+    public static void malformedRecord() {
+        if(enabled) {
+            INSTANCE.malformedRecords.increment();
+        }
+    }
+
+    public static void messageWritten() {
+        if(enabled) {
+            INSTANCE.messagesWritten.increment();
+        }
+    }
+
+    public static void bytesWritten(long bytes) {
+        if(enabled) {
+            INSTANCE.bytesWritten.add(bytes);
+        }
+    }
+
+    /**
+     * @param filter    name of the filter
+     * @return          counter of the messages the filter checked
+     */
+    public static LongAdder filterChecked(String filter) {
+        return INSTANCE.filterChecked.computeIfAbsent(filter, key -> new LongAdder());
+    }
+
+    /**
+     * @param filter    name of the filter
+     * @return          counter of the messages the filter passed
+     */
+    public static LongAdder filterMatches(String filter) {
+        return INSTANCE.filterMatches.computeIfAbsent(filter, key -> new LongAdder());
+    }
+
+    /**
+     * @param is        stream of the input
+     * @return          stream that adds what is read from it to the bytes read
+     */
+    public static InputStream countRead(InputStream is) {
+        if(!enabled) {
+            return is;
+        }
+
+        return new FilterInputStream(is) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if(b >= 0) {
+                    bytesRead(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if(read > 0) {
+                    bytesRead(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    /**
+     * @param os        stream of the output
+     * @return          stream that adds what is written to it to the bytes written
+     */
+    public static OutputStream countWritten(OutputStream os) {
+        if(!enabled) {
+            return os;
+        }
+
+        return new FilterOutputStream(os) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesWritten(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytesWritten(len);
+            }
+        };
+    }
+
+    /**
+     * Writes the JSON report
+     * @param reportFilePath        report file
+     */
+    public static void writeReport(String reportFilePath) {
+        try(Writer writer = Files.newBufferedWriter(Paths.get(reportFilePath), StandardCharsets.UTF_8)) {
+            writer.write(INSTANCE.getReport());
+        } catch (IOException e) {
+            LOGGER.severe("Could not write the metrics report to " + reportFilePath);
+        }
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getObjectsParsed() {
+        return objectsParsed.sum();
+    }
+
+    @Override
+    public long getMalformedRecords() {
+        return malformedRecords.sum();
+    }
+
+    @Override
+    public long getMessagesWritten() {
+        return messagesWritten.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public Map<String, Long> getFilterChecked() {
+        return sums(filterChecked);
+    }
+
+    @Override
+    public Map<String, Long> getFilterMatches() {
+        return sums(filterMatches);
+    }
+
+    @Override
+    public Map<String, Long> getStageCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+
+        for(Stage stage : Stage.values()) {
+            counts.put(stage.key(), stage.histogram.getCount());
+        }
+
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getStageMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+
+        for(Stage stage : Stage.values()) {
+            millis.put(stage.key(), stage.histogram.getTotalNanos() / 1000000);
+        }
+
+        return millis;
+    }
+
+    @Override
+    public Map<String, Double> getStageP99Micros() {
+        Map<String, Double> p99 = new LinkedHashMap<>();
+
+        for(Stage stage : Stage.values()) {
+            p99.put(stage.key(), micros(stage.histogram.getPercentile(99)));
+        }
+
+        return p99;
+    }
+
+    @Override
+    public String getReport() {
+        JsonObject report = new JsonObject();
+        report.addProperty("startedAt", started);
+        report.addProperty("elapsedMillis", System.currentTimeMillis() - started);
+
+        JsonObject counters = new JsonObject();
+        counters.addProperty("bytesRead", getBytesRead());
+        counters.addProperty("objectsParsed", getObjectsParsed());
+        counters.addProperty("malformedRecords", getMalformedRecords());
+        counters.addProperty("messagesWritten", getMessagesWritten());
+        counters.addProperty("bytesWritten", getBytesWritten());
+        report.add("counters", counters);
+
+        JsonObject filters = new JsonObject();
+        for(Map.Entry<String, Long> checked : getFilterChecked().entrySet()) {
+            JsonObject filter = new JsonObject();
+            filter.addProperty("checked", checked.getValue());
+            filter.addProperty("matches", getFilterMatches().get(checked.getKey()));
+            filters.add(checked.getKey(), filter);
+        }
+        report.add("filters", filters);
+
+        JsonObject stages = new JsonObject();
+        for(Stage stage : Stage.values()) {
+            LatencyHistogram histogram = stage.histogram;
+
+            JsonObject json = new JsonObject();
+            json.addProperty("count", histogram.getCount());
+            json.addProperty("totalMillis", histogram.getTotalNanos() / 1000000);
+            json.addProperty("meanMicros", histogram.getCount() == 0 ? 0 : micros(histogram.getTotalNanos() / histogram.getCount()));
+            json.addProperty("p50Micros", micros(histogram.getPercentile(50)));
+            json.addProperty("p90Micros", micros(histogram.getPercentile(90)));
+            json.addProperty("p99Micros", micros(histogram.getPercentile(99)));
+            json.addProperty("maxMicros", micros(histogram.getPercentile(100)));
+
+            // Upper bound of each bucket in nanoseconds -> values in it
+            JsonObject buckets = new JsonObject();
+            long[] counts = histogram.snapshot();
+            for(int x = 0; x < counts.length; x++) {
+                if(counts[x] > 0) {
+                    buckets.addProperty(Long.toString(LatencyHistogram.upperBound(x)), counts[x]);
+                }
+            }
+            json.add("histogramNanos", buckets);
+
+            stages.add(stage.key(), json);
+        }
+        report.add("stages", stages);
+
+        return new GsonBuilder().setPrettyPrinting().create().toJson(report);
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> adders) {
+        Map<String, Long> sums = new LinkedHashMap<>();
+
+        synchronized(adders) {
+            for(Map.Entry<String, LongAdder> set : adders.entrySet()) {
+                sums.put(set.getKey(), set.getValue().sum());
+            }
+        }
+
+        return sums;
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
@@ -0,0 +1,51 @@
+package util;
+
+import java.util.Map;
+
+/**
+ * What the Metrics show over JMX while the tool runs.
+ * Registered as JSONProcessingTool:type=Metrics.
+ *
+ * @author Luciano Kholos
+ */
+public interface MetricsMXBean {
+    long getBytesRead();
+
+    long getObjectsParsed();
+
+    long getMalformedRecords();
+
+    long getMessagesWritten();
+
+    long getBytesWritten();
+
+    /**
+     * @return      messages checked by each filter
+     */
+    Map<String, Long> getFilterChecked();
+
+    /**
+     * @return      messages passed by each filter
+     */
+    Map<String, Long> getFilterMatches();
+
+    /**
+     * @return      times each stage ran
+     */
+    Map<String, Long> getStageCounts();
+
+    /**
+     * @return      milliseconds spent in each stage
+     */
+    Map<String, Long> getStageMillis();
+
+    /**
+     * @return      99th percentile of each stage in microseconds
+     */
+    Map<String, Double> getStageP99Micros();
+
+    /**
+     * @return      everything above as the JSON report
+     */
+    String getReport();
+}
@@ -0,0 +1,164 @@
+package util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The ParallelBlockInputStream program decompresses the groups of
+ * blocks found by CompressedBlocks on several threads and hands
+ * the decompressed bytes back in file order. Only a few groups
+ * are decompressed ahead of the reader, so memory use stays the
+ * same whatever the size of the file.
+ *
+ * @author Luciano Kholos
+ */
+public class ParallelBlockInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long[] bounds;
+    private final Compression compression;
+    private final int ahead; // Most groups decompressed before they are read
+
+    private final ExecutorService pool;
+    private final Queue<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private int nextGroup = 0;
+    private byte[] current = new byte[0];
+    private int position = 0;
+
+    /**
+     * @param filePath          compressed file
+     * @param bounds            where each group of blocks starts followed by the size of the file
+     * @param compression       format of the file
+     * @param threads           threads to decompress on
+     * @throws IOException      if the file cannot be opened
+     */
+    public ParallelBlockInputStream(String filePath, long[] bounds, Compression compression, int threads) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        this.bounds = bounds;
+        this.compression = compression;
+        this.ahead = threads + 1;
+
+        this.pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "decompress");
+            thread.setDaemon(true); // Never keeps the program running
+            return thread;
+        });
+
+        submit();
+    }
+
+    /**
+     * Keeps the next groups decompressing
+     */
+    private void submit() {
+        while(pending.size() < ahead && nextGroup < bounds.length - 1) {
+            long start = bounds[nextGroup];
+            long end = bounds[nextGroup + 1];
+
+            pending.add(pool.submit(() -> decompress(start, end)));
+            nextGroup++;
+        }
+    }
+
+    private byte[] decompress(long start, long end) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate((int) (end - start));
+
+        while(compressed.hasRemaining()) {
+            if(channel.read(compressed, start + compressed.position()) < 0) {
+                throw new EOFException("Compressed file is shorter than its blocks");
+            }
+        }
+
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream(compressed.capacity() * 4);
+
+        try(InputStream in = compression.decompress(new ByteArrayInputStream(compressed.array()))) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+
+            while((read = in.read(buffer)) > 0) {
+                decompressed.write(buffer, 0, read);
+            }
+        }
+
+        return decompressed.toByteArray();
+    }
+
+    /**
+     * Moves on to the next decompressed group
+     * @return      false once every group has been read
+     */
+    private boolean advance() throws IOException {
+        while(position >= current.length) {
+            Future<byte[]> next = pending.poll();
+
+            if(next == null) {
+                return false;
+            }
+
+            try {
+                current = next.get();
+                position = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decompressing");
+            } catch (ExecutionException e) {
+                if(e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+
+                throw new IOException("Could not decompress the input file", e.getCause());
+            }
+
+            submit();
+        }
+
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return advance() ? current[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0) {
+            return 0;
+        }
+
+        if(!advance()) {
+            return -1;
+        }
+
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        channel.close();
+    }
+}
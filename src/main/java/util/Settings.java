@@ -2,11 +2,22 @@ package util;
 
 import config.Config;
 
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 /**
  * The Settings program will examine the config
@@ -25,14 +36,43 @@ public class Settings {
     private boolean searchRegexActive;
     private boolean startRegexActive;
 
-    private final String inputFilePath;
+    private String inputFilePath; // The only input file once a pattern has been expanded to a single file
+    private final List<String> inputFiles; // Every input file, more than one runs the multi-file batch
     private final String outputFilePath;
     private HashMap<Date, Date> timestampsMap;
+    private List<TimeRange> timeRanges; // timestampsMap merged into disjoint ranges
     private HashMap<String, Boolean> searchKeywordMap;
     private final String startKeyword;
     private final boolean multiLine;
-
-    private final String dateFormat = "MM-dd-yyyy hh:mm:ss";
+    private final boolean streaming;
+    private final boolean parallelLoad;
+    private final boolean memoryMappedInput;
+    private final boolean lazyParsing;
+    private final boolean explain;
+    private final boolean zeroCopyOutput;
+    private final String messageStore;
+    private final boolean followInput;
+    private final int pollInterval; // Seconds between follow runs, 0 to run once
+    private final boolean daemon; // Stays running and runs again whenever the config or the input changes
+    private final String checkpointFilePath;
+    private final String inputSource; // file, stdin, directory or jms
+    private final int batchSize; // Messages read from the input source at a time
+    private final String jmsBrokerUrl;
+    private final String jmsQueue;
+    private final int jmsIdleTimeout; // Seconds without a message before the queue counts as drained, 0 to wait forever
+    private final int workerThreads; // Input files processed at the same time by the multi-file batch
+    private final Compression outputCompression;
+    private final boolean collectMetrics;
+    private final String metricsReportPath;
+    private final boolean quarantineMalformed; // Skips malformed data into the quarantine file instead of stopping at it
+    private final String quarantineFilePath;
+    private final boolean sidecarIndex; // Keeps an index of the input file next to it, so later runs do not parse it
+    private final String sidecarFilePath;
+    private final boolean cacheResults; // Keeps the matches of each query, so running it again only writes them out
+    private final String cacheDirectory;
+    private final int cacheMaxSize; // Megabytes the cached results are kept under
+    private final int serverPort; // Loads the input once and answers queries over HTTP, 0 to run once
+    private final List<FieldFilter> fieldFilters; // Every one of them has to match
 
     private static final Logger LOGGER = Logger.getLogger(Settings.class.getName());
 
@@ -41,31 +81,195 @@ public class Settings {
         this.outputFilePath = outputFilePath;
 
         this.timestampsMap = getTimestamps();
+        this.timeRanges = mergeTimestamps();
 
         this.searchKeywordMap = getSearchKeywords();
         this.startKeyword = startKeyword;
+        this.fieldFilters = readFieldFilters();
 
         this.multiLine = multiLine;
 
+        this.streaming = getBoolean("streaming");
+        this.parallelLoad = getBoolean("parallel_load");
+        this.memoryMappedInput = getBoolean("memory_mapped_input");
+        this.lazyParsing = getBoolean("lazy_parsing");
+        this.explain = getBoolean("explain");
+        this.zeroCopyOutput = getBoolean("zero_copy_output");
+        this.messageStore = getChoice("message_store", "heap", "direct", "mapped");
+        this.followInput = getBoolean("follow_input");
+        this.daemon = getBoolean("daemon");
+        this.pollInterval = daemon ? 0 : getInteger("poll_interval", 0, 0); // The daemon runs again once the input changes
+        this.checkpointFilePath = getString("checkpoint_file", outputFilePath == null ? null : outputFilePath + ".checkpoint");
+        this.inputSource = getChoice("input_source", "file", "stdin", "directory", "jms");
+        this.batchSize = getInteger("batch_size", 1024, 1);
+        this.jmsBrokerUrl = getString("jms_broker_url", "tcp://localhost:61616");
+        this.jmsQueue = getString("jms_queue", null);
+        this.jmsIdleTimeout = getInteger("jms_idle_timeout", 10, 0);
+        this.workerThreads = getInteger("worker_threads", Runtime.getRuntime().availableProcessors(), 1);
+        this.outputCompression = Compression.valueOf(getChoice("output_compression", "none", "gzip", "zstd").toUpperCase(Locale.ROOT));
+        this.collectMetrics = getBoolean("collect_metrics");
+        this.metricsReportPath = getString("metrics_report", outputFilePath == null ? null : outputFilePath + ".metrics.json");
+        this.quarantineMalformed = getChoice("malformed_input", "stop", "quarantine").equals("quarantine");
+        this.quarantineFilePath = getString("quarantine_file", outputFilePath == null ? null : outputFilePath + ".quarantine");
+        this.inputFiles = readInputFiles();
+        this.serverPort = getInteger("server_port", 0, 0);
+        this.sidecarIndex = getBoolean("sidecar_index") && serverPort == 0; // The server needs every message loaded
+        this.sidecarFilePath = getString("sidecar_file", this.inputFilePath == null ? null : this.inputFilePath + ".idx"); // Once a pattern has been expanded
+        this.cacheResults = getBoolean("cache_results") && serverPort == 0;
+        this.cacheDirectory = getString("cache_directory", outputFilePath == null ? null : outputFilePath + ".cache");
+        this.cacheMaxSize = getInteger("cache_max_size", 64, 1);
+
         setUp();
     }
 
+    /**
+     * Copies the settings with other filters, without reading the config
+     */
+    private Settings(Settings settings, HashMap<Date, Date> timestampsMap, HashMap<String, Boolean> searchKeywordMap, String startKeyword,
+                     List<FieldFilter> fieldFilters) {
+        this.inputFilePath = settings.inputFilePath;
+        this.inputFiles = settings.inputFiles;
+        this.outputFilePath = settings.outputFilePath;
+
+        this.timestampsMap = timestampsMap;
+        this.timeRanges = mergeTimestamps();
+
+        this.searchKeywordMap = searchKeywordMap;
+        this.startKeyword = startKeyword;
+        this.fieldFilters = fieldFilters;
+
+        this.multiLine = settings.multiLine;
+        this.streaming = settings.streaming;
+        this.parallelLoad = settings.parallelLoad;
+        this.memoryMappedInput = settings.memoryMappedInput;
+        this.lazyParsing = settings.lazyParsing;
+        this.explain = settings.explain;
+        this.zeroCopyOutput = settings.zeroCopyOutput;
+        this.messageStore = settings.messageStore;
+        this.followInput = settings.followInput;
+        this.daemon = settings.daemon;
+        this.pollInterval = settings.pollInterval;
+        this.checkpointFilePath = settings.checkpointFilePath;
+        this.inputSource = settings.inputSource;
+        this.batchSize = settings.batchSize;
+        this.jmsBrokerUrl = settings.jmsBrokerUrl;
+        this.jmsQueue = settings.jmsQueue;
+        this.jmsIdleTimeout = settings.jmsIdleTimeout;
+        this.workerThreads = settings.workerThreads;
+        this.outputCompression = settings.outputCompression;
+        this.collectMetrics = settings.collectMetrics;
+        this.metricsReportPath = settings.metricsReportPath;
+        this.quarantineMalformed = settings.quarantineMalformed;
+        this.quarantineFilePath = settings.quarantineFilePath;
+        this.serverPort = settings.serverPort;
+        this.sidecarIndex = settings.sidecarIndex;
+        this.sidecarFilePath = settings.sidecarFilePath;
+        this.cacheResults = settings.cacheResults;
+        this.cacheDirectory = settings.cacheDirectory;
+        this.cacheMaxSize = settings.cacheMaxSize;
+
+        this.inputExists = settings.inputExists;
+        this.outputExists = settings.outputExists;
+
+        setUpFilters();
+    }
+
+    /**
+     * Makes settings that only differ in their filters. The values
+     * are the same as the ones in the config, and they are checked
+     * the same way, except that a value that cannot be read is an error.
+     * @param startTimes        start times, one for each stop time (a missing one is open-ended)
+     * @param stopTimes         stop times
+     * @param searchKeywords    search keywords, search strings and regexes
+     * @param startKeyword      start keyword or regex, null or empty for none
+     * @param fieldFilters      field filters
+     * @return                  settings with the filters
+     * @throws IllegalArgumentException     if a start or stop time, regex or field filter cannot be read
+     */
+    public Settings withFilters(List<String> startTimes, List<String> stopTimes, List<String> searchKeywords, String startKeyword,
+                                List<String> fieldFilters) {
+        HashMap<Date, Date> timestamps = new HashMap<>();
+
+        for(int x = 0; x < Math.max(startTimes.size(), stopTimes.size()); x++) {
+            Date start = x < startTimes.size() ? toDate("start_time", startTimes.get(x)) : null;
+            Date stop = x < stopTimes.size() ? toDate("stop_time", stopTimes.get(x)) : null;
+
+            addTimestamps(timestamps, start, stop);
+        }
+
+        HashMap<String, Boolean> keywords = new HashMap<>();
+        for(String keyword : searchKeywords) {
+            if(!keyword.trim().isEmpty()) {
+                keywords.put(keyword, checkRegex(keyword));
+            }
+        }
+
+        if(startKeyword != null && !startKeyword.trim().isEmpty()) {
+            checkRegex(startKeyword);
+        }
+
+        List<FieldFilter> fields = new ArrayList<>();
+        for(String field : fieldFilters) {
+            if(!field.trim().isEmpty()) {
+                fields.add(FieldFilter.parse(field));
+            }
+        }
+
+        return new Settings(this, timestamps, keywords, startKeyword, Collections.unmodifiableList(fields));
+    }
+
+    /**
+     * @param value     keyword or regex
+     * @return          true if it is a regex
+     * @throws IllegalArgumentException     if it is a regex that cannot be compiled
+     */
+    private boolean checkRegex(String value) {
+        if(!isRegex(value)) {
+            return false;
+        }
+
+        Pattern.compile(value.substring(6, value.length() - 1));
+        return true;
+    }
+
+    /**
+     * @param key       name of the value
+     * @param raw       string date, empty for none
+     * @return          Date or null if it is empty
+     */
+    private Date toDate(String key, String raw) {
+        if(raw.isEmpty()) {
+            return null;
+        }
+
+        Date date = rawToDate(raw);
+
+        if(date == null) {
+            throw new IllegalArgumentException("Invalid " + key + " [" + raw + "], the format is MM-dd-yyyy hh:mm:ss");
+        }
+
+        return date;
+    }
+
     /**
      * Converts strings dates to Date
      * @param raw       string date
      * @return          Date
      */
     public Date rawToDate(String raw) {
-        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(dateFormat);
+        long millis = rawToMillis(raw);
 
-        Date date;
-        try {
-            date = simpleDateFormat.parse(raw);
-        } catch (Exception e) {
-            date = null;
-        }
+        return millis == TimestampParser.INVALID ? null : new Date(millis);
+    }
 
-        return date;
+    /**
+     * Converts strings dates to epoch milliseconds without
+     * creating a Date
+     * @param raw       string date
+     * @return          epoch milliseconds or TimestampParser.INVALID
+     */
+    public long rawToMillis(String raw) {
+        return TimestampParser.parse(raw);
     }
 
     /**
@@ -73,6 +277,33 @@ public class Settings {
      * will run based off the values of the variables.
      */
     private void setUp() {
+        setUpFilters();
+
+        if(inputSource.equals("stdin") || inputSource.equals("jms")) { // Does not read the input file
+            inputExists = true;
+        } else if(inputFilePath == null || inputFilePath.isEmpty()) {
+            inputExists = false;
+        } else {
+            inputExists = true;
+        }
+
+        if(outputFilePath == null || outputFilePath.isEmpty()) {
+            outputExists = false;
+        } else {
+            outputExists = true;
+        }
+
+        if(!searchKeywordActive && !startKeywordActive && !timeSearchActive && fieldFilters.isEmpty() && serverPort == 0) { // Each query of the server has its own filters
+            // Something is wrong since all the input values are null
+            // throw some error and handle it
+            LOGGER.severe("Failed to get values from config. Did you forget to edit the config.txt?");
+        }
+    }
+
+    /**
+     * Determines which of the filters will run
+     */
+    private void setUpFilters() {
         if(searchKeywordMap.isEmpty()) {
             searchKeywordActive = false;
         } else {
@@ -89,7 +320,7 @@ public class Settings {
             }
         }
 
-        if(startKeyword == null || startKeyword.isEmpty()) {
+        if(startKeyword == null || startKeyword.trim().isEmpty()) { // Only whitespace has no words to look for
             startKeywordActive = false;
         } else {
             startKeywordActive = true;
@@ -101,27 +332,9 @@ public class Settings {
             timeSearchActive = true;
         }
 
-        if(inputFilePath == null || inputFilePath.isEmpty()) {
-            inputExists = false;
-        } else {
-            inputExists = true;
-        }
-
-        if(outputFilePath == null || outputFilePath.isEmpty()) {
-            outputExists = false;
-        } else {
-            outputExists = true;
-        }
-
         if(startKeywordActive) {
             startRegexActive = isRegex(startKeyword);
         }
-
-        if(!searchKeywordActive && !startKeywordActive && !timeSearchActive) {
-            // Something is wrong since all the input values are null
-            // throw some error and handle it
-            LOGGER.severe("Failed to get values from config. Did you forget to edit the config.txt?");
-        }
     }
 
     /**
@@ -143,7 +356,171 @@ public class Settings {
     }
 
     /**
-     * Gets all the search keywords from the config
+     * Gets every input file. The input_file key can be given more
+     * than once, and each one can be a glob pattern such as
+     * captures/day-*.txt. Matches are sorted by name.
+     * @return      input files, empty if there is no input file
+     */
+    private List<String> readInputFiles() {
+        List<String> files = new ArrayList<>();
+
+        if(inputFilePath == null || inputFilePath.isEmpty()) {
+            return files;
+        }
+
+        List<String> patterns = new ArrayList<>();
+        patterns.add(inputFilePath);
+
+        String value = "";
+        while(value != null) {
+            value = Config.get("input_file", String.class);
+
+            if(value != null && !value.isEmpty()) {
+                patterns.add(value);
+            }
+        }
+
+        if(!isFileInput()) { // Only the file source reads more than one input file
+            files.add(inputFilePath);
+            return files;
+        }
+
+        for(String pattern : patterns) {
+            files.addAll(expandPattern(pattern.trim()));
+        }
+
+        if(files.size() == 1) {
+            inputFilePath = files.get(0);
+        } else if(files.isEmpty()) {
+            LOGGER.warning("No input file matches " + patterns);
+        }
+
+        return files;
+    }
+
+    /**
+     * @param pattern       file path that may end in a glob pattern
+     * @return              files that match, or the path itself if it is not a pattern
+     */
+    private static List<String> expandPattern(String pattern) {
+        List<String> files = new ArrayList<>();
+
+        Path path = Paths.get(pattern);
+        String name = path.getFileName() == null ? "" : path.getFileName().toString();
+
+        if(!name.matches(".*[*?\\[{].*")) {
+            files.add(pattern);
+            return files;
+        }
+
+        Path directory = path.getParent() == null ? Paths.get(".") : path.getParent();
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + name);
+
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for(Path file : stream) {
+                if(Files.isRegularFile(file) && matcher.matches(file.getFileName())) {
+                    files.add(path.getParent() == null ? file.getFileName().toString() : file.toString());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Could not list " + directory);
+        }
+
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Gets a boolean value from the config
+     * @param key       config key
+     * @return          the value, false if it is missing or malformed
+     */
+    private boolean getBoolean(String key) {
+        Boolean value = Config.get(key, Boolean.class);
+
+        return value != null && value;
+    }
+
+    /**
+     * Gets a text value from the config
+     * @param key               config key
+     * @param defaultValue      used when the value is missing
+     * @return                  the value without surrounding spaces
+     */
+    private String getString(String key, String defaultValue) {
+        String value = Config.get(key, String.class);
+
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Gets one of a fixed set of values from the config
+     * @param key           config key
+     * @param choices       allowed values, the first one is used when the value is missing or unknown
+     * @return              the value in lower case
+     */
+    private String getChoice(String key, String... choices) {
+        String value = Config.get(key, String.class);
+
+        if(value == null || value.trim().isEmpty()) {
+            return choices[0];
+        }
+
+        value = value.trim().toLowerCase(Locale.ROOT);
+
+        for(String choice : choices) {
+            if(choice.equals(value)) {
+                return value;
+            }
+        }
+
+        LOGGER.warning("Unknown " + key + " [" + value + "], using " + choices[0]);
+        return choices[0];
+    }
+
+    /**
+     * Gets a whole number from the config
+     * @param key               config key
+     * @param defaultValue      used when the value is missing or below min
+     * @param min               smallest allowed value
+     * @return                  the value
+     */
+    private int getInteger(String key, int defaultValue, int min) {
+        Integer value = Config.get(key, Integer.class);
+
+        if(value == null) {
+            return defaultValue;
+        }
+
+        if(value < min) {
+            LOGGER.warning(key + " cannot be less than " + min + ", using " + defaultValue);
+            return defaultValue;
+        }
+
+        return value;
+    }
+
+    /**
+     * Merges the start/stop times into disjoint ranges. A
+     * missing start or stop time is open-ended.
+     * @return      disjoint start/stop times sorted by start time
+     */
+    private List<TimeRange> mergeTimestamps() {
+        List<TimeRange> ranges = new ArrayList<>();
+
+        for(Map.Entry<Date, Date> set : timestampsMap.entrySet()) {
+            long start = set.getKey() == null ? Long.MIN_VALUE : set.getKey().getTime();
+            long end = set.getValue() == null ? Long.MAX_VALUE : set.getValue().getTime();
+
+            ranges.add(new TimeRange(start, end));
+        }
+
+        return TimeRange.merge(ranges);
+    }
+
+    /**
+     * Gets all the search keywords from the config. A keyword that
+     * is only whitespace has no words to look for, so it is left out.
      * @return      all the search keywords
      */
     private HashMap<String, Boolean> getSearchKeywords() {
@@ -153,7 +530,7 @@ public class Settings {
         while(value != null) {
             value = Config.get("search_keyword", String.class);
 
-            if(value != null && !value.isEmpty()) {
+            if(value != null && !value.trim().isEmpty()) {
                 //System.out.println(value);
                 if(isRegex(value)) {
                     keywords.put(value, true);
@@ -167,6 +544,27 @@ public class Settings {
         return keywords;
     }
 
+    /**
+     * Gets all the field filters from the config. A field filter
+     * that cannot be read stops the run, since leaving it out
+     * would let through messages it is there to keep out.
+     * @return      all the field filters
+     * @throws IllegalArgumentException     if a field filter cannot be read
+     */
+    private List<FieldFilter> readFieldFilters() {
+        List<FieldFilter> filters = new ArrayList<>();
+
+        for(String value = Config.get("field_filter", String.class); value != null; value = Config.get("field_filter", String.class)) {
+            if(value.trim().isEmpty()) {
+                continue;
+            }
+
+            filters.add(FieldFilter.parse(value));
+        }
+
+        return Collections.unmodifiableList(filters);
+    }
+
     /**
      * Gets all the start/stop times from the config
      * @return      a hashmap of start/stop times
@@ -181,18 +579,28 @@ public class Settings {
             startKey = rawToDate(Config.get("start_time", String.class));
             endValue = rawToDate(Config.get("stop_time", String.class));
 
-            if(startKey != null || endValue != null) {
-                if(startKey == null || endValue == null) {
+            addTimestamps(timestamps, startKey, endValue);
+        }
+
+        return timestamps;
+    }
+
+    /**
+     * Adds a start/stop time if it is a proper one
+     * @param timestamps        start/stop times
+     * @param startKey          start time, null if it is open-ended
+     * @param endValue          stop time, null if it is open-ended
+     */
+    private static void addTimestamps(HashMap<Date, Date> timestamps, Date startKey, Date endValue) {
+        if(startKey != null || endValue != null) {
+            if(startKey == null || endValue == null) {
+                timestamps.put(startKey, endValue);
+            } else {
+                if(endValue.after(startKey)) { // Make sure its a proper start/stop time
                     timestamps.put(startKey, endValue);
-                } else {
-                    if(endValue.after(startKey)) { // Make sure its a proper start/stop time
-                        timestamps.put(startKey, endValue);
-                    }
                 }
             }
         }
-
-        return timestamps;
     }
 
     public boolean isSearchKeywordActive() {
@@ -219,10 +627,151 @@ public class Settings {
         return timestampsMap;
     }
 
+    public List<TimeRange> getTimeRanges() {
+        return timeRanges;
+    }
+
     public boolean isMultiLine() {
         return multiLine;
     }
 
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public boolean isParallelLoad() {
+        return parallelLoad;
+    }
+
+    public boolean isMemoryMappedInput() {
+        return memoryMappedInput;
+    }
+
+    public boolean isLazyParsing() {
+        return lazyParsing;
+    }
+
+    public boolean isExplain() {
+        return explain;
+    }
+
+    public boolean isZeroCopyOutput() {
+        return zeroCopyOutput;
+    }
+
+    public String getMessageStore() {
+        return messageStore;
+    }
+
+    public boolean isFollowInput() {
+        return followInput;
+    }
+
+    public int getPollInterval() {
+        return pollInterval;
+    }
+
+    public String getCheckpointFilePath() {
+        return checkpointFilePath;
+    }
+
+    public String getInputSource() {
+        return inputSource;
+    }
+
+    /**
+     * @return      true if the input is the input file, so it can be mapped, split and copied from
+     */
+    public boolean isFileInput() {
+        return inputSource.equals("file");
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public String getJmsBrokerUrl() {
+        return jmsBrokerUrl;
+    }
+
+    public String getJmsQueue() {
+        return jmsQueue;
+    }
+
+    public int getJmsIdleTimeout() {
+        return jmsIdleTimeout;
+    }
+
+    public List<String> getInputFiles() {
+        return inputFiles;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public Compression getOutputCompression() {
+        return outputCompression;
+    }
+
+    public boolean isCollectMetrics() {
+        return collectMetrics;
+    }
+
+    public String getMetricsReportPath() {
+        return metricsReportPath;
+    }
+
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    public boolean isQuarantineMalformed() {
+        return quarantineMalformed;
+    }
+
+    public String getQuarantineFilePath() {
+        return quarantineFilePath;
+    }
+
+    public boolean isSidecarIndex() {
+        return sidecarIndex;
+    }
+
+    public String getSidecarFilePath() {
+        return sidecarFilePath;
+    }
+
+    public boolean isCacheResults() {
+        return cacheResults;
+    }
+
+    public String getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * @return      bytes the cached results are kept under
+     */
+    public long getCacheMaxBytes() {
+        return cacheMaxSize * 1024L * 1024L;
+    }
+
+    /**
+     * @return      true if any field filter is set
+     */
+    public boolean isFieldFilterActive() {
+        return !fieldFilters.isEmpty();
+    }
+
+    public List<FieldFilter> getFieldFilters() {
+        return fieldFilters;
+    }
+
+    public int getServerPort() {
+        return serverPort;
+    }
+
     public boolean doesInputExist() {
         return inputExists;
     }
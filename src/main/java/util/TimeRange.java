@@ -0,0 +1,69 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A start/stop time in epoch milliseconds. Both ends are
+ * included. A missing start or stop time is open-ended.
+ *
+ * @author Luciano Kholos
+ */
+public class TimeRange {
+    private final long start;
+    private final long end;
+
+    public TimeRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Merges overlapping and touching ranges into
+     * disjoint ranges sorted by start time.
+     * @param ranges        start/stop times
+     * @return              disjoint start/stop times
+     */
+    public static List<TimeRange> merge(Collection<TimeRange> ranges) {
+        List<TimeRange> sorted = new ArrayList<>(ranges);
+        sorted.sort((a, b) -> Long.compare(a.start, b.start));
+
+        List<TimeRange> merged = new ArrayList<>();
+
+        for(TimeRange range : sorted) {
+            if(!merged.isEmpty()) {
+                TimeRange last = merged.get(merged.size() - 1);
+
+                if(range.start <= last.end || range.start - 1 == last.end) {
+                    merged.set(merged.size() - 1, new TimeRange(last.start, Math.max(last.end, range.end)));
+                    continue;
+                }
+            }
+
+            merged.add(range);
+        }
+
+        return merged;
+    }
+
+    /**
+     * @return      true if the time is within the range
+     */
+    public boolean contains(long time) {
+        return time >= start && time <= end;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + end + "]";
+    }
+}
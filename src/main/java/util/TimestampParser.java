@@ -0,0 +1,219 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * The TimestampParser program turns timestamps in the
+ * MM-dd-yyyy hh:mm:ss format into epoch milliseconds. The digits
+ * are read straight out of the text, so nothing is allocated and
+ * it can be called from many threads at once. It gives the same
+ * results as a lenient SimpleDateFormat, so values such as second
+ * 66 roll over into the next minute. Anything that does not look
+ * like the format is handed to SimpleDateFormat.
+ *
+ * @author Luciano Kholos
+ */
+public class TimestampParser {
+    public static final String FORMAT = "MM-dd-yyyy hh:mm:ss";
+
+    public static final long INVALID = Long.MIN_VALUE; // Returned when the timestamp cannot be parsed
+
+    private static final TimeZone ZONE = TimeZone.getDefault(); // getDefault() returns a new copy each time
+
+    private static final char[] SEPARATORS = { '-', '-', ' ', ':', ':' };
+
+    // Anything outside of these is rare enough to be left to SimpleDateFormat
+    private static final int MIN_YEAR = 1600; // Earlier dates use the Julian calendar
+    private static final int MAX_YEAR = 9999;
+    private static final int MAX_FIELD = 99;
+
+    private static final long MAX_OFFSET = 18 * 60 * 60 * 1000; // No time zone is more than 18 hours away from UTC
+
+    private TimestampParser() {}
+
+    /**
+     * Parses a timestamp in the default time zone
+     * @param raw       timestamp
+     * @return          epoch milliseconds or INVALID
+     */
+    public static long parse(CharSequence raw) {
+        return parse(raw, ZONE);
+    }
+
+    /**
+     * Parses a timestamp
+     * @param raw       timestamp
+     * @param zone      time zone of the timestamp
+     * @return          epoch milliseconds or INVALID
+     */
+    public static long parse(CharSequence raw, TimeZone zone) {
+        if(raw == null) {
+            return INVALID;
+        }
+
+        int[] fields = FIELDS.get();
+        int field = 0;
+        int value = 0;
+        int digits = 0;
+
+        for(int x = 0; x < raw.length(); x++) {
+            char c = raw.charAt(x);
+
+            if(c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+
+                if(++digits > 4) {
+                    return parseSlow(raw.toString(), zone);
+                }
+                continue;
+            }
+
+            if(digits == 0 || field == SEPARATORS.length || c != SEPARATORS[field]) {
+                return parseSlow(raw.toString(), zone);
+            }
+
+            fields[field++] = value;
+            value = 0;
+            digits = 0;
+        }
+
+        if(digits == 0 || field != SEPARATORS.length) {
+            return parseSlow(raw.toString(), zone);
+        }
+
+        fields[field] = value;
+
+        long millis = toMillis(fields, zone);
+        return millis == INVALID ? parseSlow(raw.toString(), zone) : millis;
+    }
+
+    /**
+     * Parses a timestamp out of UTF-8 bytes in the default time zone
+     * @param raw       UTF-8 bytes
+     * @param start     position of the first byte of the timestamp
+     * @param end       position after the last byte of the timestamp
+     * @return          epoch milliseconds or INVALID
+     */
+    public static long parse(byte[] raw, int start, int end) {
+        int[] fields = FIELDS.get();
+        int field = 0;
+        int value = 0;
+        int digits = 0;
+
+        for(int x = start; x < end; x++) {
+            byte b = raw[x];
+
+            if(b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+
+                if(++digits > 4) {
+                    return parse(new String(raw, start, end - start, StandardCharsets.UTF_8));
+                }
+                continue;
+            }
+
+            if(digits == 0 || field == SEPARATORS.length || b != SEPARATORS[field]) {
+                return parse(new String(raw, start, end - start, StandardCharsets.UTF_8));
+            }
+
+            fields[field++] = value;
+            value = 0;
+            digits = 0;
+        }
+
+        if(digits == 0 || field != SEPARATORS.length) {
+            return parse(new String(raw, start, end - start, StandardCharsets.UTF_8));
+        }
+
+        fields[field] = value;
+
+        long millis = toMillis(fields, ZONE);
+        return millis == INVALID ? parse(new String(raw, start, end - start, StandardCharsets.UTF_8)) : millis;
+    }
+
+    /**
+     * Works out the epoch milliseconds the same way a lenient
+     * GregorianCalendar does, so fields that are too large roll over.
+     * @param fields        month, day, year, hour, minute, second
+     * @param zone          time zone of the timestamp
+     * @return              epoch milliseconds or INVALID if a field is out of range
+     */
+    private static long toMillis(int[] fields, TimeZone zone) {
+        for(int x = 0; x < fields.length; x++) {
+            if(fields[x] > (x == 2 ? MAX_YEAR : MAX_FIELD)) {
+                return INVALID;
+            }
+        }
+
+        long month = fields[0] - 1L;
+        long year = fields[2] + Math.floorDiv(month, 12);
+        month = Math.floorMod(month, 12) + 1;
+
+        if(year < MIN_YEAR || year > MAX_YEAR) {
+            return INVALID;
+        }
+
+        long hour = fields[3] == 12 ? 0 : fields[3]; // hh is 1-12, 12 is the start of the day
+
+        long days = daysFromCivil(year, month) + fields[1] - 1;
+        long wall = (((days * 24 + hour) * 60 + fields[4]) * 60 + fields[5]) * 1000;
+
+        return wall - offsetAtWallTime(wall, zone);
+    }
+
+    /**
+     * Finds the offset of a time zone at a wall time the same way
+     * GregorianCalendar does. When the clocks go back the wall time
+     * happens twice and the offset from after the change is used. When
+     * the clocks go forward the wall time is skipped and the offset from
+     * before the change is used.
+     * @param wall      wall time in milliseconds
+     * @param zone      time zone
+     * @return          offset in milliseconds
+     */
+    private static int offsetAtWallTime(long wall, TimeZone zone) {
+        int before = zone.getOffset(wall - MAX_OFFSET);
+        int after = zone.getOffset(wall + MAX_OFFSET);
+
+        if(before == after || zone.getOffset(wall - after) != after) {
+            return before;
+        }
+
+        return after;
+    }
+
+    /**
+     * @return      days from 01-01-1970 to the first day of the month
+     */
+    private static long daysFromCivil(long year, long month) {
+        year -= month <= 2 ? 1 : 0;
+
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * The old way of parsing timestamps, used for anything the fast path does not handle
+     */
+    private static long parseSlow(String raw, TimeZone zone) {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(FORMAT);
+        simpleDateFormat.setTimeZone(zone);
+
+        try {
+            Date date = simpleDateFormat.parse(raw);
+            return date.getTime();
+        } catch (Exception e) {
+            return INVALID;
+        }
+    }
+
+    // One scratch array per thread, so parsing does not allocate
+    private static final ThreadLocal<int[]> FIELDS = ThreadLocal.withInitial(() -> new int[6]);
+}
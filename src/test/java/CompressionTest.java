@@ -0,0 +1,138 @@
+import com.github.luben.zstd.ZstdOutputStream;
+import config.Config;
+import config.ConfigParser;
+import org.junit.Assert;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import util.CompressedBlocks;
+import util.Compression;
+import util.ParallelBlockInputStream;
+import util.Settings;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressionTest {
+    @Test
+    public void compressedInputTest() throws Exception {
+        Path directory = Paths.get("target/compression");
+        Files.createDirectories(directory);
+
+        try(OutputStream os = new GZIPOutputStream(Files.newOutputStream(directory.resolve("input.txt.gz")))) {
+            Files.copy(Paths.get("input.txt"), os);
+        }
+
+        ConfigParser.filePath = "src/test/resources/compressionConfigTest.txt";
+
+        JsonProcessingTool tool = new JsonProcessingTool(new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        ));
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } finally {
+            tool.close();
+        }
+
+        // Same filters as the MessageStoreTest, so the same messages are left
+        Assert.assertEquals(Compression.GZIP, Compression.detect("test_output.txt"));
+        Assert.assertEquals(2, countOutputLines());
+    }
+
+    @Test
+    public void gzipBlocksTest() throws Exception {
+        blockRoundTrip(Compression.GZIP);
+    }
+
+    @Test
+    public void zstdBlocksTest() throws Exception {
+        blockRoundTrip(Compression.ZSTD);
+    }
+
+    @Test
+    public void singleStreamTest() throws Exception {
+        Path path = Paths.get("target/compression/single.zst");
+        Files.createDirectories(path.getParent());
+
+        byte[] original = sample();
+        try(OutputStream os = new ZstdOutputStream(Files.newOutputStream(path))) {
+            os.write(original);
+        }
+
+        // One frame cannot be split, so it is read as a stream
+        Assert.assertEquals(Compression.ZSTD, Compression.detect(path.toString()));
+        Assert.assertNull(CompressedBlocks.find(path.toString(), Compression.ZSTD));
+        Assert.assertArrayEquals(original, readAll(Compression.ZSTD.open(path.toString(), 4)));
+    }
+
+    private void blockRoundTrip(Compression compression) throws IOException {
+        Path path = Paths.get("target/compression/blocks." + compression.name().toLowerCase());
+        Files.createDirectories(path.getParent());
+
+        byte[] original = sample();
+        try(OutputStream os = compression.compress(Files.newOutputStream(path))) {
+            os.write(original, 0, original.length / 2);
+            os.flush(); // Ends a block part way
+            os.write(original, original.length / 2, original.length - original.length / 2);
+        }
+
+        long[] bounds = CompressedBlocks.find(path.toString(), compression);
+        Assert.assertNotNull(bounds);
+        Assert.assertTrue(bounds.length > 2);
+        Assert.assertEquals(Files.size(path), bounds[bounds.length - 1]);
+
+        // Both the usual reader and the parallel one get the same bytes back
+        Assert.assertArrayEquals(original, readAll(compression.decompress(new FileInputStream(path.toFile()))));
+        Assert.assertArrayEquals(original, readAll(new ParallelBlockInputStream(path.toString(), bounds, compression, 3)));
+    }
+
+    // Lines of hex that only compress to about half, so the file has several groups of blocks
+    private static byte[] sample() {
+        Random random = new Random(7);
+        StringBuilder builder = new StringBuilder();
+
+        while(builder.length() < 6 * 1024 * 1024) {
+            builder.append(Long.toHexString(random.nextLong())).append(Long.toHexString(random.nextLong())).append('\n');
+        }
+
+        return builder.toString().getBytes();
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+
+        try(InputStream in = is) {
+            int read;
+            while((read = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    // Counts the amount of lines in the gzipped output file
+    private int countOutputLines() throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream("test_output.txt"))));
+        int lines = 0;
+        while (reader.readLine() != null) lines++;
+        reader.close();
+
+        return lines;
+    }
+}
@@ -0,0 +1,98 @@
+import config.Config;
+import config.ConfigParser;
+import core.Daemon;
+import org.junit.Assert;
+import org.junit.Test;
+import util.Settings;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+public class DaemonTest {
+    private static final Path DIRECTORY = Paths.get("target/daemon").toAbsolutePath();
+    private static final Path CONFIG = DIRECTORY.resolve("config.txt");
+    private static final Path INPUT = DIRECTORY.resolve("input.txt");
+    private static final Path OUTPUT = DIRECTORY.resolve("output.txt");
+
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    @Test
+    public void daemonTest() throws Exception {
+        Files.createDirectories(DIRECTORY);
+        Files.copy(Paths.get("input.txt"), INPUT, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(OUTPUT);
+        Files.createFile(OUTPUT);
+        writeConfig("hi");
+
+        ConfigParser.filePath = CONFIG.toString();
+
+        Settings settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+        Assert.assertTrue(settings.isDaemon());
+
+        Daemon daemon = new Daemon(settings);
+        Thread thread = new Thread(daemon::run, "daemon");
+        thread.start();
+
+        try {
+            // Messages 1, 4, 8 and 10 have "hi" in them
+            awaitOutput(4);
+
+            // Reruns with the new search keyword once the config is saved
+            writeConfig("regex(^7)");
+            awaitOutput(1);
+
+            // And again once the input changes
+            Files.write(INPUT, Arrays.asList("{\"timeStamp\":\"07-01-2020 02:01:00\",\"delayMillis\":1,\"properties\":{},\"body\":\"77\"}"),
+                    StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            awaitOutput(2);
+        } finally {
+            daemon.close();
+            thread.join(TIMEOUT_MILLIS);
+        }
+
+        Assert.assertFalse(thread.isAlive());
+    }
+
+    private static void writeConfig(String searchKeyword) throws Exception {
+        List<String> config = Arrays.asList(
+                "input_file=" + INPUT,
+                "output_file=" + OUTPUT,
+                "search_keyword=" + searchKeyword,
+                "multi_line_output=false",
+                "daemon=true");
+
+        Path temp = DIRECTORY.resolve(".config.txt");
+        Files.write(temp, config, StandardCharsets.UTF_8);
+        Files.move(temp, CONFIG, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Waits for a run to leave the output with this many messages
+     */
+    private static void awaitOutput(int messages) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        long count = -1;
+
+        while(System.currentTimeMillis() < deadline) {
+            count = Files.readAllLines(OUTPUT, StandardCharsets.UTF_8).size();
+
+            if(count == messages) {
+                return;
+            }
+
+            Thread.sleep(50);
+        }
+
+        Assert.fail("Expected " + messages + " messages in the output but found " + count);
+    }
+}
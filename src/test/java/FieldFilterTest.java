@@ -0,0 +1,109 @@
+import config.Config;
+import config.ConfigParser;
+import org.junit.Assert;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import util.FieldFilter;
+import util.Settings;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.nio.charset.StandardCharsets;
+
+public class FieldFilterTest {
+    private static final byte[] MESSAGE = ("{\n\t\"timeStamp\": \"07-30-2020 01:59:51\",\n\t\"delayMillis\": 13953,\n"
+            + "\t\"properties\": { \"messageType\": \"SEVERE\", \"tags\": [\"a\", {\"status\": \"x\"}] },\n"
+            + "\t\"body\": { \"hwId\": \"0\", \"status\": \"SAFE\", \"note\": \"say \\\"hi\\\"\", \"ratio\": -1.5e1 }\n}").getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void fieldFilterTest() throws Exception {
+        ConfigParser.filePath = "src/test/resources/fieldConfigTest.txt";
+        Config.reload(); // Each value can only be read once
+
+        JsonProcessingTool tool = new JsonProcessingTool(new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        ));
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } finally {
+            tool.close();
+        }
+
+        // Messages 1, 4, 8 and 10 have "hi" in them, and only 1 and 8 have a delay over 2500
+        Assert.assertEquals(2, countOutputLines());
+    }
+
+    @Test
+    public void invalidConfigTest() {
+        ConfigParser.filePath = "src/test/resources/invalidFieldConfigTest.txt";
+        Config.reload(); // Each value can only be read once
+
+        // Leaving it out would let through the messages it is there to keep out
+        try {
+            new Settings(
+                    Config.get("input_file", String.class),
+                    Config.get("output_file", String.class),
+                    Config.get("start_keyword", String.class),
+                    Config.get("multi_line_output", Boolean.class)
+            );
+            Assert.fail("An invalid field_filter was left out");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("many"));
+        }
+    }
+
+    @Test
+    public void matchesTest() {
+        Assert.assertTrue(matches("properties.messageType eq SEVERE"));
+        Assert.assertTrue(matches("body.status eq SAFE"));
+        Assert.assertFalse(matches("body.status ne SAFE"));
+        Assert.assertTrue(matches("body.note eq say \"hi\""));
+        Assert.assertTrue(matches("body.hwId eq 0"));
+        Assert.assertTrue(matches("body.hwId lt 1")); // Strings that hold a number are compared as numbers
+        Assert.assertTrue(matches("delayMillis eq 13953.0"));
+        Assert.assertTrue(matches("delayMillis ge 13953"));
+        Assert.assertFalse(matches("delayMillis gt 13953"));
+        Assert.assertTrue(matches("body.ratio le -15"));
+        Assert.assertTrue(matches("timeStamp matches regex(^07-30)"));
+        Assert.assertTrue(matches("body.status MATCHES ^SA"));
+
+        // Missing fields, objects and fields that are not on the path never match
+        Assert.assertFalse(matches("body.missing ne SAFE"));
+        Assert.assertFalse(matches("properties eq SEVERE"));
+        Assert.assertFalse(matches("status eq SAFE"));
+        Assert.assertFalse(matches("properties.tags.status eq x"));
+        Assert.assertFalse(FieldFilter.parse("body.status eq SAFE").matches("{\"body\":{\"status\":\"SA".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void parseTest() {
+        Assert.assertEquals("body.status eq SAFE", FieldFilter.parse("  body.status   EQ   SAFE ").toString());
+
+        for(String invalid : new String[] { "body.status", "body.status is SAFE", "body..status eq SAFE", "delayMillis gt many", "body matches [" }) {
+            try {
+                FieldFilter.parse(invalid);
+                Assert.fail(invalid);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    private static boolean matches(String filter) {
+        return FieldFilter.parse(filter).matches(MESSAGE);
+    }
+
+    // Counts the amount of lines in the output file
+    private int countOutputLines() throws Exception {
+        BufferedReader reader = new BufferedReader(new FileReader("test_output.txt"));
+        int lines = 0;
+        while (reader.readLine() != null) lines++;
+        reader.close();
+
+        return lines;
+    }
+}
@@ -0,0 +1,105 @@
+import config.Config;
+import config.ConfigParser;
+import org.junit.Assert;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import util.Settings;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class FollowTest {
+    private static final Path INPUT = Paths.get("target/follow_input.txt");
+    private static final Path OUTPUT = Paths.get("target/follow_output.txt");
+    private static final Path QUARANTINE = Paths.get("target/follow.quarantine");
+
+    @Test
+    public void followTest() throws Exception {
+        List<String> lines = Files.readAllLines(Paths.get("input.txt"), StandardCharsets.UTF_8);
+
+        Files.createDirectories(INPUT.getParent());
+        Files.deleteIfExists(Paths.get("target/follow.checkpoint"));
+        Files.write(INPUT, lines.subList(0, 6), StandardCharsets.UTF_8); // Messages 1 - 5
+
+        ConfigParser.filePath = "src/test/resources/followConfigTest.txt";
+        Config.reload(); // Each value can only be read once
+
+        Settings settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+
+        // The start keyword matches message 4, so 4 and 5 are written
+        new JsonProcessingTool(settings).followJsonMessages();
+        Assert.assertEquals(2, Files.readAllLines(OUTPUT).size());
+
+        // Nothing new
+        new JsonProcessingTool(settings).followJsonMessages();
+        Assert.assertEquals(2, Files.readAllLines(OUTPUT).size());
+
+        // Messages 6 - 11 and the first half of another message that is still being written
+        append(lines.subList(6, lines.size()));
+        append("{\"timeStamp\":\"07-01-2020 02:01:00\",");
+
+        // The start keyword already matched, so every new message is written
+        new JsonProcessingTool(settings).followJsonMessages();
+        Assert.assertEquals(8, Files.readAllLines(OUTPUT).size());
+
+        append("\"delayMillis\":2050,\"properties\":{},\"body\":\"12\"}");
+
+        new JsonProcessingTool(settings).followJsonMessages();
+        List<String> output = Files.readAllLines(OUTPUT);
+        Assert.assertEquals(9, output.size());
+        Assert.assertTrue(output.get(8).endsWith("\"body\":\"12\"}"));
+
+        // A replaced input file is read from the start again
+        Files.write(INPUT, lines.subList(0, 4), StandardCharsets.UTF_8); // Messages 1 - 3
+        new JsonProcessingTool(settings).followJsonMessages();
+        Assert.assertEquals(0, Files.readAllLines(OUTPUT).size());
+    }
+
+    @Test
+    public void unclosedObjectTest() throws Exception {
+        List<String> lines = Files.readAllLines(Paths.get("input.txt"), StandardCharsets.UTF_8);
+
+        Files.createDirectories(INPUT.getParent());
+        Files.deleteIfExists(Paths.get("target/follow.checkpoint"));
+        Files.deleteIfExists(QUARANTINE);
+        Files.write(INPUT, "{\"timeStamp\":\"07-01-2020 02:00:00\",\"delayMillis\":\n".getBytes(StandardCharsets.UTF_8));
+        append(lines.subList(4, 6)); // Messages 4 and 5
+
+        ConfigParser.filePath = "src/test/resources/followConfigTest.txt";
+        Config.reload(); // Each value can only be read once
+
+        Settings settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+
+        // The object that is never closed is quarantined instead of waited on
+        new JsonProcessingTool(settings).followJsonMessages();
+        Assert.assertEquals(2, Files.readAllLines(OUTPUT).size());
+        Assert.assertEquals(1, Files.readAllLines(QUARANTINE).size());
+
+        // And the checkpoint is past it, so nothing is read again
+        new JsonProcessingTool(settings).followJsonMessages();
+        Assert.assertEquals(2, Files.readAllLines(OUTPUT).size());
+        Assert.assertEquals(1, Files.readAllLines(QUARANTINE).size());
+    }
+
+    private static void append(List<String> lines) throws Exception {
+        Files.write(INPUT, lines, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    private static void append(String text) throws Exception {
+        Files.write(INPUT, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,35 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+import util.JsonPrettyPrinter;
+
+import java.io.StringWriter;
+
+public class JsonPrettyPrinterTest {
+    private final Gson prettyGson = new GsonBuilder().setPrettyPrinting().create();
+
+    @Test
+    public void sameAsGsonTest() throws Exception {
+        String[] values = {
+                "{\"timeStamp\":\"07-01-2020 01:59:51\",\"delayMillis\":13953,\"properties\":{\"someProperty\":\"hi\"},\"body\":\"1\"}",
+                "{\"a\":{},\"b\":[],\"c\":[[],{},[1,2.5e3,-0]],\"d\":{\"e\":{\"f\":true}}}",
+                "{\"html\":\"<a href='x'>&amp; = </a>\",\"escaped\":\"\\\"quoted\\\" back\\\\slash \\n \\u2028\"}",
+                "{\"a\":null,\"b\":{\"c\":null},\"d\":[null,{\"e\":null}],\"f\":false}",
+                "{}"
+        };
+
+        JsonPrettyPrinter printer = new JsonPrettyPrinter();
+
+        for(String value : values) {
+            // Same content the tool writes, which is Gson's single-line form
+            String content = JsonParser.parseString(value).toString();
+
+            StringWriter writer = new StringWriter();
+            printer.print(content, writer);
+
+            Assert.assertEquals(prettyGson.toJson(JsonParser.parseString(content)), writer.toString());
+        }
+    }
+}
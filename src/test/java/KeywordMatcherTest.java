@@ -0,0 +1,90 @@
+import message.KeywordMatcher;
+import message.Message;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class KeywordMatcherTest {
+    @Test
+    public void wholeTokensTest() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("beam", "search test"), Collections.<String>emptyList());
+
+        Assert.assertTrue(matcher.matches(message("some beam here")));
+        Assert.assertTrue(matcher.matches(message("beam")));
+        Assert.assertFalse(matcher.matches(message("beams sunbeam")));
+        Assert.assertTrue(matcher.matches(message("test some search")));
+        Assert.assertFalse(matcher.matches(message("search tests")));
+    }
+
+    @Test
+    public void regexTest() {
+        // The back reference keeps the regexes from being joined together
+        KeywordMatcher matcher = new KeywordMatcher(Collections.<String>emptyList(), Arrays.asList("^abc", "(x)\\1", "[0-9]{3}"));
+
+        Assert.assertTrue(matcher.matches(message("abc def")));
+        Assert.assertTrue(matcher.matches(message("a xx b")));
+        Assert.assertTrue(matcher.matches(message("a 123")));
+        Assert.assertFalse(matcher.matches(message("a xabc 12")));
+
+        matcher = new KeywordMatcher(Collections.<String>emptyList(), Arrays.asList("(?i)ABC", "def"));
+        Assert.assertTrue(matcher.matches(message("abc")));
+        Assert.assertFalse(matcher.matches(message("DEF")));
+    }
+
+    @Test
+    public void sameAsContainsTest() {
+        Random random = new Random(7);
+        String[] vocabulary = { "a", "ab", "abc", "b", "ba", "bab", "c", "ca", "\u00e9t\u00e9", "\u00e9" };
+
+        for(int round = 0; round < 200; round++) {
+            List<String> keywords = new ArrayList<>();
+            for(int x = random.nextInt(6); x >= 0; x--) {
+                keywords.add(random.nextBoolean() ? pick(vocabulary, random) : pick(vocabulary, random) + " " + pick(vocabulary, random));
+            }
+
+            KeywordMatcher matcher = new KeywordMatcher(keywords, Collections.<String>emptyList());
+
+            for(int x = 0; x < 50; x++) {
+                StringBuilder builder = new StringBuilder();
+                for(int y = random.nextInt(6); y > 0; y--) {
+                    builder.append(pick(vocabulary, random)).append(' ');
+                }
+
+                Message message = message(builder.toString());
+                Assert.assertEquals(keywords + " " + builder, contains(keywords, message), matcher.matches(message));
+            }
+        }
+    }
+
+    // The way keywords were matched before
+    private boolean contains(List<String> keywords, Message message) {
+        for(String keyword : keywords) {
+            if(message.getArgs().containsAll(Arrays.asList(keyword.split(" ")))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private Message message(String content) {
+        List<String> args = new ArrayList<>();
+        for(String arg : content.split(" ")) {
+            if(!arg.isEmpty()) {
+                args.add(arg);
+            }
+        }
+
+        StringBuilder regexContent = new StringBuilder();
+        for(String arg : args) {
+            regexContent.append(arg).append(' ');
+        }
+
+        return new Message(content, regexContent.toString(), args, Message.NO_TIMESTAMP);
+    }
+}
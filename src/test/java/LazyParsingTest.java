@@ -0,0 +1,89 @@
+import com.google.gson.JsonParser;
+import config.Config;
+import config.ConfigParser;
+import core.Main;
+import message.Message;
+import org.junit.Assert;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import processing.LazyMessageParser;
+import processing.MessageParser;
+import util.Settings;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+public class LazyParsingTest {
+    private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
+
+    // Escapes, characters Gson writes escaped, nested values and numbers, on one line and spread over several
+    private static final String[] INPUTS = {
+            "{\"timeStamp\":\"07-01-2020 02:00:05\",\"delayMillis\":13953,\"properties\":{\"someProperty\":\"say \\\"hi\\\"\"},\"body\":\"back\\\\slash \\/ path\"}",
+            "{\"timeStamp\":\"07-01-2020 02:00:06\",\"delayMillis\":1,\"properties\":{},\"body\":\"caf\\u00e9 \\u2028 line\\u0041 \u00e9\u2028 <tag> & it's = \\t\\n\\r end\"}",
+            "{\"timeStamp\":\"07-01-2020 02:00:07\",\"delayMillis\":-2.5e3,\"properties\":{\"a\":[1,-2.50,{\"b\":[true,null,\"x y\"]}],\"c\":{\"d\":0.10,\"e\":[]}},\"body\":[\"search\",{\"test\":12}]}",
+            "{\n\t\"timeStamp\" : \"07-01-2020 02:00:08\",\n\t\"delayMillis\": 2692,\n\t\"properties\": { \"someProperty\": \"hi, there: {you}\" },\n\t\"body\": \"some search test\"\n}",
+            "{\"timeStamp\":\"07-01-2020 02:00:0\\u0039\",\"delayMillis\":0,\"properties\":{\"k\":\"\\ud83d\\ude00 \\u0000\"},\"body\":\"x\"}"
+    };
+
+    @Test
+    public void lazyParsingTest() throws Exception {
+        ConfigParser.filePath = "src/test/resources/lazyConfigTest.txt";
+        Config.reload(); // Each value can only be read once
+
+        JsonProcessingTool tool = new JsonProcessingTool(new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        ));
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } catch (IOException e) {
+            LOGGER.severe("Invalid File Path");
+        }
+
+        // "some search test" has both words and only one message has the "hey" property
+        Assert.assertEquals(2, countOutputLines());
+    }
+
+    @Test
+    public void sameAsGsonTest() {
+        ConfigParser.filePath = "src/test/resources/lazyConfigTest.txt";
+        Config.reload(); // Each value can only be read once
+
+        Settings settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+
+        MessageParser parser = new MessageParser(settings);
+        LazyMessageParser lazyParser = new LazyMessageParser(settings);
+
+        for(String input : INPUTS) {
+            Message expected = parser.toMessage(JsonParser.parseString(input));
+            Message message = lazyParser.toMessage(input.getBytes(StandardCharsets.UTF_8));
+
+            Assert.assertEquals(input, expected.getContent(), message.getContent());
+            Assert.assertEquals(input, expected.getArgs(), message.getArgs());
+            Assert.assertEquals(input, expected.getRegexContent(), message.getRegexContent());
+            Assert.assertEquals(input, expected.getTimestamp(), message.getTimestamp());
+            Assert.assertNotEquals(input, Message.NO_TIMESTAMP, message.getTimestamp());
+        }
+    }
+
+    // Counts the amount of lines in the output file
+    private int countOutputLines() throws Exception {
+        BufferedReader reader = new BufferedReader(new FileReader("test_output.txt"));
+        int lines = 0;
+        while (reader.readLine() != null) lines++;
+        reader.close();
+
+        return lines;
+    }
+}
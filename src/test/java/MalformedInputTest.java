@@ -0,0 +1,151 @@
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import config.Config;
+import config.ConfigParser;
+import message.Message;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import processing.FileMessageSource;
+import processing.JsonProcessingTool;
+import processing.ParallelJsonLoader;
+import processing.Quarantine;
+import processing.StreamMessageSource;
+import util.Settings;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MalformedInputTest {
+    private static final List<Long> OFFSETS = Arrays.asList(104L, 126L, 290L, 452L); // Byte offset of each malformed span
+
+    private static Settings settings;
+
+    @BeforeClass
+    public static void setUp() {
+        ConfigParser.filePath = "src/test/resources/malformedConfigTest.txt";
+
+        settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+    }
+
+    @Test
+    public void quarantineTest() throws Exception {
+        JsonProcessingTool tool = new JsonProcessingTool(settings);
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } finally {
+            tool.close();
+        }
+
+        // Every message around the malformed data is still there
+        Assert.assertEquals(Arrays.asList("1", "3", "4"), bodies(Files.readAllLines(Paths.get("test_output.txt"), StandardCharsets.UTF_8)));
+        Assert.assertEquals(OFFSETS, quarantined());
+    }
+
+    @Test
+    public void parallelQuarantineTest() throws Exception {
+        List<Message> messages;
+
+        try(Quarantine quarantine = new Quarantine(settings.getQuarantineFilePath(), false)) {
+            messages = new ParallelJsonLoader(settings, quarantine).load();
+        }
+
+        Assert.assertEquals(3, messages.size());
+        Assert.assertEquals(OFFSETS, quarantined());
+    }
+
+    @Test
+    public void mappedQuarantineTest() throws Exception {
+        List<Message> messages = new ArrayList<>();
+
+        try(Quarantine quarantine = new Quarantine(settings.getQuarantineFilePath(), false);
+            FileMessageSource source = new FileMessageSource(settings, settings.getInputFilePath(), 0, false, false, quarantine)) {
+            source.nextBatch(messages, Integer.MAX_VALUE);
+        }
+
+        Assert.assertEquals(3, messages.size());
+        Assert.assertEquals(OFFSETS, quarantined());
+    }
+
+    @Test
+    public void stopTest() throws Exception {
+        List<Message> messages = new ArrayList<>();
+
+        try(FileMessageSource source = new FileMessageSource(settings, settings.getInputFilePath(), 0, false, false, null)) {
+            source.nextBatch(messages, 1);
+            Assert.assertEquals(1, messages.size());
+
+            try {
+                source.nextBatch(new ArrayList<>(), 1);
+                Assert.fail("Read past the malformed data without a quarantine");
+            } catch (JsonParseException e) {
+                // Stops at the line that is not JSON
+            }
+
+            Assert.assertEquals(103, source.position()); // Right after the message in front of it
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void streamUnclosedObjectTest() throws Exception {
+        List<Message> messages = new ArrayList<>();
+
+        // An object that is never closed, then valid messages that never stop coming
+        InputStream is = new InputStream() {
+            private final byte[] unclosed = "{\"timeStamp\":\"07-01-2020 02:00:05\",\"body\":\n".getBytes(StandardCharsets.UTF_8);
+            private final byte[] message = "{\"timeStamp\":\"07-01-2020 02:00:06\",\"body\":\"2\"}\n".getBytes(StandardCharsets.UTF_8);
+            private long position = 0;
+
+            @Override
+            public int read() {
+                long x = position++;
+                return x < unclosed.length ? unclosed[(int) x] : message[(int) ((x - unclosed.length) % message.length)];
+            }
+        };
+
+        try(Quarantine quarantine = new Quarantine(settings.getQuarantineFilePath(), false);
+            StreamMessageSource source = new StreamMessageSource(settings, is, "stream", quarantine)) {
+            source.nextBatch(messages, 3);
+        }
+
+        Assert.assertEquals(3, messages.size());
+        Assert.assertEquals(Arrays.asList(0L), quarantined());
+    }
+
+    private static List<Long> quarantined() throws IOException {
+        List<Long> offsets = new ArrayList<>();
+
+        try(BufferedReader reader = new BufferedReader(new FileReader(settings.getQuarantineFilePath()))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                offsets.add(JsonParser.parseString(line).getAsJsonObject().get("offset").getAsLong());
+            }
+        }
+
+        return offsets;
+    }
+
+    private static List<String> bodies(List<String> lines) {
+        List<String> bodies = new ArrayList<>();
+
+        for(String line : lines) {
+            bodies.add(JsonParser.parseString(line).getAsJsonObject().get("body").getAsString());
+        }
+
+        return bodies;
+    }
+}
@@ -0,0 +1,125 @@
+import config.Config;
+import config.ConfigParser;
+import org.junit.Assert;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import util.Settings;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MalformedStopTest {
+    private static final Path DIRECTORY = Paths.get("target/stop").toAbsolutePath();
+    private static final Path CONFIG = DIRECTORY.resolve("config.txt");
+    private static final Path INPUT = DIRECTORY.resolve("input.txt");
+    private static final Path OUTPUT = DIRECTORY.resolve("output.txt");
+    private static final Path CHECKPOINT = DIRECTORY.resolve("input.checkpoint");
+
+    @Test
+    public void loadTest() throws Exception {
+        writeInput(Arrays.asList(message(1), message(2), "not json"));
+
+        JsonProcessingTool tool = new JsonProcessingTool(settings());
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } finally {
+            tool.close();
+        }
+
+        // Everything in front of the malformed line is still written
+        Assert.assertEquals(Arrays.asList(message(1), message(2)), output());
+    }
+
+    @Test
+    public void lazyLoadTest() throws Exception {
+        writeInput(Arrays.asList(message(1), message(2), "not json"));
+
+        JsonProcessingTool tool = new JsonProcessingTool(settings("lazy_parsing=true"));
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } finally {
+            tool.close();
+        }
+
+        Assert.assertEquals(Arrays.asList(message(1), message(2)), output());
+    }
+
+    @Test
+    public void streamingTest() throws Exception {
+        writeInput(Arrays.asList(message(1), message(2), "not json"));
+
+        new JsonProcessingTool(settings("streaming=true")).streamJsonMessages();
+        Assert.assertEquals(Arrays.asList(message(1), message(2)), output());
+
+        new JsonProcessingTool(settings("streaming=true", "lazy_parsing=true")).streamJsonMessages();
+        Assert.assertEquals(Arrays.asList(message(1), message(2)), output());
+    }
+
+    @Test
+    public void followTest() throws Exception {
+        List<String> lines = new ArrayList<>(Arrays.asList(message(1), message(2), message(3), "not json", message(5), message(6)));
+        writeInput(lines);
+        Files.deleteIfExists(CHECKPOINT);
+
+        new JsonProcessingTool(settings("follow_input=true", "checkpoint_file=" + CHECKPOINT)).followJsonMessages();
+        Assert.assertEquals(Arrays.asList(message(1), message(2), message(3)), output());
+
+        // Starts again at the malformed line, without writing anything twice
+        new JsonProcessingTool(settings("follow_input=true", "checkpoint_file=" + CHECKPOINT)).followJsonMessages();
+        Assert.assertEquals(Arrays.asList(message(1), message(2), message(3)), output());
+
+        // Nothing after it was lost once it has been fixed
+        lines.set(3, message(4));
+        Files.write(INPUT, lines, StandardCharsets.UTF_8);
+
+        new JsonProcessingTool(settings("follow_input=true", "checkpoint_file=" + CHECKPOINT)).followJsonMessages();
+        Assert.assertEquals(lines, output());
+    }
+
+    private static String message(int body) {
+        return "{\"timeStamp\":\"07-01-2020 02:00:0" + body + "\",\"delayMillis\":1,\"properties\":{},\"body\":\"" + body + "\"}";
+    }
+
+    private static void writeInput(List<String> lines) throws Exception {
+        Files.createDirectories(DIRECTORY);
+        Files.write(INPUT, lines, StandardCharsets.UTF_8);
+        Files.deleteIfExists(OUTPUT);
+        Files.createFile(OUTPUT);
+    }
+
+    /**
+     * Writes a config that stops at malformed data and reads it
+     * @param options       extra config lines
+     */
+    private static Settings settings(String... options) throws Exception {
+        List<String> config = new ArrayList<>(Arrays.asList(
+                "input_file=" + INPUT,
+                "output_file=" + OUTPUT,
+                "start_time=01-01-2000 00:00:00",
+                "multi_line_output=false",
+                "malformed_input=stop"));
+        config.addAll(Arrays.asList(options));
+        Files.write(CONFIG, config, StandardCharsets.UTF_8);
+
+        ConfigParser.filePath = CONFIG.toString();
+        Config.reload(); // Each value can only be read once
+
+        return new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+    }
+
+    private static List<String> output() throws Exception {
+        return Files.readAllLines(OUTPUT, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,194 @@
+import config.Config;
+import config.ConfigParser;
+import message.Message;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import processing.DirectoryMessageSource;
+import processing.JmsMessageSource;
+import processing.JsonProcessingTool;
+import processing.StreamMessageSource;
+import util.Settings;
+
+import javax.jms.Connection;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MessageSourceTest {
+    private static BrokerService broker;
+
+    private static Settings settings;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        // Embedded broker that the vm://test URL in the config connects to
+        broker = new BrokerService();
+        broker.setBrokerName("test");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.start();
+
+        ConfigParser.filePath = "src/test/resources/messageSourceConfigTest.txt";
+
+        settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        broker.stop();
+    }
+
+    @Test
+    public void jmsSourceTest() throws Exception {
+        List<String> bodies = new ArrayList<>(Files.readAllLines(Paths.get("input.txt"), StandardCharsets.UTF_8).subList(0, 11));
+        bodies.set(1, bodies.get(0) + bodies.get(1)); // The first message is spread over two lines
+        bodies.set(0, "not json");
+
+        send(bodies);
+
+        new JsonProcessingTool(settings).streamJsonMessages();
+
+        // Messages 1, 4, 8 and 10 have "hi", the malformed message is skipped
+        Assert.assertEquals(4, countOutputLines());
+
+        // Every message was acknowledged
+        try(JmsMessageSource source = new JmsMessageSource(settings)) {
+            Assert.assertFalse(source.nextBatch(new ArrayList<>(), 2));
+        }
+    }
+
+    @Test
+    public void jmsAcknowledgeTest() throws Exception {
+        send(Arrays.asList("{\"timeStamp\":\"07-01-2020 02:00:05\",\"body\":\"1\"}",
+                "{\"timeStamp\":\"07-01-2020 02:00:06\",\"body\":\"2\"}"));
+
+        // A batch only holds what has arrived, so it can take more than one to get both
+        List<Message> batch = new ArrayList<>();
+
+        try(JmsMessageSource source = new JmsMessageSource(settings)) {
+            while(batch.size() < 2 && source.nextBatch(batch, 2)) {
+            }
+            Assert.assertEquals(2, batch.size());
+        }
+
+        // Closed without acknowledging, so the broker sends them again
+        batch.clear();
+
+        try(JmsMessageSource source = new JmsMessageSource(settings)) {
+            while(batch.size() < 2 && source.nextBatch(batch, 2)) {
+            }
+            Assert.assertEquals(2, batch.size());
+            source.acknowledge();
+        }
+
+        try(JmsMessageSource source = new JmsMessageSource(settings)) {
+            Assert.assertFalse(source.nextBatch(new ArrayList<>(), 2));
+        }
+    }
+
+    @Test
+    public void jmsMalformedBodyTest() throws Exception {
+        send(Arrays.asList("{\"timeStamp\":\"07-01-2020 02:00:05\",\"body\":\"1\"} not json",
+                "{\"timeStamp\":\"07-01-2020 02:00:06\",\"body\":\"2\"}"));
+
+        List<Message> batch = new ArrayList<>();
+
+        // Without a quarantine the whole first JMS message is skipped, not only the part after the object
+        try(JmsMessageSource source = new JmsMessageSource(settings)) {
+            while(source.nextBatch(batch, 2) && !batch.get(batch.size() - 1).getContent().endsWith("\"body\":\"2\"}")) {
+            }
+            source.acknowledge();
+        }
+
+        Assert.assertEquals(1, batch.size());
+        Assert.assertTrue(batch.get(0).getContent().endsWith("\"body\":\"2\"}"));
+    }
+
+    @Test
+    public void directorySourceTest() throws Exception {
+        Path directory = Paths.get("target/source_directory");
+        Files.createDirectories(directory);
+
+        Files.write(directory.resolve("b.txt"), Arrays.asList("{\"timeStamp\":\"07-01-2020 02:00:07\",\"body\":\"3\"}"));
+        Files.write(directory.resolve("a.txt"), Arrays.asList("{\"timeStamp\":\"07-01-2020 02:00:05\",\"body\":\"1\"}",
+                "{\"timeStamp\":\"07-01-2020 02:00:06\",\"body\":\"2\"}"));
+
+        List<Message> messages = new ArrayList<>();
+
+        // Batches of 2 run across the end of a.txt into b.txt
+        try(DirectoryMessageSource source = new DirectoryMessageSource(settings, directory.toString())) {
+            List<Message> batch = new ArrayList<>();
+
+            while(source.nextBatch(batch, 2)) {
+                messages.addAll(batch);
+                batch.clear();
+            }
+        }
+
+        Assert.assertEquals(3, messages.size());
+        for(int x = 0; x < messages.size(); x++) {
+            Assert.assertTrue(messages.get(x).getContent().endsWith("\"body\":\"" + (x + 1) + "\"}"));
+        }
+    }
+
+    @Test
+    public void streamSourceTest() throws Exception {
+        String input = "{\"timeStamp\":\"07-01-2020 02:00:05\",\"body\":\"1\"} [1] {\"timeStamp\":\"07-01-2020 02:00:06\",\n\"body\":\"2\"}";
+        List<Message> batch = new ArrayList<>();
+
+        try(StreamMessageSource source = new StreamMessageSource(settings, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)))) {
+            Assert.assertTrue(source.nextBatch(batch, 1));
+            Assert.assertEquals(1, batch.size());
+
+            batch.clear();
+            Assert.assertTrue(source.nextBatch(batch, 1)); // The array is not a message
+            Assert.assertTrue(batch.get(0).getContent().endsWith("\"body\":\"2\"}"));
+
+            batch.clear();
+            Assert.assertFalse(source.nextBatch(batch, 1));
+        }
+    }
+
+    private static void send(List<String> bodies) throws Exception {
+        Connection connection = new ActiveMQConnectionFactory("vm://test").createConnection();
+
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue("capture"));
+
+            for(String body : bodies) {
+                producer.send(session.createTextMessage(body));
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    // Counts the amount of lines in the output file
+    private int countOutputLines() throws Exception {
+        BufferedReader reader = new BufferedReader(new FileReader("test_output.txt"));
+        int lines = 0;
+        while (reader.readLine() != null) lines++;
+        reader.close();
+
+        return lines;
+    }
+}
@@ -0,0 +1,76 @@
+import config.Config;
+import config.ConfigParser;
+import core.Main;
+import message.Message;
+import message.OffHeapMessageStore;
+import org.junit.Assert;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import util.Settings;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+public class MessageStoreTest {
+    private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
+
+    @Test
+    public void mappedStoreTest() throws Exception {
+        ConfigParser.filePath = "src/test/resources/messageStoreConfigTest.txt";
+
+        JsonProcessingTool tool = new JsonProcessingTool(new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        ));
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } catch (IOException e) {
+            LOGGER.severe("Invalid File Path");
+        } finally {
+            tool.close();
+        }
+
+        // Same filters as the FilterPlanTest, so the same messages are left
+        Assert.assertEquals(2, countOutputLines());
+    }
+
+    @Test
+    public void directStoreTest() {
+        Message decoded = new Message("{\"a\":\"b c\"}", "b c ", Arrays.asList("b", "c"), 42L);
+
+        try(OffHeapMessageStore store = new OffHeapMessageStore(false, bytes -> decoded)) {
+            store.add(new Message("{\"a\":\"b c\"}", "b c ", Arrays.asList("b", "c"), 42L));
+            store.add(new Message("{\"d\":1}", "1 ", Arrays.asList("1"), Message.NO_TIMESTAMP));
+
+            Assert.assertEquals(2, store.size());
+            Assert.assertEquals(42L, store.getTimestamp(0));
+            Assert.assertEquals(Message.NO_TIMESTAMP, store.getTimestamp(1));
+
+            Message message = store.get(1);
+            Assert.assertEquals(1, message.getId());
+            Assert.assertEquals("{\"d\":1}", message.getContent());
+            Assert.assertFalse(message.hasSpan());
+
+            // The tokens come from the decoder
+            Assert.assertEquals(Arrays.asList("b", "c"), store.get(0).getArgs());
+            Assert.assertEquals("b c ", store.get(0).getRegexContent());
+        }
+    }
+
+
+    // Counts the amount of lines in the output file
+    private int countOutputLines() throws Exception {
+        BufferedReader reader = new BufferedReader(new FileReader("test_output.txt"));
+        int lines = 0;
+        while (reader.readLine() != null) lines++;
+        reader.close();
+
+        return lines;
+    }
+}
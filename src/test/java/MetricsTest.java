@@ -0,0 +1,141 @@
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import config.Config;
+import config.ConfigParser;
+import message.Message;
+import message.MessageManager;
+import org.junit.Assert;
+import org.junit.Test;
+import processing.FilterPlan;
+import processing.JsonProcessingTool;
+import util.LatencyHistogram;
+import util.Metrics;
+import util.Settings;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+public class MetricsTest {
+    @Test
+    public void metricsTest() throws Exception {
+        ConfigParser.filePath = "src/test/resources/metricsConfigTest.txt";
+        Config.reload(); // Each value can only be read once
+
+        Settings settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+        Assert.assertTrue(settings.isCollectMetrics());
+
+        Metrics.enable();
+
+        JsonProcessingTool tool = new JsonProcessingTool(settings);
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } finally {
+            tool.close();
+        }
+
+        Metrics.writeReport(settings.getMetricsReportPath());
+
+        JsonObject report = readReport("target/metrics.json");
+        JsonObject counters = report.getAsJsonObject("counters");
+
+        // Every message of input.txt, and the same matches as the FilterPlanTest
+        Assert.assertEquals(Files.size(Paths.get("input.txt")), counters.get("bytesRead").getAsLong());
+        Assert.assertEquals(11, counters.get("objectsParsed").getAsLong());
+        Assert.assertEquals(0, counters.get("malformedRecords").getAsLong());
+        Assert.assertEquals(2, counters.get("messagesWritten").getAsLong());
+        Assert.assertEquals(Files.size(Paths.get("test_output.txt")), counters.get("bytesWritten").getAsLong());
+
+        JsonObject filters = report.getAsJsonObject("filters");
+        Assert.assertFalse(filters.entrySet().isEmpty());
+
+        for(String filter : filters.keySet()) {
+            JsonObject counts = filters.getAsJsonObject(filter);
+            Assert.assertTrue(filter, counts.get("checked").getAsLong() >= counts.get("matches").getAsLong());
+            Assert.assertTrue(filter, counts.get("checked").getAsLong() <= 11); // Sampling is not counted
+        }
+
+        JsonObject stages = report.getAsJsonObject("stages");
+        Assert.assertEquals(11, stages.getAsJsonObject("parse").get("count").getAsLong());
+        Assert.assertEquals(2, stages.getAsJsonObject("write").get("count").getAsLong());
+
+        // The same counters over JMX
+        Object parsed = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(Metrics.OBJECT_NAME), "ObjectsParsed");
+        Assert.assertEquals(11L, parsed);
+    }
+
+    @Test
+    public void filterCountTest() throws Exception {
+        ConfigParser.filePath = "src/test/resources/metricsConfigTest.txt";
+        Config.reload(); // Each value can only be read once
+
+        Settings settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+
+        JsonProcessingTool tool = new JsonProcessingTool(settings);
+        try {
+            tool.loadJsonMessages();
+            Metrics.enable(); // After the load, so the counters of the metricsTest are left alone
+
+            // Two filters every message passes, so each one checks every message whatever order they run in
+            Settings query = settings.withFilters(Collections.singletonList("01-01-2000 00:00:00"), Collections.<String>emptyList(),
+                    Collections.<String>emptyList(), null, Collections.singletonList("delayMillis gt 0"));
+            MessageManager manager = tool.getManager().withSettings(query);
+            List<Message> messages = manager.getMessages();
+
+            // A sampled plan and an adaptive run, which measures every one of these messages
+            FilterPlan plan = FilterPlan.compile(query, manager, true).sample(messages);
+            for(FilterPlan.Run run : new FilterPlan.Run[] { plan.newRun(), plan.newAdaptiveRun() }) {
+                for(Message message : messages) {
+                    run.test(message);
+                }
+            }
+        } finally {
+            tool.close();
+        }
+
+        Metrics.writeReport("target/filterCount.metrics.json");
+        JsonObject filters = readReport("target/filterCount.metrics.json").getAsJsonObject("filters");
+
+        // Each run checks every message once, sampling them is not counted
+        for(String filter : new String[] { "time (1 range(s)) [index]", "field filter (1 field(s))" }) {
+            Assert.assertEquals(filter, 2 * 11, filters.getAsJsonObject(filter).get("checked").getAsLong());
+            Assert.assertEquals(filter, 2 * 11, filters.getAsJsonObject(filter).get("matches").getAsLong());
+        }
+    }
+
+    private static JsonObject readReport(String path) throws Exception {
+        return JsonParser.parseString(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    @Test
+    public void histogramTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for(int x = 1; x <= 100; x++) {
+            histogram.record(x * 1000);
+        }
+
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(5050000, histogram.getTotalNanos());
+
+        // Within a factor of two above the real value
+        Assert.assertTrue(histogram.getPercentile(50) >= 50000 && histogram.getPercentile(50) <= 100000);
+        Assert.assertTrue(histogram.getPercentile(99) >= 99000 && histogram.getPercentile(99) <= 198000);
+        Assert.assertEquals(0, new LatencyHistogram().getPercentile(99));
+    }
+}
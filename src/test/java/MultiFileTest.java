@@ -0,0 +1,50 @@
+import config.Config;
+import config.ConfigParser;
+import org.junit.Assert;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import util.Settings;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MultiFileTest {
+    @Test
+    public void multiFileTest() throws Exception {
+        Path directory = Paths.get("target/multi_file");
+        Files.createDirectories(directory);
+
+        // The start keyword only matches in the second file
+        Files.write(directory.resolve("capture-1.txt"), Arrays.asList(message("02:00:04", "v")));
+        Files.write(directory.resolve("capture-2.txt"), Arrays.asList(message("02:00:01", "x"), message("02:00:05", "start"), message("02:00:09", "y")));
+        Files.write(directory.resolve("capture-3.txt"), Arrays.asList(message("02:00:11", "w"), message("02:00:03", "z")));
+
+        ConfigParser.filePath = "src/test/resources/multiFileConfigTest.txt";
+
+        Settings settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+        Assert.assertEquals(3, settings.getInputFiles().size());
+
+        new JsonProcessingTool(settings).processFiles();
+
+        List<String> bodies = new ArrayList<>();
+        for(String line : Files.readAllLines(Paths.get("test_output.txt"))) {
+            bodies.add(line.substring(line.lastIndexOf(":\"") + 2, line.lastIndexOf('"')));
+        }
+
+        // Nothing before the start keyword, everything in the file after it, in timeStamp order
+        Assert.assertEquals(Arrays.asList("z", "start", "y", "w"), bodies);
+    }
+
+    private static String message(String time, String body) {
+        return "{\"timeStamp\":\"07-01-2020 " + time + "\",\"delayMillis\":2050,\"properties\":{},\"body\":\"" + body + "\"}";
+    }
+}
@@ -0,0 +1,103 @@
+import com.google.gson.JsonParseException;
+import config.Config;
+import config.ConfigParser;
+import core.Main;
+import org.junit.Assert;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import processing.ParallelJsonLoader;
+import processing.Quarantine;
+import util.Settings;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.logging.Logger;
+
+public class ParallelLoadTest {
+    private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
+
+    private static final int MESSAGES = 5000;
+
+    @Test
+    public void parallelLoadTest() throws Exception {
+        ConfigParser.filePath = "src/test/resources/parallelConfigTest.txt";
+        Config.reload(); // Each value can only be read once
+
+        writeInput();
+
+        JsonProcessingTool tool = new JsonProcessingTool(new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        ));
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } catch (IOException e) {
+            LOGGER.severe("Invalid File Path");
+        }
+
+        // Every message from message1000 on, in the same order as the input file
+        Assert.assertEquals(MESSAGES - 1000, countOutputLines());
+        Assert.assertTrue(readFirstLine().contains("\"message1000\""));
+    }
+
+    @Test
+    public void nestedBoundaryTest() throws Exception {
+        ConfigParser.filePath = "src/test/resources/parallelConfigTest.txt";
+        Config.reload(); // Each value can only be read once
+
+        // One message with a nested object at the start of every line, so most chunks start inside of it
+        try(Writer writer = new FileWriter("target/parallelNestedInput.txt")) {
+            writer.write("{\"timeStamp\":\"07-01-2020 02:00:05\",\"delayMillis\":1,\"properties\":{\"list\":[\n");
+            for(int x = 0; x < 50000; x++) {
+                writer.write("{\"timeStamp\":\"07-01-2020 02:00:06\",\"a\":" + x + "},\n");
+            }
+            writer.write("{}]},\"body\":\"nested\"}\n");
+        }
+
+        Settings settings = new Settings("target/parallelNestedInput.txt", Config.get("output_file", String.class), null, false);
+
+        // Nothing valid is quarantined, the load is left to the sequential reader
+        try(Quarantine quarantine = new Quarantine("target/parallelNested.quarantine", false)) {
+            new ParallelJsonLoader(settings, quarantine).load();
+            Assert.fail("Loaded chunks that start inside of an object");
+        } catch (JsonParseException e) {
+            // Falls back to the sequential load
+        }
+
+        Assert.assertFalse(Files.exists(Paths.get("target/parallelNested.quarantine")));
+    }
+
+    // Writes a multi-line input file that is big enough to be split into several chunks
+    private void writeInput() throws Exception {
+        try(Writer writer = new FileWriter("target/parallelInput.txt")) {
+            for(int x = 0; x < MESSAGES; x++) {
+                writer.write("{\n\t\"timeStamp\": \"07-01-2020 02:00:" + (x % 60) + "\",\n\t\"delayMillis\": " + x + ",\n");
+                writer.write("\t\"properties\": {\n\t\t\"someProperty\": \"hi\"\n\t},\n\t\"body\": \"message" + x + "\"\n}\n");
+            }
+        }
+    }
+
+    private String readFirstLine() throws Exception {
+        try(BufferedReader reader = new BufferedReader(new FileReader("test_output.txt"))) {
+            return reader.readLine();
+        }
+    }
+
+    // Counts the amount of lines in the output file
+    private int countOutputLines() throws Exception {
+        BufferedReader reader = new BufferedReader(new FileReader("test_output.txt"));
+        int lines = 0;
+        while (reader.readLine() != null) lines++;
+        reader.close();
+
+        return lines;
+    }
+}
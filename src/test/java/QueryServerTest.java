@@ -0,0 +1,126 @@
+import config.Config;
+import config.ConfigParser;
+import core.QueryServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import util.Settings;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class QueryServerTest {
+    private JsonProcessingTool tool;
+    private QueryServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        ConfigParser.filePath = "src/test/resources/serverConfigTest.txt";
+        Config.reload(); // Each value can only be read once
+
+        Settings settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+
+        tool = new JsonProcessingTool(settings);
+        tool.loadJsonMessages();
+
+        server = new QueryServer(settings, tool.getManager(), 0);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+        tool.close();
+    }
+
+    @Test
+    public void queryTest() throws Exception {
+        // Messages 1, 4, 8 and 10 have "hi" in them
+        Assert.assertEquals(4, query("search_keyword=hi").size());
+
+        List<String> matches = query("start_time=" + encode("07-01-2020 02:00:17") + "&stop_time=" + encode("07-01-2020 02:00:25") + "&search_keyword=hi");
+        Assert.assertEquals(1, matches.size());
+        Assert.assertTrue(matches.get(0).contains("\"body\":\"8\""));
+
+        Assert.assertEquals(5, query("search_keyword=hi&search_keyword=" + encode("regex(^7)")).size()); // Message 7 matches the regex
+        Assert.assertEquals(2, query("search_keyword=hi&limit=2").size());
+        Assert.assertEquals(7, query("start_keyword=5").size()); // Same as the StartKeywordTest
+        Assert.assertEquals(1, query("field_filter=" + encode("properties.messageType eq SEVERE")).size());
+        Assert.assertEquals(11, query("").size());
+    }
+
+    @Test
+    public void badQueryTest() throws Exception {
+        Assert.assertEquals(400, status("/query?start_time=tomorrow"));
+        Assert.assertEquals(400, status("/query?search_keyword=" + encode("regex([)")));
+        Assert.assertEquals(400, status("/query?limit=-1"));
+        Assert.assertEquals(400, status("/query?field_filter=" + encode("delayMillis gt many")));
+        Assert.assertEquals(200, status("/status"));
+    }
+
+    @Test
+    public void concurrentQueryTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for(int x = 0; x < 32; x++) {
+                String query = x % 2 == 0 ? "search_keyword=hi" : "start_time=" + encode("07-01-2020 02:00:17") + "&stop_time=" + encode("07-01-2020 02:00:25");
+                results.add(executor.submit(() -> query(query)));
+            }
+
+            for(int x = 0; x < results.size(); x++) {
+                Assert.assertEquals(x % 2 == 0 ? 4 : 3, results.get(x).get().size());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<String> query(String query) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url("/query?" + query).openConnection();
+        Assert.assertEquals(200, connection.getResponseCode());
+
+        List<String> lines = new ArrayList<>();
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+
+        return lines;
+    }
+
+    private int status(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url(path).openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://localhost:" + server.getPort() + path);
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+}
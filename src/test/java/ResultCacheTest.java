@@ -0,0 +1,149 @@
+import config.Config;
+import config.ConfigParser;
+import message.Message;
+import message.MessageFile;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import processing.ResultCache;
+import util.Metrics;
+import util.Settings;
+
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ResultCacheTest {
+    private static final Path INPUT = Paths.get("target/cache_input.txt");
+    private static final Path CACHE = Paths.get("target/result.cache");
+
+    @Before
+    public void setUp() throws Exception {
+        ConfigParser.filePath = "src/test/resources/cacheConfigTest.txt";
+        Metrics.enable();
+
+        Files.createDirectories(INPUT.getParent());
+        Files.copy(Paths.get("input.txt"), INPUT, StandardCopyOption.REPLACE_EXISTING);
+        clear(CACHE);
+    }
+
+    @Test
+    public void cacheTest() throws Exception {
+        run();
+        List<String> output = output();
+        Assert.assertEquals(2, output.size()); // Same as the FilterPlanTest, the regex does not stop it from being cached
+        Assert.assertEquals(1, results(CACHE));
+
+        // The second run only copies the cached matches
+        long parsed = objectsParsed();
+        run();
+        Assert.assertEquals(parsed, objectsParsed());
+        Assert.assertEquals(output, output());
+    }
+
+    @Test
+    public void changedInputTest() throws Exception {
+        run();
+        long parsed = objectsParsed();
+
+        Files.write(INPUT, "\n{\"timeStamp\":\"07-01-2020 02:00:18\",\"delayMillis\":1000,\"properties\":{\"someProperty\":\"hi\"},\"body\":\"12\"}\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        run();
+        Assert.assertTrue(objectsParsed() > parsed);
+        Assert.assertEquals(3, output().size());
+        Assert.assertEquals(2, results(CACHE)); // The old result is left for the eviction
+    }
+
+    @Test
+    public void evictionTest() throws Exception {
+        Path directory = Paths.get("target/eviction.cache");
+        clear(directory);
+
+        List<Message> matches = new ArrayList<>();
+        for(int x = 0; x < 10; x++) {
+            Message message = new Message("{}", "", Collections.<String>emptyList(), 0L);
+            message.setSpan(x * 10, 10, true);
+            matches.add(message);
+        }
+
+        new ResultCache(directory.toString(), Long.MAX_VALUE).put("a", matches);
+        long size = Files.size(directory.toFile().listFiles()[0].toPath());
+
+        // Room for two results
+        ResultCache cache = new ResultCache(directory.toString(), size * 2 + size / 2);
+
+        try(MessageFile file = new MessageFile(INPUT.toString())) {
+            Thread.sleep(20);
+            cache.put("b", matches);
+
+            Thread.sleep(20);
+            Assert.assertEquals(10, cache.get("a", file).size()); // Used after b
+
+            Thread.sleep(20);
+            cache.put("c", matches);
+
+            Assert.assertEquals(2, results(directory));
+            Assert.assertNotNull(cache.get("a", file));
+            Assert.assertNull(cache.get("b", file));
+            Assert.assertNotNull(cache.get("c", file));
+
+            // Where each match is comes back as it was
+            Message message = cache.get("c", file).get(3);
+            Assert.assertTrue(message.hasSpan());
+            Assert.assertEquals(30, message.getOffset());
+            Assert.assertEquals(10, message.getLength());
+        }
+    }
+
+    private static void run() throws Exception {
+        Config.reload(); // Each value can only be read once
+        Settings settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+
+        JsonProcessingTool tool = new JsonProcessingTool(settings);
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } finally {
+            tool.close();
+        }
+    }
+
+    private static long objectsParsed() throws Exception {
+        return (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(Metrics.OBJECT_NAME), "ObjectsParsed");
+    }
+
+    private static List<String> output() throws Exception {
+        return Files.readAllLines(Paths.get("test_output.txt"), StandardCharsets.UTF_8);
+    }
+
+    private static int results(Path directory) {
+        File[] files = directory.toFile().listFiles((dir, name) -> name.endsWith(".matches"));
+        return files == null ? 0 : files.length;
+    }
+
+    private static void clear(Path directory) throws Exception {
+        File[] files = directory.toFile().listFiles();
+
+        if(files != null) {
+            for(File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+    }
+}
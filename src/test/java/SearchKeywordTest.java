@@ -16,7 +16,8 @@ public class SearchKeywordTest {
 
     @Test
     public void searchKeywordTest() throws Exception {
-        ConfigParser.filePath = "C:\\Users\\Luciano\\Desktop\\Programming\\Boeing\\Projects\\JSONProcessingTool\\src\\test\\resources\\searchConfigTest.txt";
+        ConfigParser.filePath = "src/test/resources/searchConfigTest.txt";
+        Config.reload(); // Each value can only be read once
 
         JsonProcessingTool tool = new JsonProcessingTool(new Settings(
                 Config.get("input_file", String.class),
@@ -34,10 +35,39 @@ public class SearchKeywordTest {
         Assert.assertEquals(4, countOutputLines());
     }
 
+    @Test
+    public void blankKeywordTest() throws Exception {
+        ConfigParser.filePath = "src/test/resources/blankSearchConfigTest.txt";
+        Config.reload(); // Each value can only be read once
+
+        Settings settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+
+        // The keywords that are only a space are left out, so only "hi" is searched for
+        Assert.assertEquals(1, settings.getSearchKeywordMap().size());
+        Assert.assertFalse(settings.isStartKeywordActive());
+
+        JsonProcessingTool tool = new JsonProcessingTool(settings);
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } finally {
+            tool.close();
+        }
+        Assert.assertEquals(4, countOutputLines());
+
+        // The same when every message is checked as it is read
+        new JsonProcessingTool(settings).streamJsonMessages();
+        Assert.assertEquals(4, countOutputLines());
+    }
 
     // Counts the amount of lines in the output file
     private int countOutputLines() throws Exception {
-        BufferedReader reader = new BufferedReader(new FileReader("C:\\Users\\Luciano\\Desktop\\Programming\\Boeing\\Projects\\JSONProcessingTool\\output.txt"));
+        BufferedReader reader = new BufferedReader(new FileReader("test_output.txt"));
         int lines = 0;
         while (reader.readLine() != null) lines++;
         reader.close();
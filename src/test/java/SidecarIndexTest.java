@@ -0,0 +1,134 @@
+import config.Config;
+import config.ConfigParser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import util.Metrics;
+import util.Settings;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+public class SidecarIndexTest {
+    private static final Path INPUT = Paths.get("target/sidecar_input.txt");
+    private static final Path SIDECAR = Paths.get("target/sidecar_input.txt.idx");
+
+    // Messages 1 (spread over several lines) and 8 of input.txt
+    private static final List<String> EXPECTED = Arrays.asList(
+            "{\"timeStamp\":\"07-01-2020 01:59:51\",\"delayMillis\":13953,\"properties\":{\"someProperty\":\"hi\"},\"body\":\"1\"}",
+            "{\"timeStamp\":\"07-01-2020 02:00:25\",\"delayMillis\":2692,\"properties\":{\"someProperty\":\"hi\"},\"body\":\"8\"}"
+    );
+
+    @Before
+    public void setUp() throws Exception {
+        ConfigParser.filePath = "src/test/resources/sidecarConfigTest.txt";
+        Metrics.enable();
+
+        Files.createDirectories(INPUT.getParent());
+        Files.copy(Paths.get("input.txt"), INPUT, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(SIDECAR);
+    }
+
+    @Test
+    public void sidecarTest() throws Exception {
+        run();
+        Assert.assertTrue(Files.exists(SIDECAR));
+        Assert.assertEquals(EXPECTED, output());
+
+        // The second run does not parse a single message
+        long parsed = objectsParsed();
+        run();
+        Assert.assertEquals(parsed, objectsParsed());
+        Assert.assertEquals(EXPECTED, output());
+    }
+
+    @Test
+    public void changedInputTest() throws Exception {
+        run();
+        long parsed = objectsParsed();
+        byte[] sidecar = Files.readAllBytes(SIDECAR);
+
+        // Same size and last modified time, only the checksum tells
+        FileTime modified = Files.getLastModifiedTime(INPUT);
+        byte[] input = Files.readAllBytes(INPUT);
+        int body = new String(input, StandardCharsets.UTF_8).indexOf("\"body\":\"8\"") + 8;
+        input[body] = '9';
+        Files.write(INPUT, input);
+        Files.setLastModifiedTime(INPUT, modified);
+
+        run();
+        Assert.assertTrue(objectsParsed() > parsed);
+        Assert.assertEquals(Arrays.asList(EXPECTED.get(0), EXPECTED.get(1).replace("\"8\"", "\"9\"")), output());
+        Assert.assertFalse(Arrays.equals(sidecar, Files.readAllBytes(SIDECAR)));
+
+        // A message added to the end is found once the sidecar has been made again
+        Files.write(INPUT, "\n{\"timeStamp\":\"07-01-2020 02:00:18\",\"delayMillis\":1000,\"properties\":{\"someProperty\":\"hi\"},\"body\":\"12\"}\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        run();
+        Assert.assertEquals(3, output().size());
+
+        parsed = objectsParsed();
+        run();
+        Assert.assertEquals(parsed, objectsParsed());
+        Assert.assertEquals(3, output().size());
+    }
+
+    @Test
+    public void malformedModeTest() throws Exception {
+        Files.write(INPUT, "\nnot json\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        ConfigParser.filePath = "src/test/resources/sidecarQuarantineConfigTest.txt";
+        run();
+        Assert.assertTrue(Files.exists(SIDECAR));
+        long parsed = objectsParsed();
+
+        // Made without the line that is not JSON, so it cannot answer a run that stops there
+        ConfigParser.filePath = "src/test/resources/sidecarConfigTest.txt";
+        run();
+        Assert.assertTrue(objectsParsed() > parsed);
+
+        // Still there for the runs that quarantine it
+        ConfigParser.filePath = "src/test/resources/sidecarQuarantineConfigTest.txt";
+        parsed = objectsParsed();
+        run();
+        Assert.assertEquals(parsed, objectsParsed());
+        Assert.assertEquals(EXPECTED, output());
+    }
+
+    private static void run() throws Exception {
+        Config.reload(); // Each value can only be read once
+        Settings settings = new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        );
+
+        JsonProcessingTool tool = new JsonProcessingTool(settings);
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } finally {
+            tool.close();
+        }
+    }
+
+    private static long objectsParsed() throws Exception {
+        return (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(Metrics.OBJECT_NAME), "ObjectsParsed");
+    }
+
+    private static List<String> output() throws Exception {
+        return Files.readAllLines(Paths.get("test_output.txt"), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,111 @@
+import core.Main;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Runs the whole tool in its own JVM for the SoakTest and writes
+ * what the run cost: wall-clock time, peak RSS, GC time and the
+ * bytes allocated by every thread that ran.
+ *
+ * Usage: SoakRunner config.txt metrics.properties
+ */
+public class SoakRunner {
+    private static final long SAMPLE_MILLIS = 100; // How often the allocations of the live threads are read
+
+    private static final Map<Long, Long> allocated = new HashMap<>(); // Last allocation count of each thread
+
+    public static void main(String[] args) throws Exception {
+        Thread sampler = new Thread(() -> {
+            while(!Thread.currentThread().isInterrupted()) {
+                sampleAllocations();
+
+                try {
+                    Thread.sleep(SAMPLE_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "allocation-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+
+        long start = System.nanoTime();
+        Main.main(new String[] { args[0] });
+        long elapsed = System.nanoTime() - start;
+
+        sampler.interrupt();
+        sampler.join();
+        sampleAllocations();
+
+        long gcMillis = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+
+        long allocatedBytes = 0;
+        for(long bytes : allocated.values()) {
+            allocatedBytes += bytes;
+        }
+
+        Properties metrics = new Properties();
+        metrics.setProperty("elapsedMillis", Long.toString(elapsed / 1000000));
+        metrics.setProperty("gcMillis", Long.toString(gcMillis));
+        metrics.setProperty("allocatedBytes", Long.toString(allocatedBytes));
+        metrics.setProperty("peakRssBytes", Long.toString(peakRss()));
+
+        try(OutputStream os = Files.newOutputStream(Paths.get(args[1]))) {
+            metrics.store(os, "SoakRunner");
+        }
+    }
+
+    /**
+     * Keeps the allocation count of every live thread, so threads that
+     * finish between samples lose at most SAMPLE_MILLIS of allocations
+     */
+    private static synchronized void sampleAllocations() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if(!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+        long[] ids = bean.getAllThreadIds();
+        long[] bytes = bean.getThreadAllocatedBytes(ids);
+
+        for(int x = 0; x < ids.length; x++) {
+            if(bytes[x] > 0) {
+                allocated.put(ids[x], bytes[x]);
+            }
+        }
+    }
+
+    /**
+     * @return      highest resident set size of this JVM, or -1 where /proc is not available
+     */
+    private static long peakRss() {
+        try {
+            List<String> status = Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8);
+
+            for(String line : status) {
+                if(line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not Linux
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,250 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Runs the whole tool on generated capture files of a few GB, one shaped
+ * like input.txt and one like input2.txt, and fails when a run is slower
+ * or uses more memory than the stored baseline allows.
+ *
+ * Only runs with the soak profile: mvn test -Psoak
+ *  -Dsoak.bytes=N              size of each capture file (1GB)
+ *  -Dsoak.tolerance=F          how much worse than the baseline a run can be (0.25)
+ *  -Dsoak.jvmArgs="..."        JVM options of the run (-Xmx1g)
+ *  -Dsoak.updateBaseline=true  stores this run as the new baseline
+ */
+public class SoakTest {
+    private static final long BYTES = Long.getLong("soak.bytes", 1L << 30);
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("soak.tolerance", "0.25"));
+    private static final String JVM_ARGS = System.getProperty("soak.jvmArgs", "-Xmx1g");
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("soak.updateBaseline");
+
+    private static final Path DIRECTORY = Paths.get("target/soak");
+    private static final Path BASELINE = Paths.get("src/test/resources/soakBaseline.properties");
+
+    private static final int MESSAGES_PER_SECOND = 10; // Of capture time, so a day holds about 400000 messages
+    private static final int SECONDS_PER_DAY = 11 * 60 * 60; // Hours 01 to 11, so the timestamps are in order
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+
+    @Test
+    public void singleLineSoakTest() throws Exception {
+        soak("singleLine", false);
+    }
+
+    @Test
+    public void multiLineSoakTest() throws Exception {
+        soak("multiLine", true);
+    }
+
+    private void soak(String shape, boolean multiLine) throws Exception {
+        Files.createDirectories(DIRECTORY);
+
+        Path input = DIRECTORY.resolve(shape + "-" + BYTES + ".txt");
+        Path output = DIRECTORY.resolve(shape + "-output.txt");
+        long messages = generate(input, multiLine);
+
+        // The soak config with the generated files in front of it
+        List<String> config = new ArrayList<>(Arrays.asList("input_file=" + input.toAbsolutePath(), "output_file=" + output.toAbsolutePath()));
+        config.addAll(Files.readAllLines(Paths.get("src/test/resources/soakConfigTest.txt"), StandardCharsets.UTF_8));
+
+        Path configPath = DIRECTORY.resolve(shape + "-config.txt");
+        Files.write(configPath, config, StandardCharsets.UTF_8);
+
+        Properties metrics = run(configPath, DIRECTORY.resolve(shape + "-metrics.properties"));
+        Assert.assertTrue("The run wrote no messages", Files.size(output) > 0);
+
+        long elapsed = Math.max(1, Long.parseLong(metrics.getProperty("elapsedMillis")));
+
+        Properties result = new Properties();
+        result.setProperty(shape + ".messagesPerSecond", Long.toString(messages * 1000 / elapsed));
+        result.setProperty(shape + ".peakRssMb", Long.toString(Long.parseLong(metrics.getProperty("peakRssBytes")) >> 20));
+        result.setProperty(shape + ".gcPercent", Long.toString(Long.parseLong(metrics.getProperty("gcMillis")) * 100 / elapsed));
+        result.setProperty(shape + ".allocatedBytesPerMessage", Long.toString(Long.parseLong(metrics.getProperty("allocatedBytes")) / messages));
+        result.setProperty(shape + ".allocatedMbPerSecond", Long.toString((Long.parseLong(metrics.getProperty("allocatedBytes")) >> 20) * 1000 / elapsed));
+
+        System.out.println(shape + ": " + messages + " messages in " + elapsed + " ms " + result);
+
+        // The README asks for 1000 messages within 5 minutes
+        Assert.assertTrue("Slower than 1000 messages in 5 minutes", messages * 300000 / elapsed >= 1000);
+
+        if(UPDATE_BASELINE) {
+            updateBaseline(result);
+            return;
+        }
+
+        Properties baseline = load(BASELINE);
+        List<String> regressions = new ArrayList<>();
+
+        check(regressions, baseline, result, shape + ".messagesPerSecond", false);
+        check(regressions, baseline, result, shape + ".peakRssMb", true);
+        check(regressions, baseline, result, shape + ".gcPercent", true);
+        check(regressions, baseline, result, shape + ".allocatedBytesPerMessage", true); // The rate in MB/s follows the throughput
+
+        Assert.assertTrue("Regressed past the baseline: " + regressions, regressions.isEmpty());
+    }
+
+    /**
+     * Compares one metric with the baseline. Metrics that are missing
+     * from the baseline or could not be measured are skipped.
+     * @param lowerIsBetter     true for memory and GC, false for throughput
+     */
+    private static void check(List<String> regressions, Properties baseline, Properties result, String key, boolean lowerIsBetter) {
+        String expected = baseline.getProperty(key);
+        long actual = Long.parseLong(result.getProperty(key));
+
+        if(expected == null || actual < 0) {
+            return;
+        }
+
+        long value = Long.parseLong(expected);
+
+        // GC time gets a couple of points on top, since a small percentage moves a lot between runs
+        boolean regressed = lowerIsBetter
+                ? actual > value * (1 + TOLERANCE) + (key.endsWith("gcPercent") ? 2 : 0)
+                : actual < value * (1 - TOLERANCE);
+
+        if(regressed) {
+            regressions.add(key + " " + actual + " (baseline " + value + ")");
+        }
+    }
+
+    /**
+     * Runs the tool in a JVM of its own, so its memory and GC are only its own
+     * @return      metrics written by the SoakRunner
+     */
+    private static Properties run(Path config, Path metrics) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(JVM_ARGS.trim().split("\\s+")));
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), "SoakRunner", config.toString(), metrics.toString()));
+
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(DIRECTORY.resolve(config.getFileName() + ".log").toFile())
+                .start();
+
+        Assert.assertEquals("The run failed, see its log in " + DIRECTORY, 0, process.waitFor());
+
+        return load(metrics);
+    }
+
+    /**
+     * Writes a capture file of about BYTES bytes, unless it is already there
+     * @param multiLine     pretty-printed over several lines like input2.txt, otherwise one line each like input.txt
+     * @return              how many messages are in the file
+     */
+    private static long generate(Path input, boolean multiLine) throws IOException {
+        Path count = Paths.get(input + ".count");
+
+        if(Files.exists(input) && Files.exists(count)) {
+            return Long.parseLong(new String(Files.readAllBytes(count), StandardCharsets.UTF_8).trim());
+        }
+
+        Random random = new Random(42);
+        String[] vocabulary = new String[512];
+
+        for(int x = 0; x < vocabulary.length; x++) {
+            char[] letters = new char[3 + random.nextInt(7)];
+
+            for(int y = 0; y < letters.length; y++) {
+                letters[y] = (char) ('a' + random.nextInt(26));
+            }
+
+            vocabulary[x] = new String(letters);
+        }
+
+        long messages = 0;
+        long written = 0;
+
+        try(BufferedWriter writer = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            StringBuilder body = new StringBuilder();
+            StringBuilder message = new StringBuilder();
+
+            while(written < BYTES) {
+                body.setLength(0);
+
+                if(random.nextInt(100) == 0) {
+                    body.append("alarm ");
+                }
+
+                for(int x = random.nextInt(12); x >= 0; x--) {
+                    body.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+                }
+                body.setLength(body.length() - 1);
+
+                String timestamp = timestamp(messages / MESSAGES_PER_SECOND);
+                int delay = random.nextInt(20000);
+                boolean property = random.nextInt(4) == 0;
+
+                message.setLength(0);
+
+                if(multiLine) {
+                    message.append("{\n\t\"timeStamp\": \"").append(timestamp).append("\",\n\t\"delayMillis\": ").append(delay)
+                            .append(",\n\t\"properties\": ").append(property ? "{\n\t\t\"someProperty\": \"hi\"\n\t}" : "{}")
+                            .append(",\n\t\"body\": \"").append(body).append("\"\n}\n");
+                } else {
+                    // Now and then split over two lines like the first message of input.txt
+                    message.append("{\"timeStamp\":\"").append(timestamp).append(random.nextInt(50) == 0 ? "\",\n" : "\",")
+                            .append("\"delayMillis\":").append(delay)
+                            .append(",\"properties\":").append(property ? "{ \"someProperty\": \"hi\"}" : "{}")
+                            .append(",\"body\":\"").append(body).append("\"}\n");
+                }
+
+                writer.append(message);
+                written += message.length(); // Only ASCII, so a char is a byte
+                messages++;
+            }
+        }
+
+        Files.write(count, Long.toString(messages).getBytes(StandardCharsets.UTF_8));
+        return messages;
+    }
+
+    /**
+     * @param second    seconds of capture time since the first message
+     * @return          timeStamp in the format of the input files
+     */
+    private static String timestamp(long second) {
+        LocalDate day = LocalDate.of(2020, 7, 1).plusDays(second / SECONDS_PER_DAY);
+        int seconds = (int) (second % SECONDS_PER_DAY) + 60 * 60;
+
+        return day.format(DAY_FORMAT)
+                + String.format(" %02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+
+    private static void updateBaseline(Properties result) throws IOException {
+        Properties baseline = load(BASELINE);
+        baseline.putAll(result);
+
+        try(OutputStream os = Files.newOutputStream(BASELINE)) {
+            baseline.store(os, "SoakTest baseline, regenerate with: mvn test -Psoak -Dsoak.updateBaseline=true");
+        }
+    }
+
+    private static Properties load(Path path) throws IOException {
+        Properties properties = new Properties();
+
+        if(Files.exists(path)) {
+            try(InputStream is = Files.newInputStream(path)) {
+                properties.load(is);
+            }
+        }
+
+        return properties;
+    }
+}
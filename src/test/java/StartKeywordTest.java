@@ -16,7 +16,7 @@ public class StartKeywordTest {
 
     @Test
     public void startKeywordTest() throws Exception {
-        ConfigParser.filePath = "C:\\Users\\Luciano\\Desktop\\Programming\\Boeing\\Projects\\JSONProcessingTool\\src\\test\\resources\\startConfigTest.txt";
+        ConfigParser.filePath = "src/test/resources/startConfigTest.txt";
 
         JsonProcessingTool tool = new JsonProcessingTool(new Settings(
                 Config.get("input_file", String.class),
@@ -31,13 +31,13 @@ public class StartKeywordTest {
             LOGGER.severe("Invalid File Path");
         }
 
-        Assert.assertEquals(6, countOutputLines());
+        Assert.assertEquals(7, countOutputLines());
     }
 
 
     // Counts the amount of lines in the output file
     private int countOutputLines() throws Exception {
-        BufferedReader reader = new BufferedReader(new FileReader("C:\\Users\\Luciano\\Desktop\\Programming\\Boeing\\Projects\\JSONProcessingTool\\output.txt"));
+        BufferedReader reader = new BufferedReader(new FileReader("test_output.txt"));
         int lines = 0;
         while (reader.readLine() != null) lines++;
         reader.close();
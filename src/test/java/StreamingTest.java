@@ -0,0 +1,47 @@
+import config.Config;
+import config.ConfigParser;
+import core.Main;
+import org.junit.Assert;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import util.Settings;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+public class StreamingTest {
+    private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
+
+    @Test
+    public void streamingTest() throws Exception {
+        ConfigParser.filePath = "src/test/resources/streamingConfigTest.txt";
+
+        JsonProcessingTool tool = new JsonProcessingTool(new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        ));
+        try {
+            tool.streamJsonMessages();
+        } catch (IOException e) {
+            LOGGER.severe("Invalid File Path");
+        }
+
+        // Messages 1, 2, 3, 6, 7, 8 are within the start/stop times and the start keyword drops message 1
+        Assert.assertEquals(5, countOutputLines());
+    }
+
+
+    // Counts the amount of lines in the output file
+    private int countOutputLines() throws Exception {
+        BufferedReader reader = new BufferedReader(new FileReader("test_output.txt"));
+        int lines = 0;
+        while (reader.readLine() != null) lines++;
+        reader.close();
+
+        return lines;
+    }
+}
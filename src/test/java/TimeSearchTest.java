@@ -16,7 +16,7 @@ public class TimeSearchTest {
 
     @Test
     public void timeSearchTest() throws Exception {
-        ConfigParser.filePath = "C:\\Users\\Luciano\\Desktop\\Programming\\Boeing\\Projects\\JSONProcessingTool\\src\\test\\resources\\timeConfigTest.txt";
+        ConfigParser.filePath = "src/test/resources/timeConfigTest.txt";
 
         JsonProcessingTool tool = new JsonProcessingTool(new Settings(
                 Config.get("input_file", String.class),
@@ -37,7 +37,7 @@ public class TimeSearchTest {
 
     // Counts the amount of lines in the output file
     private int countOutputLines() throws Exception {
-        BufferedReader reader = new BufferedReader(new FileReader("C:\\Users\\Luciano\\Desktop\\Programming\\Boeing\\Projects\\JSONProcessingTool\\output.txt"));
+        BufferedReader reader = new BufferedReader(new FileReader("test_output.txt"));
         int lines = 0;
         while (reader.readLine() != null) lines++;
         reader.close();
@@ -0,0 +1,80 @@
+import org.junit.Assert;
+import org.junit.Test;
+import util.TimestampParser;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+
+public class TimestampParserTest {
+    // Zones with daylight saving, half hour offsets and a skipped day (Apia, 12-30-2011)
+    private static final String[] ZONES = { "UTC", "America/New_York", "Europe/London", "Australia/Lord_Howe", "Asia/Kolkata", "Pacific/Apia" };
+
+    @Test
+    public void sameAsSimpleDateFormatTest() {
+        for(String id : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+
+            for(int month = 1; month <= 12; month++) {
+                for(int day = 1; day <= 31; day++) {
+                    for(int hour = 1; hour <= 12; hour++) {
+                        String raw = String.format("%02d-%02d-2011 %02d:%02d:%02d", month, day, hour, (day * 7) % 60, (hour * 11) % 70);
+                        Assert.assertEquals(id + " " + raw, simpleDateFormat(raw, zone), TimestampParser.parse(raw, zone));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void lenientTest() {
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+
+        String[] values = {
+                "07-01-2020 02:00:66", // Second 66 from input.txt
+                "13-01-2020 01:00:00",
+                "00-00-2020 12:00:00",
+                "02-30-2020 13:99:99",
+                "7-1-2020 2:0:5",
+                "03-08-2020 02:30:00", // Skipped by daylight saving
+                "11-01-2020 01:30:00", // Happens twice because of daylight saving
+                "07-01-1500 01:00:00",
+                "07-01-20200 01:00:00",
+                "07-01-2020 01:00:00 PM",
+                " 07-01-2020 01:00:00"
+        };
+
+        for(String raw : values) {
+            Assert.assertEquals(raw, simpleDateFormat(raw, zone), TimestampParser.parse(raw, zone));
+        }
+    }
+
+    @Test
+    public void invalidTest() {
+        String[] values = { null, "", "timestamp", "07-01-2020", "07/01/2020 01:00:00" };
+
+        for(String raw : values) {
+            Assert.assertEquals(raw, TimestampParser.INVALID, TimestampParser.parse(raw));
+        }
+    }
+
+    @Test
+    public void bytesTest() {
+        String raw = "07-01-2020 02:00:66";
+        byte[] bytes = ("\"" + raw + "\"").getBytes(StandardCharsets.UTF_8);
+
+        Assert.assertEquals(TimestampParser.parse(raw), TimestampParser.parse(bytes, 1, bytes.length - 1));
+    }
+
+    // The old way of parsing timestamps
+    private long simpleDateFormat(String raw, TimeZone zone) {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(TimestampParser.FORMAT);
+        simpleDateFormat.setTimeZone(zone);
+
+        try {
+            return simpleDateFormat.parse(raw).getTime();
+        } catch (Exception e) {
+            return TimestampParser.INVALID;
+        }
+    }
+}
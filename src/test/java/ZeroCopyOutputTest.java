@@ -0,0 +1,49 @@
+import config.Config;
+import config.ConfigParser;
+import core.Main;
+import org.junit.Assert;
+import org.junit.Test;
+import processing.JsonProcessingTool;
+import util.Settings;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.logging.Logger;
+
+public class ZeroCopyOutputTest {
+    private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
+
+    @Test
+    public void zeroCopyOutputTest() throws Exception {
+        ConfigParser.filePath = "src/test/resources/zeroCopyConfigTest.txt";
+
+        JsonProcessingTool tool = new JsonProcessingTool(new Settings(
+                Config.get("input_file", String.class),
+                Config.get("output_file", String.class),
+                Config.get("start_keyword", String.class),
+                Config.get("multi_line_output", Boolean.class)
+        ));
+        try {
+            tool.loadJsonMessages();
+            tool.process();
+        } catch (IOException e) {
+            LOGGER.severe("Invalid File Path");
+        }
+
+        List<String> input = Files.readAllLines(Paths.get("input.txt"), StandardCharsets.UTF_8);
+        List<String> output = Files.readAllLines(Paths.get("test_output.txt"), StandardCharsets.UTF_8);
+
+        Assert.assertEquals(4, output.size());
+
+        // The first message is spread over two lines, so it is written from its content
+        Assert.assertTrue(output.get(0).startsWith("{\"timeStamp\":\"07-01-2020 01:59:51\",\"delayMillis\":13953"));
+
+        // The rest are copied from the input file as they are, spaces and all
+        Assert.assertEquals(input.get(4), output.get(1));
+        Assert.assertEquals(input.get(8), output.get(2));
+        Assert.assertEquals(input.get(10), output.get(3));
+    }
+}